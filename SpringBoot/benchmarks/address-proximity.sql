@@ -0,0 +1,96 @@
+-- address-proximity.sql
+-- Confere que as buscas por raio de AddressProximityService (V8) são range scans index-only
+-- sobre idx_addresses_geohash em 1M de endereços.
+--
+-- Uso (banco descartável, com as migrações aplicadas):
+--   psql -h localhost -U demo_user -d demo_db -f benchmarks/address-proximity.sql
+--
+-- As consultas abaixo são as que o serviço monta (max-cells: 32) para cada ponto e raio: um
+-- SELECT por intervalo de geohash, unidos por UNION ALL, com a caixa envolvente nas colunas do
+-- INCLUDE. O serviço depois descarta, pela distância em linha reta, os candidatos fora do círculo.
+--
+-- Com OR entre os intervalos o planner usa BitmapOr + Bitmap Heap Scan (~35 ms no raio de 2 km
+-- na capital, lendo ~7k páginas do heap); com UNION ALL cada intervalo é um Index Only Scan.
+-- O tempo total passa a ser proporcional ao número de candidatos: medido pelo JDBC, ~3 ms para
+-- ~340 linhas e ~8 ms para ~1.4k. Um raio que contém milhares de endereços (5 km na capital,
+-- ~7k) fica acima de 10 ms só pelo volume do resultado.
+
+\timing on
+
+INSERT INTO users (id, name, email, password)
+SELECT 'bench-user-' || lpad(u::text, 4, '0'), 'Benchmark ' || u, 'bench-user-' || u || '@example.com', 'x'
+FROM generate_series(0, 999) AS u
+ON CONFLICT (id) DO NOTHING;
+
+-- 800k espalhados pelo estado de São Paulo (~2 por km²) e 200k concentrados na capital (~90 por km²)
+INSERT INTO addresses (id, street, number, neighborhood, city, state, zip_code, latitude, longitude,
+                       geocode_status, user_id)
+SELECT gen_random_uuid()::text, 'Rua ' || g, '1', 'Centro', 'Cidade', 'SP', '01000-000',
+       CASE WHEN g % 5 = 0 THEN -23.75 + random() * 0.40 ELSE -25 + random() * 5 END,
+       CASE WHEN g % 5 = 0 THEN -46.85 + random() * 0.50 ELSE -53 + random() * 9 END,
+       'RESOLVED',
+       'bench-user-' || lpad((g % 1000)::text, 4, '0')
+FROM generate_series(1, 1000000) AS g;
+
+VACUUM ANALYZE addresses;
+
+-- Capital, raio de 1 km: 7 intervalos, ~340 candidatos (~260 no círculo); ~0.5 ms, 0 heap fetches
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6gycfx' AND geohash < '6gycfy'
+    AND latitude BETWEEN -23.5590 AND -23.5410 AND longitude BETWEEN -46.6398 AND -46.6202
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6gycfz' AND geohash < '6gycg0'
+    AND latitude BETWEEN -23.5590 AND -23.5410 AND longitude BETWEEN -46.6398 AND -46.6202
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6gycgp' AND geohash < '6gycgq'
+    AND latitude BETWEEN -23.5590 AND -23.5410 AND longitude BETWEEN -46.6398 AND -46.6202
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6gyf48' AND geohash < '6gyf4e'
+    AND latitude BETWEEN -23.5590 AND -23.5410 AND longitude BETWEEN -46.6398 AND -46.6202
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6gyf4f' AND geohash < '6gyf4g'
+    AND latitude BETWEEN -23.5590 AND -23.5410 AND longitude BETWEEN -46.6398 AND -46.6202
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6gyf50' AND geohash < '6gyf52'
+    AND latitude BETWEEN -23.5590 AND -23.5410 AND longitude BETWEEN -46.6398 AND -46.6202
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6gyf54' AND geohash < '6gyf55'
+    AND latitude BETWEEN -23.5590 AND -23.5410 AND longitude BETWEEN -46.6398 AND -46.6202;
+
+-- Capital, raio de 2 km: 2 intervalos, ~1.4k candidatos (~1.1k no círculo); ~2 ms
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6gycf' AND geohash < '6gych'
+    AND latitude BETWEEN -23.5680 AND -23.5320 AND longitude BETWEEN -46.6496 AND -46.6104
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6gyf4' AND geohash < '6gyf6'
+    AND latitude BETWEEN -23.5680 AND -23.5320 AND longitude BETWEEN -46.6496 AND -46.6104;
+
+-- Interior, raio de 5 km: 5 intervalos, ~140 candidatos; < 1 ms
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6uj6x' AND geohash < '6uj6y'
+    AND latitude BETWEEN -22.0450 AND -21.9550 AND longitude BETWEEN -48.5485 AND -48.4515
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6uj6z' AND geohash < '6uj70'
+    AND latitude BETWEEN -22.0450 AND -21.9550 AND longitude BETWEEN -48.5485 AND -48.4515
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6uj7p' AND geohash < '6uj7q'
+    AND latitude BETWEEN -22.0450 AND -21.9550 AND longitude BETWEEN -48.5485 AND -48.4515
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6ujd8' AND geohash < '6ujdd'
+    AND latitude BETWEEN -22.0450 AND -21.9550 AND longitude BETWEEN -48.5485 AND -48.4515
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6uje0' AND geohash < '6uje2'
+    AND latitude BETWEEN -22.0450 AND -21.9550 AND longitude BETWEEN -48.5485 AND -48.4515;
+
+-- Interior, raio de 10 km: 9 intervalos, ~650 candidatos; < 1 ms
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6uj6q' AND geohash < '6uj6s'
+    AND latitude BETWEEN -22.0899 AND -21.9101 AND longitude BETWEEN -48.5971 AND -48.4029
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6uj6w' AND geohash < '6uj70'
+    AND latitude BETWEEN -22.0899 AND -21.9101 AND longitude BETWEEN -48.5971 AND -48.4029
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6uj7n' AND geohash < '6uj7s'
+    AND latitude BETWEEN -22.0899 AND -21.9101 AND longitude BETWEEN -48.5971 AND -48.4029
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6ujd2' AND geohash < '6ujd4'
+    AND latitude BETWEEN -22.0899 AND -21.9101 AND longitude BETWEEN -48.5971 AND -48.4029
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6ujd6' AND geohash < '6ujd7'
+    AND latitude BETWEEN -22.0899 AND -21.9101 AND longitude BETWEEN -48.5971 AND -48.4029
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6ujd8' AND geohash < '6ujde'
+    AND latitude BETWEEN -22.0899 AND -21.9101 AND longitude BETWEEN -48.5971 AND -48.4029
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6ujdf' AND geohash < '6ujdg'
+    AND latitude BETWEEN -22.0899 AND -21.9101 AND longitude BETWEEN -48.5971 AND -48.4029
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6uje0' AND geohash < '6uje5'
+    AND latitude BETWEEN -22.0899 AND -21.9101 AND longitude BETWEEN -48.5971 AND -48.4029
+UNION ALL SELECT id, user_id, latitude, longitude FROM addresses WHERE geohash IS NOT NULL AND geohash >= '6uje6' AND geohash < '6uje7'
+    AND latitude BETWEEN -22.0899 AND -21.9101 AND longitude BETWEEN -48.5971 AND -48.4029;
+
+DELETE FROM addresses WHERE user_id LIKE 'bench-user-%';
+DELETE FROM users WHERE id LIKE 'bench-user-%';
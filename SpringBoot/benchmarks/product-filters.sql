@@ -0,0 +1,115 @@
+-- product-filters.sql
+-- Confere que cada combinação de filtro/ordenação da listagem (V5) usa índice em 1M de produtos,
+-- e mede a consulta única de facetas.
+--
+-- Uso (banco descartável, com as migrações aplicadas):
+--   psql -h localhost -U demo_user -d demo_db -f benchmarks/product-filters.sql
+
+\timing on
+
+-- 100 criadores para que o filtro por criador seja seletivo como em produção
+INSERT INTO users (id, name, email, password)
+SELECT 'bench-creator-' || lpad(c::text, 3, '0'), 'Benchmark ' || c, 'bench-creator-' || c || '@example.com', 'x'
+FROM generate_series(0, 99) AS c
+ON CONFLICT (id) DO NOTHING;
+
+INSERT INTO products (id, name, description, price, stock, created_by_id, active, created_at, updated_at)
+SELECT gen_random_uuid()::text,
+       'Produto ' || g,
+       'Produto de teste número ' || g,
+       (random() * 2000 + 1)::numeric(10, 2),
+       -- ~30% sem estoque
+       CASE WHEN random() < 0.3 THEN 0 ELSE (random() * 100)::int + 1 END,
+       'bench-creator-' || lpad((g % 100)::text, 3, '0'),
+       random() > 0.05,
+       now() - (g || ' seconds')::interval,
+       now()
+FROM generate_series(1, 1000000) AS g;
+
+VACUUM ANALYZE products;
+
+-- minPrice/maxPrice, ordenação padrão
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT p.* FROM products p
+WHERE p.active = TRUE AND p.price >= 100 AND p.price <= 150
+ORDER BY p.created_at DESC, p.id DESC
+LIMIT 20;
+
+-- minPrice/maxPrice, sort=price_asc
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT p.* FROM products p
+WHERE p.active = TRUE AND p.price >= 100 AND p.price <= 150
+ORDER BY p.price, p.id
+LIMIT 20;
+
+-- inStock, ordenação padrão
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT p.* FROM products p
+WHERE p.active = TRUE AND p.stock > 0
+ORDER BY p.created_at DESC, p.id DESC
+LIMIT 20;
+
+-- inStock, sort=price_desc
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT p.* FROM products p
+WHERE p.active = TRUE AND p.stock > 0
+ORDER BY p.price DESC, p.id DESC
+LIMIT 20;
+
+-- inStock + faixa de preço, sort=price_asc
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT p.* FROM products p
+WHERE p.active = TRUE AND p.stock > 0 AND p.price >= 100 AND p.price <= 150
+ORDER BY p.price, p.id
+LIMIT 20;
+
+-- createdBy, ordenação padrão
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT p.* FROM products p
+WHERE p.active = TRUE AND p.created_by_id = 'bench-creator-042'
+ORDER BY p.created_at DESC, p.id DESC
+LIMIT 20;
+
+-- createdBy + inStock, sort=price_asc (top-N sobre os ~10k produtos do criador)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT p.* FROM products p
+WHERE p.active = TRUE AND p.created_by_id = 'bench-creator-042' AND p.stock > 0
+ORDER BY p.price, p.id
+LIMIT 20;
+
+-- Página profunda por cursor em sort=price_asc: (price, id) > (500.00, '8')
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT p.* FROM products p
+WHERE p.active = TRUE
+  AND p.price >= 500.00 AND (p.price > 500.00 OR p.id > '8')
+ORDER BY p.price, p.id
+LIMIT 21;
+
+-- Facetas (ProductFacetService): uma passada só em vez de uma consulta por faceta. Sem filtro ela
+-- percorre todo o catálogo ativo; o resultado fica no cache de páginas do ProductCache, por isso o
+-- cliente deve pedir facets=true apenas na primeira página
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(*) FILTER (WHERE TRUE AND TRUE) AS total,
+       count(*) FILTER (WHERE TRUE AND stock > 0) AS in_stock,
+       count(*) FILTER (WHERE TRUE AND price < 50) AS bucket_0,
+       count(*) FILTER (WHERE TRUE AND price >= 50 AND price < 100) AS bucket_1,
+       count(*) FILTER (WHERE TRUE AND price >= 100 AND price < 250) AS bucket_2,
+       count(*) FILTER (WHERE TRUE AND price >= 250 AND price < 500) AS bucket_3,
+       count(*) FILTER (WHERE TRUE AND price >= 500 AND price < 1000) AS bucket_4,
+       count(*) FILTER (WHERE TRUE AND price >= 1000) AS bucket_5
+FROM products WHERE active = TRUE;
+
+-- Facetas de um criador com inStock e faixa de preço
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(*) FILTER (WHERE TRUE AND price >= 100 AND price <= 150 AND stock > 0) AS total,
+       count(*) FILTER (WHERE TRUE AND price >= 100 AND price <= 150 AND stock > 0) AS in_stock,
+       count(*) FILTER (WHERE stock > 0 AND price < 50) AS bucket_0,
+       count(*) FILTER (WHERE stock > 0 AND price >= 50 AND price < 100) AS bucket_1,
+       count(*) FILTER (WHERE stock > 0 AND price >= 100 AND price < 250) AS bucket_2,
+       count(*) FILTER (WHERE stock > 0 AND price >= 250 AND price < 500) AS bucket_3,
+       count(*) FILTER (WHERE stock > 0 AND price >= 500 AND price < 1000) AS bucket_4,
+       count(*) FILTER (WHERE stock > 0 AND price >= 1000) AS bucket_5
+FROM products WHERE active = TRUE AND created_by_id = 'bench-creator-042';
+
+DELETE FROM products WHERE created_by_id LIKE 'bench-creator-%';
+DELETE FROM users WHERE id LIKE 'bench-creator-%';
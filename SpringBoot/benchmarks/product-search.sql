@@ -0,0 +1,61 @@
+-- product-search.sql
+-- Compara a busca LIKE antiga com a busca full-text/trigram (V3) em 1M de produtos.
+--
+-- Uso (banco descartável, com as migrações aplicadas):
+--   psql -h localhost -U demo_user -d demo_db -f benchmarks/product-search.sql
+
+\timing on
+
+INSERT INTO users (id, name, email, password)
+VALUES ('00000000-0000-0000-0000-0000000bench', 'Benchmark', 'benchmark@example.com', 'x')
+ON CONFLICT (id) DO NOTHING;
+
+INSERT INTO products (id, name, description, price, stock, created_by_id, active, created_at, updated_at)
+SELECT gen_random_uuid()::text,
+       (ARRAY['Camiseta', 'Caneca', 'Notebook', 'Cadeira', 'Mochila', 'Fone', 'Teclado', 'Garrafa'])[1 + g % 8]
+           || ' ' || (ARRAY['azul', 'preta', 'gamer', 'ergonômica', 'térmica', 'sem fio', 'premium'])[1 + g % 7]
+           || ' ' || g,
+       'Produto de teste número ' || g || ' com descrição longa para simular texto real de catálogo.',
+       (random() * 1000 + 1)::numeric(10, 2),
+       (random() * 100)::int,
+       '00000000-0000-0000-0000-0000000bench',
+       TRUE,
+       now() - (g || ' seconds')::interval,
+       now()
+FROM generate_series(1, 1000000) AS g;
+
+ANALYZE products;
+
+-- Antes: LIKE em name/description (seq scan)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT p.* FROM products p
+WHERE p.active = TRUE
+  AND (LOWER(p.name) LIKE LOWER('%' || 'mochila térmica' || '%')
+       OR LOWER(p.description) LIKE LOWER('%' || 'mochila térmica' || '%'))
+ORDER BY p.created_at DESC, p.id DESC
+LIMIT 10;
+
+-- Depois: full-text + trigramas com ranking (PostgresProductSearchEngine)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT p.* FROM products p
+WHERE p.active = TRUE
+  AND (p.search_vector @@ websearch_to_tsquery('portuguese', 'mochila térmica')
+       OR p.name ILIKE '%' || 'mochila térmica' || '%'
+       OR p.name % 'mochila térmica')
+ORDER BY ts_rank_cd(p.search_vector, websearch_to_tsquery('portuguese', 'mochila térmica')) DESC,
+         similarity(p.name, 'mochila térmica') DESC, p.created_at DESC, p.id DESC
+LIMIT 10;
+
+-- Erro de digitação: apenas o operador de similaridade encontra
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT p.* FROM products p
+WHERE p.active = TRUE
+  AND (p.search_vector @@ websearch_to_tsquery('portuguese', 'mochla')
+       OR p.name ILIKE '%' || 'mochla' || '%'
+       OR p.name % 'mochla')
+ORDER BY ts_rank_cd(p.search_vector, websearch_to_tsquery('portuguese', 'mochla')) DESC,
+         similarity(p.name, 'mochla') DESC, p.created_at DESC, p.id DESC
+LIMIT 10;
+
+DELETE FROM products WHERE created_by_id = '00000000-0000-0000-0000-0000000bench';
+DELETE FROM users WHERE id = '00000000-0000-0000-0000-0000000bench';
@@ -0,0 +1,30 @@
+package com.demo.common.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Open-in-view do Spring Boot (desligado em spring.jpa.open-in-view) com rotas de fora. Com ele, a
+ * primeira consulta da requisição prende uma conexão do pool até a resposta; nas rotas abaixo isso
+ * incluiria chamadas externas feitas entre transações curtas.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class OpenInViewConfig implements WebMvcConfigurer {
+
+    // PaymentService.createPreference chama o MercadoPago entre duas transações
+    static final String[] EXCLUDED_PATHS = {"/payments/create-preference"};
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+        interceptor.setEntityManagerFactory(entityManagerFactory);
+        registry.addWebRequestInterceptor(interceptor).excludePathPatterns(EXCLUDED_PATHS);
+    }
+}
@@ -0,0 +1,152 @@
+package com.demo.common.persistence;
+
+import com.demo.common.web.FieldSelection;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Consulta de listagem com projeção dinâmica: só as colunas dos campos pedidos em fields= entram
+ * no SELECT, e cada linha chega ao mapper como um Row em vez de uma entidade hidratada.
+ */
+@Component
+@RequiredArgsConstructor
+public class SparseQuery {
+
+    private final EntityManager entityManager;
+
+    /**
+     * Todas as linhas que casam com spec, sem paginação.
+     *
+     * @param columns campo da resposta → caminho do atributo na entidade ("userId" → "user.id");
+     *                campos sem coluna (derivados ou constantes) ficam de fora do SELECT
+     */
+    public <E, R> List<R> findAll(
+            Class<E> entityClass,
+            Map<String, String> columns,
+            FieldSelection selection,
+            Specification<E> spec,
+            Sort sort,
+            Function<Row, R> mapper
+    ) {
+        return fetch(entityClass, columns, selection, spec, sort, mapper, query -> { });
+    }
+
+    /**
+     * Uma página das linhas que casam com spec; offset e limit fora do intervalo são recusados
+     * antes de montar a consulta, em vez de virarem "sem limite".
+     *
+     * @param limit máximo de linhas, a partir de 1
+     */
+    public <E, R> List<R> find(
+            Class<E> entityClass,
+            Map<String, String> columns,
+            FieldSelection selection,
+            Specification<E> spec,
+            Sort sort,
+            long offset,
+            int limit,
+            Function<Row, R> mapper
+    ) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit deve ser positivo: " + limit);
+        }
+        if (offset < 0 || offset > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("offset fora do intervalo: " + offset);
+        }
+        return fetch(entityClass, columns, selection, spec, sort, mapper, query -> query
+                .setFirstResult((int) offset)
+                .setMaxResults(limit));
+    }
+
+    private <E, R> List<R> fetch(
+            Class<E> entityClass,
+            Map<String, String> columns,
+            FieldSelection selection,
+            Specification<E> spec,
+            Sort sort,
+            Function<Row, R> mapper,
+            Consumer<TypedQuery<Tuple>> page
+    ) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<E> root = query.from(entityClass);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        Set<String> selected = new HashSet<>();
+        columns.forEach((field, attribute) -> {
+            if (selection.includes(field)) {
+                selections.add(path(root, attribute).alias(field));
+                selected.add(field);
+            }
+        });
+        query.multiselect(selections);
+
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        page.accept(typedQuery);
+
+        return typedQuery.getResultList()
+                .stream()
+                .map(tuple -> mapper.apply(new Row(tuple, selected, selection)))
+                .toList();
+    }
+
+    private static Path<?> path(Root<?> root, String attribute) {
+        Path<?> path = root;
+        for (String part : attribute.split("\\.")) {
+            path = path.get(part);
+        }
+        return path;
+    }
+
+    public static final class Row {
+
+        private final Tuple tuple;
+        private final Set<String> selected;
+        private final FieldSelection selection;
+
+        private Row(Tuple tuple, Set<String> selected, FieldSelection selection) {
+            this.tuple = tuple;
+            this.selected = selected;
+            this.selection = selection;
+        }
+
+        public boolean includes(String field) {
+            return selection.includes(field);
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T get(String field) {
+            return selected.contains(field) ? (T) tuple.get(field) : null;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.demo.common.web;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * ETag forte (id + versão) e Last-Modified para GETs condicionais. A versão é o updatedAt da
+ * entidade, lido por uma consulta leve antes de carregar o corpo.
+ */
+public final class ConditionalGet {
+
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache();
+
+    private ConditionalGet() {
+    }
+
+    public static boolean isNotModified(WebRequest request, String id, LocalDateTime version) {
+        return version != null && request.checkNotModified(etag(id, version), lastModified(version).toEpochMilli());
+    }
+
+    public static <T> ResponseEntity<T> notModified(String id, LocalDateTime version) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag(id, version))
+                .lastModified(lastModified(version))
+                .cacheControl(CACHE_CONTROL)
+                .build();
+    }
+
+    public static <T> ResponseEntity<T> ok(String id, LocalDateTime version, T body) {
+        if (version == null) {
+            return ResponseEntity.ok(body);
+        }
+        return ResponseEntity.ok()
+                .eTag(etag(id, version))
+                .lastModified(lastModified(version))
+                .cacheControl(CACHE_CONTROL)
+                .body(body);
+    }
+
+    static String etag(String id, LocalDateTime version) {
+        long micros = ChronoUnit.MICROS.between(Instant.EPOCH, lastModified(version));
+        return "\"" + id + "-" + Long.toHexString(micros) + "\"";
+    }
+
+    private static Instant lastModified(LocalDateTime version) {
+        return version.atZone(ZoneId.systemDefault()).toInstant();
+    }
+}
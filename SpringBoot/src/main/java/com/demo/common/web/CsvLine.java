@@ -0,0 +1,99 @@
+package com.demo.common.web;
+
+import com.demo.common.exception.BusinessException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leitura de registros CSV e separação dos seus campos, usada pelas importações em massa.
+ */
+public final class CsvLine {
+
+    private CsvLine() {
+    }
+
+    // Teto de um registro: aspas não fechadas fariam o resto do arquivo virar um registro só em memória
+    public static final int MAX_RECORD_LENGTH = 1 << 20;
+
+    /**
+     * Lê o próximo registro CSV, ou null no fim. Um campo entre aspas pode conter quebras de linha
+     * (a exportação de produtos grava descrições assim), então enquanto há aspas abertas o registro
+     * continua na linha seguinte, religada com '\n'; um \r\n dentro do campo volta como \n. Cada
+     * '\n' do registro corresponde a uma linha física a mais. line é a linha física onde o
+     * registro começa, usada só na mensagem de erro; registros acima de MAX_RECORD_LENGTH
+     * caracteres recusam o arquivo.
+     */
+    public static String readRecord(BufferedReader reader, long line) throws IOException {
+        String text = reader.readLine();
+        if (text == null) {
+            return null;
+        }
+        checkLength(text.length(), line);
+        if (!opensQuote(text, false)) {
+            return text;
+        }
+
+        StringBuilder record = new StringBuilder(text);
+        boolean quoted = true;
+        while (quoted && (text = reader.readLine()) != null) {
+            checkLength(record.length() + 1L + text.length(), line);
+            record.append('\n').append(text);
+            quoted = opensQuote(text, true);
+        }
+        // Aspas nunca fechadas até o fim do arquivo: split recusa o registro
+        return record.toString();
+    }
+
+    private static void checkLength(long length, long line) {
+        if (length > MAX_RECORD_LENGTH) {
+            throw new BusinessException("Registro CSV da linha " + line + " passa de " + MAX_RECORD_LENGTH
+                    + " caracteres; verifique se há aspas não fechadas");
+        }
+    }
+
+    // Aspas duplicadas ("") alternam duas vezes, então basta a paridade
+    private static boolean opensQuote(String line, boolean quoted) {
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') {
+                quoted = !quoted;
+            }
+        }
+        return quoted;
+    }
+
+    // RFC 4180 num registro: campos entre aspas podem conter vírgulas e aspas duplicadas ("")
+    public static List<String> split(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Linha CSV com aspas não fechadas");
+        }
+        values.add(current.toString());
+        return values;
+    }
+}
@@ -0,0 +1,83 @@
+package com.demo.common.web;
+
+import com.demo.common.exception.BusinessException;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Sparse fieldset (fields=id,name,price). Os DTOs anotados com @JsonFilter(FILTER) só serializam
+ * os campos escolhidos, e as consultas usam a mesma seleção para buscar só as colunas necessárias.
+ * fields nulo significa todos os campos.
+ */
+public record FieldSelection(Set<String> fields) {
+
+    public static final String FILTER = "fields";
+
+    private static final FieldSelection ALL = new FieldSelection(null);
+
+    public static FieldSelection all() {
+        return ALL;
+    }
+
+    /**
+     * Valida os nomes contra os componentes do record de resposta; id sempre é incluído.
+     */
+    public static FieldSelection parse(String raw, Class<? extends Record> responseType) {
+        if (raw == null || raw.isBlank()) {
+            return ALL;
+        }
+
+        Set<String> allowed = new LinkedHashSet<>();
+        for (RecordComponent component : responseType.getRecordComponents()) {
+            allowed.add(component.getName());
+        }
+
+        Set<String> fields = new LinkedHashSet<>();
+        fields.add("id");
+        for (String field : raw.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!allowed.contains(name)) {
+                throw new BusinessException("Campo desconhecido em fields: " + name);
+            }
+            fields.add(name);
+        }
+        return new FieldSelection(Collections.unmodifiableSet(fields));
+    }
+
+    public boolean isAll() {
+        return fields == null;
+    }
+
+    public boolean includes(String field) {
+        return fields == null || fields.contains(field);
+    }
+
+    // Campos que a consulta precisa além dos pedidos (ex.: chave do cursor), sem mudar o JSON
+    public FieldSelection with(String... required) {
+        if (fields == null) {
+            return this;
+        }
+        Set<String> extended = new LinkedHashSet<>(fields);
+        extended.addAll(Arrays.asList(required));
+        return new FieldSelection(Collections.unmodifiableSet(extended));
+    }
+
+    public MappingJacksonValue wrap(Object body) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        if (fields != null) {
+            value.setFilters(new SimpleFilterProvider()
+                    .addFilter(FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(fields)));
+        }
+        return value;
+    }
+}
@@ -2,6 +2,8 @@ package com.demo.domain;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -67,6 +69,18 @@ public class Address {
     @Column(name = "formatted_address")
     private String formattedAddress;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "geocode_status", nullable = false)
+    @Builder.Default
+    private GeocodeStatus geocodeStatus = GeocodeStatus.PENDING;
+
+    @Column(name = "geocode_attempts", nullable = false)
+    @Builder.Default
+    private Integer geocodeAttempts = 0;
+
+    @Column(name = "geocode_next_attempt_at")
+    private LocalDateTime geocodeNextAttemptAt;
+
     @Column(name = "is_default")
     @Builder.Default
     private Boolean isDefault = false;
@@ -82,4 +96,13 @@ public class Address {
     @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    public enum GeocodeStatus {
+        PENDING,
+        RESOLVED,
+        // Coordenadas de centróide (geocodificador offline), não do endereço exato
+        APPROXIMATE,
+        NOT_FOUND,
+        FAILED
+    }
 }
@@ -73,6 +73,18 @@ public class Payment {
     @Column(name = "sandbox_init_point")
     private String sandboxInitPoint;
 
+    @Column(name = "payer_email")
+    private String payerEmail;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "preference_status", nullable = false)
+    @Builder.Default
+    private PreferenceStatus preferenceStatus = PreferenceStatus.CREATING;
+
+    @Column(name = "preference_attempts", nullable = false)
+    @Builder.Default
+    private Integer preferenceAttempts = 0;
+
     @ManyToOne
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -95,4 +107,12 @@ public class Payment {
         CHARGED_BACK,
         REFUNDED
     }
+
+    public enum PreferenceStatus {
+        // Gravado, aguardando a resposta do MercadoPago
+        CREATING,
+        CREATED,
+        // Desistência: o pagamento vai junto para CANCELLED
+        FAILED
+    }
 }
@@ -1,18 +1,30 @@
 package com.demo.features.addresses.controller;
 
+import com.demo.features.addresses.service.AddressImportService;
+import com.demo.features.addresses.service.AddressProximityService;
 import com.demo.features.addresses.service.AddressService;
 
+import com.demo.common.web.FieldSelection;
+import com.demo.features.addresses.dto.AddressImportResponse;
+import com.demo.features.addresses.dto.AddressImportStatusResponse;
 import com.demo.features.addresses.dto.AddressResponse;
 import com.demo.features.addresses.dto.CalculateDistanceRequest;
 import com.demo.features.addresses.dto.CreateAddressRequest;
+import com.demo.features.addresses.dto.DistanceMatrixRequest;
+import com.demo.features.addresses.dto.DistanceMatrixResponse;
 import com.demo.features.addresses.dto.DistanceResponse;
+import com.demo.features.addresses.dto.NearbyAddressResponse;
 import com.demo.features.addresses.dto.UpdateAddressRequest;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -20,9 +32,13 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -32,6 +48,8 @@ import java.util.List;
 public class AddressController {
 
     private final AddressService addressService;
+    private final AddressProximityService addressProximityService;
+    private final AddressImportService addressImportService;
 
     @PostMapping
     public ResponseEntity<AddressResponse> create(
@@ -43,13 +61,39 @@ public class AddressController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
-    @GetMapping
-    public ResponseEntity<List<AddressResponse>> getUserAddresses(Authentication auth) {
+    // Grava as linhas e responde; as coordenadas chegam depois, acompanhadas por GET /import/{jobId}
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<AddressImportResponse> importAddresses(
+            Authentication auth,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body
+    ) throws IOException {
+        String userId = auth.getName();
+        AddressImportResponse response = addressImportService.importAddresses(userId, contentType, body);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<AddressImportStatusResponse> getImportStatus(
+            @PathVariable String jobId,
+            Authentication auth
+    ) {
         String userId = auth.getName();
-        List<AddressResponse> response = addressService.getUserAddresses(userId);
+        AddressImportStatusResponse response = addressImportService.getStatus(jobId, userId);
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping
+    public ResponseEntity<MappingJacksonValue> getUserAddresses(
+            Authentication auth,
+            @RequestParam(required = false) String fields
+    ) {
+        String userId = auth.getName();
+        FieldSelection selection = FieldSelection.parse(fields, AddressResponse.class);
+        List<AddressResponse> response = addressService.getUserAddresses(userId, selection);
+        return ResponseEntity.ok(selection.wrap(response));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<AddressResponse> getById(
             @PathVariable String id,
@@ -88,4 +132,36 @@ public class AddressController {
         DistanceResponse response = addressService.calculateDistance(request);
         return ResponseEntity.ok(response);
     }
+
+    @PostMapping("/distance-matrix")
+    public ResponseEntity<DistanceMatrixResponse> calculateDistanceMatrix(
+            @Valid @RequestBody DistanceMatrixRequest request
+    ) {
+        DistanceMatrixResponse response = addressService.calculateDistanceMatrix(request);
+        return ResponseEntity.ok(response);
+    }
+
+    // Busca sobre endereços de todos os usuários, para despacho de entregas
+    @GetMapping("/nearby")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<NearbyAddressResponse>> findNearby(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam double radiusKm,
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        List<NearbyAddressResponse> response = addressProximityService.findWithinRadius(latitude, longitude, radiusKm, limit);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/nearest")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<NearbyAddressResponse>> findNearest(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "10") int k
+    ) {
+        List<NearbyAddressResponse> response = addressProximityService.findNearest(latitude, longitude, k);
+        return ResponseEntity.ok(response);
+    }
 }
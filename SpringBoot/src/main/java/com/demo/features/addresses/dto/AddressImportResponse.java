@@ -0,0 +1,16 @@
+package com.demo.features.addresses.dto;
+
+import java.util.List;
+
+public record AddressImportResponse(
+        String jobId,
+        long totalRows,
+        long imported,
+        long duplicates,
+        long failed,
+        List<RowError> errors,
+        boolean errorsTruncated
+) {
+
+    public record RowError(long line, String message) {}
+}
@@ -0,0 +1,26 @@
+package com.demo.features.addresses.dto;
+
+import java.time.LocalDateTime;
+
+public record AddressImportStatusResponse(
+        String jobId,
+        Status status,
+        long totalRows,
+        long imported,
+        long duplicates,
+        long failed,
+        Geocoding geocoding,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt
+) {
+
+    public enum Status {
+        IMPORTING,
+        GEOCODING,
+        COMPLETED,
+        FAILED
+    }
+
+    // Endereços importados por status de geocodificação
+    public record Geocoding(long pending, long resolved, long approximate, long notFound, long failed) {}
+}
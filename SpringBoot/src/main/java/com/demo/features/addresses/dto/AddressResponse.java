@@ -1,8 +1,13 @@
 package com.demo.features.addresses.dto;
 
+import com.demo.common.web.FieldSelection;
+import com.demo.domain.Address;
+import com.fasterxml.jackson.annotation.JsonFilter;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+@JsonFilter(FieldSelection.FILTER)
 public record AddressResponse(
         String id,
         String street,
@@ -18,6 +23,7 @@ public record AddressResponse(
         String placeId,
         String formattedAddress,
         Boolean isDefault,
+        Address.GeocodeStatus geocodeStatus,
         String label,
         String userId,
         LocalDateTime createdAt,
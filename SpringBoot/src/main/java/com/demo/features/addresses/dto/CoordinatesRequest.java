@@ -0,0 +1,14 @@
+package com.demo.features.addresses.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+
+public record CoordinatesRequest(
+        @NotNull(message = "Latitude é obrigatória")
+        BigDecimal latitude,
+
+        @NotNull(message = "Longitude é obrigatória")
+        BigDecimal longitude
+) {
+}
@@ -0,0 +1,18 @@
+package com.demo.features.addresses.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record DistanceMatrixRequest(
+        @NotEmpty(message = "Origens são obrigatórias")
+        @Size(max = 25, message = "Máximo de 25 origens por requisição")
+        List<@Valid CoordinatesRequest> origins,
+
+        @NotEmpty(message = "Destinos são obrigatórios")
+        @Size(max = 25, message = "Máximo de 25 destinos por requisição")
+        List<@Valid CoordinatesRequest> destinations
+) {
+}
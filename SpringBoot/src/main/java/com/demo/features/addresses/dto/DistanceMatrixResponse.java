@@ -0,0 +1,11 @@
+package com.demo.features.addresses.dto;
+
+import java.util.List;
+
+/**
+ * rows.get(i).get(j) é a distância da origem i ao destino j, na ordem da requisição.
+ */
+public record DistanceMatrixResponse(
+        List<List<DistanceResponse>> rows
+) {
+}
@@ -0,0 +1,12 @@
+package com.demo.features.addresses.dto;
+
+import java.math.BigDecimal;
+
+public record NearbyAddressResponse(
+        String id,
+        String userId,
+        BigDecimal latitude,
+        BigDecimal longitude,
+        double distanceKm
+) {
+}
@@ -2,6 +2,9 @@ package com.demo.features.addresses.repository;
 
 import com.demo.domain.Address;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,5 +17,14 @@ public interface AddressRepository extends JpaRepository<Address, String> {
 
     Optional<Address> findByIdAndUserId(String id, String userId);
 
-    Optional<Address> findByUserIdAndIsDefaultTrue(String userId);
+    // Troca o padrão numa instrução só: liga :id e desliga o anterior; V10 confere ao fim da instrução
+    @Modifying
+    @Query(value = "UPDATE addresses SET is_default = (id = :id) " +
+                   "WHERE user_id = :userId AND (is_default OR id = :id)", nativeQuery = true)
+    int switchDefault(@Param("userId") String userId, @Param("id") String id);
+
+    @Modifying
+    @Query(value = "UPDATE addresses SET is_default = FALSE WHERE user_id = :userId AND is_default",
+           nativeQuery = true)
+    int clearDefault(@Param("userId") String userId);
 }
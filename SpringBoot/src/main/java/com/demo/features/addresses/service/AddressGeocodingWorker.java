@@ -0,0 +1,277 @@
+package com.demo.features.addresses.service;
+
+import com.demo.domain.Address.GeocodeStatus;
+import com.demo.infrastructure.geolocation.Geocoder;
+import com.demo.infrastructure.geolocation.GoogleMapsService.GeocodingResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Enriquece endereços PENDING com coordenadas fora da transação de escrita. Cada rodada reserva
+ * um lote no banco (FOR UPDATE SKIP LOCKED, então réplicas não disputam as mesmas linhas),
+ * geocodifica em paralelo num pool limitado e grava os resultados num único batch. Uma reserva
+ * vale por lease; se a instância morrer no meio, as linhas voltam a ficar elegíveis sozinhas.
+ */
+@Slf4j
+@Component
+class AddressGeocodingWorker {
+
+    private static final String CLAIM_SQL = """
+            UPDATE addresses a SET geocode_next_attempt_at = ?
+            FROM (
+                SELECT id FROM addresses
+                WHERE geocode_status = 'PENDING'
+                  AND (geocode_next_attempt_at IS NULL OR geocode_next_attempt_at <= ?)
+                ORDER BY geocode_next_attempt_at NULLS FIRST
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            ) due
+            WHERE a.id = due.id
+            RETURNING a.id, a.street, a.number, a.neighborhood, a.city, a.state, a.zip_code,
+                      a.geocode_attempts, a.updated_at
+            """;
+
+    // updated_at na condição: se o endereço mudou depois da reserva, o resultado já nasceu velho
+    private static final String RESOLVE_SQL = """
+            UPDATE addresses
+            SET latitude = ?, longitude = ?, place_id = ?, formatted_address = ?,
+                geocode_status = ?, geocode_attempts = geocode_attempts + 1, geocode_next_attempt_at = NULL
+            WHERE id = ? AND updated_at = ?
+            """;
+
+    private static final String RETRY_SQL = """
+            UPDATE addresses
+            SET geocode_status = ?, geocode_attempts = geocode_attempts + 1, geocode_next_attempt_at = ?
+            WHERE id = ? AND updated_at = ?
+            """;
+
+    private final Geocoder geocoder;
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+    private final Duration lease;
+    private final ThreadPoolExecutor lookups;
+    private final ExecutorService dispatcher;
+    private final AtomicBoolean requested = new AtomicBoolean();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final Counter resolved;
+    private final Counter approximate;
+    private final Counter notFound;
+    private final Counter retried;
+    private final Counter failed;
+
+    AddressGeocodingWorker(
+            Geocoder geocoder,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.addresses.geocoding.workers:4}") int workers,
+            @Value("${app.addresses.geocoding.batch-size:50}") int batchSize,
+            @Value("${app.addresses.geocoding.max-attempts:5}") int maxAttempts,
+            @Value("${app.addresses.geocoding.retry-backoff:30s}") Duration retryBackoff,
+            @Value("${app.addresses.geocoding.max-retry-backoff:1h}") Duration maxRetryBackoff,
+            @Value("${app.addresses.geocoding.lease:2m}") Duration lease
+    ) {
+        this.geocoder = geocoder;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+        this.lease = lease;
+
+        // A fila comporta um lote inteiro, então o despacho nunca é rejeitado
+        AtomicInteger threads = new AtomicInteger();
+        this.lookups = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchSize),
+                runnable -> daemon(runnable, "address-geocoding-" + threads.incrementAndGet()));
+        this.dispatcher = Executors.newSingleThreadExecutor(
+                runnable -> daemon(runnable, "address-geocoding-dispatcher"));
+
+        this.resolved = outcomeCounter(meterRegistry, "resolved");
+        this.approximate = outcomeCounter(meterRegistry, "approximate");
+        this.notFound = outcomeCounter(meterRegistry, "not_found");
+        this.retried = outcomeCounter(meterRegistry, "retry");
+        this.failed = outcomeCounter(meterRegistry, "failed");
+
+        log.info("Address geocoding worker initialized (workers: {}, batch-size: {}, max-attempts: {})",
+                workers, batchSize, maxAttempts);
+    }
+
+    /**
+     * Acorda o worker depois do commit da transação corrente, quando o endereço já é visível para
+     * a consulta de reserva.
+     */
+    void wakeAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wake();
+                }
+            });
+        } else {
+            wake();
+        }
+    }
+
+    // Cobre retentativas agendadas, escritas de outras réplicas e o que ficou pendente num restart
+    @Scheduled(fixedDelayString = "${app.addresses.geocoding.poll-interval-ms:1000}")
+    void wake() {
+        if (!geocoder.isAvailable()) {
+            return;
+        }
+        requested.set(true);
+        if (draining.compareAndSet(false, true)) {
+            dispatcher.execute(this::drain);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+        lookups.shutdownNow();
+    }
+
+    private void drain() {
+        try {
+            while (requested.getAndSet(false)) {
+                // Lote cheio indica fila acumulada: segue direto para o próximo
+                int claimed;
+                do {
+                    claimed = geocodeBatch();
+                } while (claimed == batchSize);
+            }
+        } catch (Exception e) {
+            log.error("Address geocoding batch failed", e);
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    private int geocodeBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Pending> batch = jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> new Pending(
+                rs.getString("id"),
+                String.format("%s, %s - %s, %s - %s, %s",
+                        rs.getString("street"),
+                        rs.getString("number"),
+                        rs.getString("neighborhood"),
+                        rs.getString("city"),
+                        rs.getString("state"),
+                        rs.getString("zip_code")),
+                rs.getInt("geocode_attempts"),
+                rs.getTimestamp("updated_at")
+        ), Timestamp.valueOf(now.plus(lease)), Timestamp.valueOf(now), batchSize);
+
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<Outcome>> futures = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            futures.add(CompletableFuture.supplyAsync(() -> geocode(pending), lookups));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        List<Object[]> resolvedRows = new ArrayList<>();
+        List<Object[]> retryRows = new ArrayList<>();
+        for (CompletableFuture<Outcome> future : futures) {
+            Outcome outcome = future.join();
+            Pending pending = outcome.pending();
+            if (outcome.error() == null) {
+                GeocodingResult result = outcome.result();
+                resolvedRows.add(new Object[]{
+                        result != null ? result.latitude() : null,
+                        result != null ? result.longitude() : null,
+                        result != null ? result.placeId() : null,
+                        result != null ? result.formattedAddress() : null,
+                        status(result).name(),
+                        pending.id(),
+                        pending.updatedAt()
+                });
+                (result == null ? notFound : result.approximate() ? approximate : resolved).increment();
+            } else if (pending.attempts() + 1 >= maxAttempts) {
+                retryRows.add(new Object[]{GeocodeStatus.FAILED.name(), null, pending.id(), pending.updatedAt()});
+                failed.increment();
+                log.warn("Giving up geocoding address {} after {} attempts: {}",
+                        pending.id(), pending.attempts() + 1, outcome.error().getMessage());
+            } else {
+                Timestamp nextAttempt = Timestamp.valueOf(LocalDateTime.now().plus(backoff(pending.attempts())));
+                retryRows.add(new Object[]{GeocodeStatus.PENDING.name(), nextAttempt, pending.id(), pending.updatedAt()});
+                retried.increment();
+            }
+        }
+
+        if (!resolvedRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(RESOLVE_SQL, resolvedRows);
+        }
+        if (!retryRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(RETRY_SQL, retryRows);
+        }
+
+        log.debug("Geocoded batch of {} addresses ({} retrying or failed)", batch.size(), retryRows.size());
+        return batch.size();
+    }
+
+    private Outcome geocode(Pending pending) {
+        try {
+            return new Outcome(pending, geocoder.geocode(pending.fullAddress()), null);
+        } catch (RuntimeException e) {
+            return new Outcome(pending, null, e);
+        }
+    }
+
+    private static GeocodeStatus status(GeocodingResult result) {
+        if (result == null) {
+            return GeocodeStatus.NOT_FOUND;
+        }
+        return result.approximate() ? GeocodeStatus.APPROXIMATE : GeocodeStatus.RESOLVED;
+    }
+
+    // Exponencial a partir de retry-backoff, limitado a max-retry-backoff
+    private Duration backoff(int attempts) {
+        Duration delay = retryBackoff.multipliedBy(1L << Math.min(attempts, 20));
+        return delay.compareTo(maxRetryBackoff) < 0 ? delay : maxRetryBackoff;
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("addresses.geocoding")
+                .description("Resultados do geocoding assíncrono de endereços")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private record Pending(String id, String fullAddress, int attempts, Timestamp updatedAt) {}
+
+    private record Outcome(Pending pending, GeocodingResult result, RuntimeException error) {}
+}
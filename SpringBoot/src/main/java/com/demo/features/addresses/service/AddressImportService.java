@@ -0,0 +1,421 @@
+package com.demo.features.addresses.service;
+
+import com.demo.common.exception.BusinessException;
+import com.demo.common.exception.ResourceNotFoundException;
+import com.demo.common.web.CsvLine;
+import com.demo.domain.Address.GeocodeStatus;
+import com.demo.features.addresses.dto.AddressImportResponse;
+import com.demo.features.addresses.dto.AddressImportResponse.RowError;
+import com.demo.features.addresses.dto.AddressImportStatusResponse;
+import com.demo.features.addresses.dto.CreateAddressRequest;
+import com.demo.features.users.repository.UserRepository;
+import com.demo.infrastructure.geolocation.GeocodeCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Importação em massa de endereços, no mesmo formato da importação de produtos: CSV ou NDJSON
+ * lido linha a linha e gravado em lotes JDBC, cada lote na sua transação. Linhas com o mesmo
+ * endereço normalizado (GeocodeCache.normalize, mais o complemento) são gravadas uma vez só.
+ *
+ * Os endereços entram como PENDING e o AddressGeocodingWorker os geocodifica em paralelo, com o
+ * limite de QPS do GoogleMapsService; o progresso fica em address_import_jobs e é consultado por
+ * jobId. A memória fica limitada a um lote, ao relatório de erros e a um hash de 64 bits por
+ * endereço único.
+ */
+@Slf4j
+@Service
+public class AddressImportService {
+
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private static final String INSERT_SQL = "INSERT INTO addresses " +
+            "(id, street, number, complement, neighborhood, city, state, zip_code, country, label, is_default, " +
+            "geocode_status, geocode_attempts, geocode_next_attempt_at, import_job_id, user_id, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, FALSE, 'PENDING', 0, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_JOB_SQL = "UPDATE address_import_jobs " +
+            "SET status = ?, total_rows = ?, imported = ?, duplicates = ?, failed = ?, updated_at = ? WHERE id = ?";
+
+    private static final List<String> CSV_COLUMNS =
+            List.of("street", "number", "complement", "neighborhood", "city", "state", "zipCode", "country", "label");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+    private final AddressGeocodingWorker geocodingWorker;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int batchSize;
+    private final int maxErrors;
+
+    public AddressImportService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            UserRepository userRepository,
+            AddressGeocodingWorker geocodingWorker,
+            ObjectMapper objectMapper,
+            Validator validator,
+            @Value("${app.addresses.import.batch-size:1000}") int batchSize,
+            @Value("${app.addresses.import.max-errors:1000}") int maxErrors
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userRepository = userRepository;
+        this.geocodingWorker = geocodingWorker;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    public AddressImportResponse importAddresses(String userId, MediaType contentType, InputStream input) throws IOException {
+        boolean csv = TEXT_CSV.isCompatibleWith(contentType);
+        if (!csv && !APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            throw new BusinessException("Formato não suportado: use text/csv ou application/x-ndjson");
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("Usuário não encontrado");
+        }
+
+        String jobId = UUID.randomUUID().toString();
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO address_import_jobs (id, user_id, status, created_at, updated_at) " +
+                "VALUES (?, ?, 'IMPORTING', ?, ?)", jobId, userId, createdAt, createdAt);
+
+        ImportReport report = new ImportReport(maxErrors);
+        List<Row> batch = new ArrayList<>(batchSize);
+        boolean completed = false;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            Map<String, Integer> header = csv ? readCsvHeader(reader) : null;
+            long nextLine = csv ? 2 : 1;
+
+            String text;
+            while ((text = csv ? CsvLine.readRecord(reader, nextLine) : reader.readLine()) != null) {
+                // Registros CSV com quebras de linha entre aspas ocupam mais de uma linha física
+                long line = nextLine;
+                nextLine += 1 + text.chars().filter(c -> c == '\n').count();
+                if (text.isBlank()) {
+                    continue;
+                }
+                report.totalRows++;
+
+                try {
+                    CreateAddressRequest request = csv ? parseCsv(text, header) : parseJson(text);
+                    String violations = validate(request);
+                    if (violations != null) {
+                        report.fail(line, violations);
+                        continue;
+                    }
+                    if (!report.seen.add(fingerprint(request))) {
+                        report.duplicates++;
+                        continue;
+                    }
+                    batch.add(new Row(line, request));
+                } catch (IllegalArgumentException e) {
+                    report.fail(line, e.getMessage());
+                    continue;
+                }
+
+                if (batch.size() >= batchSize) {
+                    flush(jobId, userId, batch, report);
+                }
+            }
+            flush(jobId, userId, batch, report);
+            completed = true;
+        } finally {
+            // Upload interrompido: o que já foi gravado fica, e o job registra onde parou
+            updateJob(jobId, completed ? "IMPORTED" : "FAILED", report, report.imported);
+        }
+
+        log.info("Address import {} by user {}: {} rows, {} imported, {} duplicates, {} failed",
+                jobId, userId, report.totalRows, report.imported, report.duplicates, report.failed);
+
+        return new AddressImportResponse(
+                jobId,
+                report.totalRows,
+                report.imported,
+                report.duplicates,
+                report.failed,
+                report.errors,
+                report.failed > report.errors.size()
+        );
+    }
+
+    public AddressImportStatusResponse getStatus(String jobId, String userId) {
+        List<Job> jobs = jdbcTemplate.query(
+                "SELECT status, total_rows, imported, duplicates, failed, created_at, updated_at " +
+                        "FROM address_import_jobs WHERE id = ? AND user_id = ?",
+                (rs, rowNum) -> new Job(
+                        rs.getString("status"),
+                        rs.getLong("total_rows"),
+                        rs.getLong("imported"),
+                        rs.getLong("duplicates"),
+                        rs.getLong("failed"),
+                        rs.getTimestamp("created_at").toLocalDateTime(),
+                        rs.getTimestamp("updated_at").toLocalDateTime()
+                ),
+                jobId, userId);
+
+        if (jobs.isEmpty()) {
+            throw new ResourceNotFoundException("Importação não encontrada");
+        }
+        Job job = jobs.get(0);
+
+        Map<GeocodeStatus, Long> geocoding = countGeocoding(jobId);
+        long pending = geocoding.getOrDefault(GeocodeStatus.PENDING, 0L);
+        return new AddressImportStatusResponse(
+                jobId,
+                status(job.status(), pending),
+                job.totalRows(),
+                job.imported(),
+                job.duplicates(),
+                job.failed(),
+                new AddressImportStatusResponse.Geocoding(
+                        pending,
+                        geocoding.getOrDefault(GeocodeStatus.RESOLVED, 0L),
+                        geocoding.getOrDefault(GeocodeStatus.APPROXIMATE, 0L),
+                        geocoding.getOrDefault(GeocodeStatus.NOT_FOUND, 0L),
+                        geocoding.getOrDefault(GeocodeStatus.FAILED, 0L)
+                ),
+                job.createdAt(),
+                job.updatedAt()
+        );
+    }
+
+    private Map<GeocodeStatus, Long> countGeocoding(String jobId) {
+        Map<GeocodeStatus, Long> counts = new EnumMap<>(GeocodeStatus.class);
+        jdbcTemplate.query(
+                "SELECT geocode_status, COUNT(*) AS total FROM addresses WHERE import_job_id = ? GROUP BY geocode_status",
+                (RowCallbackHandler) rs -> counts.put(
+                        GeocodeStatus.valueOf(rs.getString("geocode_status")), rs.getLong("total")),
+                jobId);
+        return counts;
+    }
+
+    private AddressImportStatusResponse.Status status(String jobStatus, long pending) {
+        return switch (jobStatus) {
+            case "IMPORTING" -> AddressImportStatusResponse.Status.IMPORTING;
+            case "FAILED" -> AddressImportStatusResponse.Status.FAILED;
+            default -> pending > 0
+                    ? AddressImportStatusResponse.Status.GEOCODING
+                    : AddressImportStatusResponse.Status.COMPLETED;
+        };
+    }
+
+    private void flush(String jobId, String userId, List<Row> batch, ImportReport report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // Próxima tentativa = agora: na fila do worker (NULLS FIRST), endereços criados pela API
+        // continuam passando na frente de uma importação grande
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> params = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            CreateAddressRequest request = row.request();
+            params.add(new Object[]{
+                    UUID.randomUUID().toString(),
+                    request.street(),
+                    request.number(),
+                    request.complement(),
+                    request.neighborhood(),
+                    request.city(),
+                    request.state(),
+                    request.zipCode(),
+                    request.country() != null ? request.country() : "Brasil",
+                    request.label(),
+                    now,
+                    jobId,
+                    userId,
+                    now,
+                    now
+            });
+        }
+
+        long imported = report.imported + batch.size();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_SQL, params);
+                updateJob(jobId, "IMPORTING", report, imported);
+            });
+            report.imported = imported;
+            geocodingWorker.wakeAfterCommit();
+        } catch (DataAccessException e) {
+            // Uma linha que o banco recusa (tamanho de coluna) derruba o lote inteiro: regrava linha
+            // a linha, cada uma na sua transação, para reportar só as culpadas
+            log.warn("Address import batch failed (job {}, lines {}-{}), retrying row by row: {}",
+                    jobId, batch.get(0).line(), batch.get(batch.size() - 1).line(), databaseMessage(e));
+            for (int i = 0; i < batch.size(); i++) {
+                Object[] row = params.get(i);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(INSERT_SQL, row));
+                    report.imported++;
+                } catch (DataAccessException rowError) {
+                    report.fail(batch.get(i).line(), "Falha ao gravar a linha: " + databaseMessage(rowError));
+                }
+            }
+            updateJob(jobId, "IMPORTING", report, report.imported);
+            geocodingWorker.wakeAfterCommit();
+        }
+        batch.clear();
+    }
+
+    // Só a primeira linha da mensagem do banco: o Detail do Postgres repete a linha inteira
+    private static String databaseMessage(DataAccessException e) {
+        String message = String.valueOf(e.getMostSpecificCause().getMessage());
+        int newline = message.indexOf('\n');
+        return (newline >= 0 ? message.substring(0, newline) : message).replaceFirst("^ERROR: ", "");
+    }
+
+    private void updateJob(String jobId, String status, ImportReport report, long imported) {
+        jdbcTemplate.update(UPDATE_JOB_SQL, status, report.totalRows, imported, report.duplicates,
+                report.failed, Timestamp.valueOf(LocalDateTime.now()), jobId);
+    }
+
+    private Map<String, Integer> readCsvHeader(BufferedReader reader) throws IOException {
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            return Map.of();
+        }
+
+        List<String> columns = CsvLine.split(headerLine.replace("\uFEFF", ""));
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            header.put(columns.get(i).trim(), i);
+        }
+        if (!header.keySet().containsAll(List.of("street", "number", "neighborhood", "city", "state", "zipCode"))) {
+            throw new BusinessException("Cabeçalho CSV deve conter as colunas " + CSV_COLUMNS);
+        }
+        return header;
+    }
+
+    private CreateAddressRequest parseCsv(String line, Map<String, Integer> header) {
+        List<String> values = CsvLine.split(line);
+        return new CreateAddressRequest(
+                column(values, header, "street"),
+                column(values, header, "number"),
+                column(values, header, "complement"),
+                column(values, header, "neighborhood"),
+                column(values, header, "city"),
+                column(values, header, "state"),
+                column(values, header, "zipCode"),
+                column(values, header, "country"),
+                column(values, header, "label"),
+                null
+        );
+    }
+
+    private CreateAddressRequest parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, CreateAddressRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("JSON inválido");
+        }
+    }
+
+    private String validate(CreateAddressRequest request) {
+        Set<ConstraintViolation<CreateAddressRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private String column(List<String> values, Map<String, Integer> header, String name) {
+        Integer index = header.get(name);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // 64 bits do SHA-256 da chave normalizada: colisão improvável mesmo com milhões de linhas
+    private long fingerprint(CreateAddressRequest request) {
+        String key = GeocodeCache.normalize(String.format("%s, %s - %s, %s - %s, %s | %s",
+                request.street(),
+                request.number(),
+                request.neighborhood(),
+                request.city(),
+                request.state(),
+                request.zipCode(),
+                request.complement() != null ? request.complement() : ""));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Row(long line, CreateAddressRequest request) {}
+
+    private record Job(
+            String status,
+            long totalRows,
+            long imported,
+            long duplicates,
+            long failed,
+            LocalDateTime createdAt,
+            LocalDateTime updatedAt
+    ) {}
+
+    private static final class ImportReport {
+
+        private final int maxErrors;
+        private final List<RowError> errors = new ArrayList<>();
+        private final Set<Long> seen = new HashSet<>();
+        private long totalRows;
+        private long imported;
+        private long duplicates;
+        private long failed;
+
+        private ImportReport(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        private void fail(long line, String message) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new RowError(line, message));
+            }
+        }
+    }
+}
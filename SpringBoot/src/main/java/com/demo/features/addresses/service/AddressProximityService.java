@@ -0,0 +1,172 @@
+package com.demo.features.addresses.service;
+
+import com.demo.common.exception.BusinessException;
+import com.demo.features.addresses.dto.NearbyAddressResponse;
+import com.demo.infrastructure.geolocation.Geohash;
+import com.demo.infrastructure.geolocation.Haversine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Buscas por proximidade sobre addresses.geohash (V8): os intervalos de geohash que cobrem o
+ * círculo filtram os candidatos pelo índice, e a distância em linha reta descarta os que caem
+ * nos cantos das células.
+ */
+@Slf4j
+@Service
+public class AddressProximityService {
+
+    private static final double KM_PER_DEGREE = Math.PI * Haversine.EARTH_RADIUS_KM / 180;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxCells;
+    private final double initialRadiusKm;
+    private final double maxRadiusKm;
+    private final int maxResults;
+
+    public AddressProximityService(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.addresses.nearby.max-cells:32}") int maxCells,
+            @Value("${app.addresses.nearby.initial-radius-km:1}") double initialRadiusKm,
+            @Value("${app.addresses.nearby.max-radius-km:50}") double maxRadiusKm,
+            @Value("${app.addresses.nearby.max-results:500}") int maxResults
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxCells = maxCells;
+        this.initialRadiusKm = initialRadiusKm;
+        this.maxRadiusKm = maxRadiusKm;
+        this.maxResults = maxResults;
+    }
+
+    public List<NearbyAddressResponse> findWithinRadius(double latitude, double longitude, double radiusKm, int limit) {
+        validatePoint(latitude, longitude);
+        validateLimit(limit);
+        if (radiusKm <= 0 || radiusKm > maxRadiusKm) {
+            throw new BusinessException("Raio deve estar entre 0 e " + maxRadiusKm + " km");
+        }
+
+        List<NearbyAddressResponse> found = withinRadius(latitude, longitude, radiusKm);
+        return found.size() > limit ? found.subList(0, limit) : found;
+    }
+
+    /**
+     * Os k endereços mais próximos: dobra o raio até o círculo conter k endereços. Como tudo que
+     * está dentro do raio é exato, os k primeiros por distância são os k mais próximos de fato.
+     */
+    public List<NearbyAddressResponse> findNearest(double latitude, double longitude, int k) {
+        validatePoint(latitude, longitude);
+        validateLimit(k);
+
+        double radiusKm = Math.min(initialRadiusKm, maxRadiusKm);
+        while (true) {
+            List<NearbyAddressResponse> found = withinRadius(latitude, longitude, radiusKm);
+            if (found.size() >= k || radiusKm >= maxRadiusKm) {
+                return found.size() > k ? found.subList(0, k) : found;
+            }
+            radiusKm = Math.min(radiusKm * 2, maxRadiusKm);
+        }
+    }
+
+    private List<NearbyAddressResponse> withinRadius(double latitude, double longitude, double radiusKm) {
+        List<Geohash.Range> ranges = Geohash.cover(latitude, longitude, radiusKm, maxCells);
+
+        // Caixa envolvente nas colunas do INCLUDE: corta os cantos das células ainda no índice
+        double deltaLat = radiusKm / KM_PER_DEGREE;
+        double cosLat = Math.cos(Math.toRadians(Math.min(90, Math.abs(latitude) + deltaLat)));
+        double deltaLng = cosLat > 0 ? radiusKm / (KM_PER_DEGREE * cosLat) : 180;
+        boolean filterLongitude = longitude - deltaLng >= -180 && longitude + deltaLng <= 180;
+
+        // UNION ALL em vez de OR: cada intervalo vira um index-only scan; o OR viraria bitmap + heap
+        StringBuilder sql = new StringBuilder();
+        List<Object> args = new ArrayList<>();
+        for (Geohash.Range range : ranges) {
+            sql.append(sql.isEmpty() ? "" : " UNION ALL ")
+                    .append("SELECT id, user_id, latitude, longitude FROM addresses ")
+                    .append("WHERE geohash IS NOT NULL AND geohash >= ?");
+            args.add(range.from());
+            if (range.to() != null) {
+                sql.append(" AND geohash < ?");
+                args.add(range.to());
+            }
+            sql.append(" AND latitude BETWEEN ? AND ?");
+            args.add(latitude - deltaLat);
+            args.add(latitude + deltaLat);
+            if (filterLongitude) {
+                sql.append(" AND longitude BETWEEN ? AND ?");
+                args.add(longitude - deltaLng);
+                args.add(longitude + deltaLng);
+            }
+        }
+
+        Candidates candidates = new Candidates();
+        jdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> candidates.add(
+                rs.getString("id"),
+                rs.getString("user_id"),
+                rs.getDouble("latitude"),
+                rs.getDouble("longitude")
+        ), args.toArray());
+
+        // Distâncias calculadas num único passe sobre os arrays, com o trig da origem feito uma vez
+        double[] distancesKm = new double[candidates.size];
+        Haversine.distancesKm(latitude, longitude, candidates.latitudes, candidates.longitudes,
+                candidates.size, distancesKm);
+
+        List<NearbyAddressResponse> found = new ArrayList<>();
+        for (int i = 0; i < candidates.size; i++) {
+            if (distancesKm[i] <= radiusKm) {
+                found.add(new NearbyAddressResponse(
+                        candidates.ids.get(i),
+                        candidates.userIds.get(i),
+                        BigDecimal.valueOf(candidates.latitudes[i]),
+                        BigDecimal.valueOf(candidates.longitudes[i]),
+                        distancesKm[i]
+                ));
+            }
+        }
+
+        found.sort(Comparator.comparingDouble(NearbyAddressResponse::distanceKm));
+        return found;
+    }
+
+    private void validatePoint(double latitude, double longitude) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new BusinessException("Coordenadas inválidas");
+        }
+    }
+
+    private void validateLimit(int limit) {
+        if (limit < 1 || limit > maxResults) {
+            throw new BusinessException("Limite deve estar entre 1 e " + maxResults);
+        }
+    }
+
+    // Coordenadas dos candidatos em arrays paralelos de double, no formato de Haversine.distancesKm
+    private static final class Candidates {
+        private final List<String> ids = new ArrayList<>();
+        private final List<String> userIds = new ArrayList<>();
+        private double[] latitudes = new double[256];
+        private double[] longitudes = new double[256];
+        private int size;
+
+        void add(String id, String userId, double latitude, double longitude) {
+            if (size == latitudes.length) {
+                latitudes = Arrays.copyOf(latitudes, size * 2);
+                longitudes = Arrays.copyOf(longitudes, size * 2);
+            }
+            ids.add(id);
+            userIds.add(userId);
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            size++;
+        }
+    }
+}
@@ -2,49 +2,86 @@ package com.demo.features.addresses.service;
 
 import com.demo.features.addresses.repository.AddressRepository;
 
+import com.demo.common.exception.BusinessException;
 import com.demo.common.exception.ResourceNotFoundException;
+import com.demo.common.persistence.SparseQuery;
+import com.demo.common.web.FieldSelection;
 import com.demo.features.addresses.dto.AddressResponse;
 import com.demo.features.addresses.dto.CalculateDistanceRequest;
 import com.demo.features.addresses.dto.CreateAddressRequest;
+import com.demo.features.addresses.dto.CoordinatesRequest;
+import com.demo.features.addresses.dto.DistanceMatrixRequest;
+import com.demo.features.addresses.dto.DistanceMatrixResponse;
 import com.demo.features.addresses.dto.DistanceResponse;
 import com.demo.features.addresses.dto.UpdateAddressRequest;
 import com.demo.domain.User;
 import com.demo.domain.Address;
+import com.demo.domain.Address.GeocodeStatus;
 import com.demo.features.users.repository.UserRepository;
+import com.demo.infrastructure.geolocation.DistanceCache;
 import com.demo.infrastructure.geolocation.GoogleMapsService;
-import com.demo.infrastructure.geolocation.GoogleMapsService.GeocodingResult;
+import com.demo.infrastructure.geolocation.GoogleMapsService.Coordinates;
 import com.demo.infrastructure.geolocation.GoogleMapsService.DistanceResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class AddressService {
 
+    // Campos de AddressResponse lidos direto de colunas
+    private static final Map<String, String> COLUMNS = Map.ofEntries(
+            Map.entry("id", "id"),
+            Map.entry("street", "street"),
+            Map.entry("number", "number"),
+            Map.entry("complement", "complement"),
+            Map.entry("neighborhood", "neighborhood"),
+            Map.entry("city", "city"),
+            Map.entry("state", "state"),
+            Map.entry("zipCode", "zipCode"),
+            Map.entry("country", "country"),
+            Map.entry("latitude", "latitude"),
+            Map.entry("longitude", "longitude"),
+            Map.entry("placeId", "placeId"),
+            Map.entry("formattedAddress", "formattedAddress"),
+            Map.entry("label", "label"),
+            Map.entry("isDefault", "isDefault"),
+            Map.entry("geocodeStatus", "geocodeStatus"),
+            Map.entry("userId", "user.id"),
+            Map.entry("createdAt", "createdAt"),
+            Map.entry("updatedAt", "updatedAt")
+    );
+
     private final AddressRepository addressRepository;
     private final UserRepository userRepository;
     private final GoogleMapsService googleMapsService;
+    private final DistanceCache distanceCache;
+    private final AddressGeocodingWorker geocodingWorker;
+    private final SparseQuery sparseQuery;
 
     @Transactional
     public AddressResponse create(String userId, CreateAddressRequest request) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("UsuÃƒÆ’Ã‚Â¯Ãƒâ€šÃ‚Â¿Ãƒâ€šÃ‚Â½rio nÃƒÆ’Ã‚Â¯Ãƒâ€šÃ‚Â¿Ãƒâ€šÃ‚Â½o encontrado"));
 
-        String fullAddress = buildFullAddress(request);
-        GeocodingResult geocoding = googleMapsService.geocode(fullAddress);
-
-        if (Boolean.TRUE.equals(request.isDefault())) {
-            addressRepository.findByUserIdAndIsDefaultTrue(userId)
-                    .ifPresent(defaultAddress -> {
-                        defaultAddress.setIsDefault(false);
-                        addressRepository.save(defaultAddress);
-                    });
+        // Sem switchDefault aqui: a linha nova ainda não existe para ser ligada, e inserir como não
+        // padrão para trocar depois custaria um UPDATE a mais. Desligar e inserir já ligado são 2
+        // instruções, como a troca e o UPDATE da entidade em update
+        boolean makeDefault = Boolean.TRUE.equals(request.isDefault());
+        if (makeDefault) {
+            switchingDefault(() -> addressRepository.clearDefault(userId));
         }
 
         Address address = Address.builder()
@@ -57,25 +94,37 @@ public class AddressService {
                 .zipCode(request.zipCode())
                 .country(request.country() != null ? request.country() : "Brasil")
                 .label(request.label())
-                .isDefault(request.isDefault() != null ? request.isDefault() : false)
+                .isDefault(makeDefault)
                 .user(user)
                 .build();
 
-        if (geocoding != null) {
-            address.setLatitude(geocoding.latitude());
-            address.setLongitude(geocoding.longitude());
-            address.setPlaceId(geocoding.placeId());
-            address.setFormattedAddress(geocoding.formattedAddress());
+        // Coordenadas chegam depois, pelo worker: a transação não espera a API do Google
+        if (makeDefault) {
+            // Flush já: um padrão criado em paralelo estoura aqui, e não no commit
+            Address newDefault = address;
+            address = switchingDefault(() -> addressRepository.saveAndFlush(newDefault));
+        } else {
+            address = addressRepository.save(address);
         }
-
-        address = addressRepository.save(address);
+        geocodingWorker.wakeAfterCommit();
 
         log.info("Address created: {} for user {}", address.getId(), userId);
 
         return mapToResponse(address);
     }
 
-    public List<AddressResponse> getUserAddresses(String userId) {
+    public List<AddressResponse> getUserAddresses(String userId, FieldSelection fields) {
+        if (!fields.isAll()) {
+            return sparseQuery.findAll(
+                    Address.class,
+                    COLUMNS,
+                    fields,
+                    (root, query, cb) -> cb.equal(root.get("user").get("id"), userId),
+                    Sort.unsorted(),
+                    this::mapToResponse
+            );
+        }
+
         return addressRepository.findByUserId(userId)
                 .stream()
                 .map(this::mapToResponse)
@@ -94,6 +143,17 @@ public class AddressService {
         Address address = addressRepository.findByIdAndUserId(id, userId)
                 .orElseThrow(() -> new ResourceNotFoundException("EndereÃƒÆ’Ã‚Â¯Ãƒâ€šÃ‚Â¿Ãƒâ€šÃ‚Â½o nÃƒÆ’Ã‚Â¯Ãƒâ€šÃ‚Â¿Ãƒâ€šÃ‚Â½o encontrado"));
 
+        // Antes de qualquer alteração na entidade, para o flush da query nativa não gravar nada;
+        // o is_default em memória só muda depois, e sai no mesmo UPDATE dos demais campos
+        if (Boolean.TRUE.equals(request.isDefault())) {
+            if (!Boolean.TRUE.equals(address.getIsDefault())) {
+                switchingDefault(() -> addressRepository.switchDefault(userId, id));
+            }
+            address.setIsDefault(true);
+        } else if (request.isDefault() != null) {
+            address.setIsDefault(false);
+        }
+
         boolean addressChanged = false;
 
         if (request.street() != null) {
@@ -130,32 +190,29 @@ public class AddressService {
             address.setLabel(request.label());
         }
 
-        if (Boolean.TRUE.equals(request.isDefault())) {
-            addressRepository.findByUserIdAndIsDefaultTrue(userId)
-                    .ifPresent(defaultAddress -> {
-                        if (!defaultAddress.getId().equals(id)) {
-                            defaultAddress.setIsDefault(false);
-                            addressRepository.save(defaultAddress);
-                        }
-                    });
-            address.setIsDefault(true);
-        } else if (request.isDefault() != null) {
-            address.setIsDefault(false);
+        if (addressChanged) {
+            // Coordenadas antigas não valem para o novo endereço; o worker preenche de novo
+            address.setLatitude(null);
+            address.setLongitude(null);
+            address.setPlaceId(null);
+            address.setFormattedAddress(null);
+            address.setGeocodeStatus(GeocodeStatus.PENDING);
+            address.setGeocodeAttempts(0);
+            address.setGeocodeNextAttemptAt(null);
         }
 
-        if (addressChanged) {
-            String fullAddress = buildFullAddressFromEntity(address);
-            GeocodingResult geocoding = googleMapsService.geocode(fullAddress);
-
-            if (geocoding != null) {
-                address.setLatitude(geocoding.latitude());
-                address.setLongitude(geocoding.longitude());
-                address.setPlaceId(geocoding.placeId());
-                address.setFormattedAddress(geocoding.formattedAddress());
-            }
+        if (Boolean.TRUE.equals(address.getIsDefault())) {
+            // Flush já: se outra troca commitou depois da leitura, o is_default em memória está velho
+            // e V10 recusa o UPDATE aqui, e não no commit, fora do tratamento de switchingDefault
+            Address updated = address;
+            address = switchingDefault(() -> addressRepository.saveAndFlush(updated));
+        } else {
+            address = addressRepository.save(address);
         }
 
-        address = addressRepository.save(address);
+        if (addressChanged) {
+            geocodingWorker.wakeAfterCommit();
+        }
 
         log.info("Address updated: {}", address.getId());
 
@@ -173,7 +230,7 @@ public class AddressService {
     }
 
     public DistanceResponse calculateDistance(CalculateDistanceRequest request) {
-        DistanceResult result = googleMapsService.calculateDistance(
+        DistanceResult result = distanceCache.calculateDistance(
                 request.originLatitude().doubleValue(),
                 request.originLongitude().doubleValue(),
                 request.destinationLatitude().doubleValue(),
@@ -196,24 +253,46 @@ public class AddressService {
         );
     }
 
-    private String buildFullAddress(CreateAddressRequest request) {
-        return String.format("%s, %s - %s, %s - %s, %s",
-                request.street(),
-                request.number(),
-                request.neighborhood(),
-                request.city(),
-                request.state(),
-                request.zipCode());
+    public DistanceMatrixResponse calculateDistanceMatrix(DistanceMatrixRequest request) {
+        List<Coordinates> origins = request.origins().stream().map(this::toCoordinates).toList();
+        List<Coordinates> destinations = request.destinations().stream().map(this::toCoordinates).toList();
+
+        DistanceResult[][] results = googleMapsService.calculateDistanceMatrix(origins, destinations);
+
+        List<List<DistanceResponse>> rows = new ArrayList<>(origins.size());
+        for (int i = 0; i < origins.size(); i++) {
+            List<DistanceResponse> row = new ArrayList<>(destinations.size());
+            for (int j = 0; j < destinations.size(); j++) {
+                DistanceResult result = results[i][j];
+                row.add(new DistanceResponse(
+                        result.distanceKm(),
+                        result.distanceText(),
+                        result.durationSeconds(),
+                        result.durationText(),
+                        googleMapsService.calculateStraightLineDistance(
+                                origins.get(i).latitude(),
+                                origins.get(i).longitude(),
+                                destinations.get(j).latitude(),
+                                destinations.get(j).longitude())
+                ));
+            }
+            rows.add(row);
+        }
+        return new DistanceMatrixResponse(rows);
     }
 
-    private String buildFullAddressFromEntity(Address address) {
-        return String.format("%s, %s - %s, %s - %s, %s",
-                address.getStreet(),
-                address.getNumber(),
-                address.getNeighborhood(),
-                address.getCity(),
-                address.getState(),
-                address.getZipCode());
+    // Duas trocas de padrão simultâneas para o mesmo usuário: a segunda esbarra em V10, ou o
+    // Postgres aborta uma delas por deadlock (cada uma espera a linha que a outra acabou de ligar)
+    private <T> T switchingDefault(Supplier<T> statement) {
+        try {
+            return statement.get();
+        } catch (DataIntegrityViolationException | PessimisticLockingFailureException e) {
+            throw new BusinessException("Outro endereço foi definido como padrão ao mesmo tempo, tente novamente");
+        }
+    }
+
+    private Coordinates toCoordinates(CoordinatesRequest request) {
+        return new Coordinates(request.latitude().doubleValue(), request.longitude().doubleValue());
     }
 
     private AddressResponse mapToResponse(Address address) {
@@ -229,13 +308,42 @@ public class AddressService {
                 address.getCountry() != null ? address.getCountry() : "Brasil",
                 address.getLatitude() != null ? BigDecimal.valueOf(address.getLatitude()) : null,
                 address.getLongitude() != null ? BigDecimal.valueOf(address.getLongitude()) : null,
-                null, // placeId nÃƒÆ’Ã†â€™Ãƒâ€šÃ‚Â£o existe no domain
-                null, // formattedAddress nÃƒÆ’Ã†â€™Ãƒâ€šÃ‚Â£o existe no domain
+                address.getPlaceId(),
+                address.getFormattedAddress(),
                 address.getIsDefault(),
-                null, // label nÃƒÆ’Ã†â€™Ãƒâ€šÃ‚Â£o existe no domain
+                address.getGeocodeStatus(),
+                address.getLabel(),
                 address.getUser().getId(),
                 address.getCreatedAt(),
                 address.getUpdatedAt()
         );
     }
+
+    private AddressResponse mapToResponse(SparseQuery.Row row) {
+        String country = row.get("country");
+        Double latitude = row.get("latitude");
+        Double longitude = row.get("longitude");
+
+        return new AddressResponse(
+                row.get("id"),
+                row.get("street"),
+                row.get("number"),
+                row.get("complement"),
+                row.get("neighborhood"),
+                row.get("city"),
+                row.get("state"),
+                row.get("zipCode"),
+                row.includes("country") && country == null ? "Brasil" : country,
+                latitude != null ? BigDecimal.valueOf(latitude) : null,
+                longitude != null ? BigDecimal.valueOf(longitude) : null,
+                row.get("placeId"),
+                row.get("formattedAddress"),
+                row.get("isDefault"),
+                row.get("geocodeStatus"),
+                row.get("label"),
+                row.get("userId"),
+                row.get("createdAt"),
+                row.get("updatedAt")
+        );
+    }
 }
@@ -2,6 +2,8 @@ package com.demo.features.files.controller;
 
 import com.demo.features.files.service.FileService;
 
+import com.demo.common.web.ConditionalGet;
+import com.demo.common.web.FieldSelection;
 import com.demo.features.files.dto.FileResponse;
 import com.demo.features.files.dto.UploadResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -10,6 +12,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,8 +21,10 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -41,20 +46,30 @@ public class FileController {
     }
 
     @GetMapping
-    public ResponseEntity<List<FileResponse>> getUserFiles(Authentication auth) {
+    public ResponseEntity<MappingJacksonValue> getUserFiles(
+            Authentication auth,
+            @RequestParam(required = false) String fields
+    ) {
         String userId = auth.getName();
-        List<FileResponse> response = fileService.getUserFiles(userId);
-        return ResponseEntity.ok(response);
+        FieldSelection selection = FieldSelection.parse(fields, FileResponse.class);
+        List<FileResponse> response = fileService.getUserFiles(userId, selection);
+        return ResponseEntity.ok(selection.wrap(response));
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<FileResponse> getById(
             @PathVariable String id,
-            Authentication auth
+            Authentication auth,
+            WebRequest request
     ) {
         String userId = auth.getName();
+        LocalDateTime version = fileService.getVersion(id, userId);
+        if (ConditionalGet.isNotModified(request, id, version)) {
+            return ConditionalGet.notModified(id, version);
+        }
+
         FileResponse response = fileService.getById(id, userId);
-        return ResponseEntity.ok(response);
+        return ConditionalGet.ok(id, response.createdAt(), response);
     }
 
     @GetMapping("/{id}/download")
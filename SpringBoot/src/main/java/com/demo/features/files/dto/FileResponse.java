@@ -1,7 +1,11 @@
 package com.demo.features.files.dto;
 
+import com.demo.common.web.FieldSelection;
+import com.fasterxml.jackson.annotation.JsonFilter;
+
 import java.time.LocalDateTime;
 
+@JsonFilter(FieldSelection.FILTER)
 public record FileResponse(
         String id,
         String originalName,
@@ -2,8 +2,11 @@ package com.demo.features.files.repository;
 
 import com.demo.domain.FileEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +16,8 @@ public interface FileRepository extends JpaRepository<FileEntity, String> {
     List<FileEntity> findByUploadedByIdOrderByCreatedAtDesc(String userId);
 
     Optional<FileEntity> findByIdAndUploadedById(String id, String userId);
+
+    // Arquivos são imutáveis: createdAt é a versão
+    @Query("SELECT f.createdAt FROM FileEntity f WHERE f.id = :id AND f.uploadedBy.id = :userId")
+    Optional<LocalDateTime> findVersionByIdAndUploadedById(@Param("id") String id, @Param("userId") String userId);
 }
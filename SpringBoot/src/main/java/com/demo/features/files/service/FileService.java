@@ -3,6 +3,8 @@ package com.demo.features.files.service;
 import com.demo.features.files.repository.FileRepository;
 
 import com.demo.common.exception.ResourceNotFoundException;
+import com.demo.common.persistence.SparseQuery;
+import com.demo.common.web.FieldSelection;
 import com.demo.features.files.dto.FileResponse;
 import com.demo.features.files.dto.UploadResponse;
 import com.demo.domain.User;
@@ -12,20 +14,38 @@ import com.demo.infrastructure.storage.StorageService;
 import com.demo.infrastructure.storage.StorageService.StoredFile;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class FileService {
 
+    // url é derivada do id
+    private static final Map<String, String> COLUMNS = Map.of(
+            "id", "id",
+            "originalName", "originalName",
+            "storedName", "storedName",
+            "mimeType", "mimeType",
+            "size", "size",
+            "storageType", "storageType",
+            "uploadedById", "uploadedBy.id",
+            "createdAt", "createdAt"
+    );
+
+    private static final Sort FILES_SORT = Sort.by("createdAt").descending();
+
     private final FileRepository fileRepository;
     private final UserRepository userRepository;
     private final StorageService storageService;
+    private final SparseQuery sparseQuery;
 
     @Transactional
     public UploadResponse upload(String userId, MultipartFile file) {
@@ -54,7 +74,18 @@ public class FileService {
         );
     }
 
-    public List<FileResponse> getUserFiles(String userId) {
+    public List<FileResponse> getUserFiles(String userId, FieldSelection fields) {
+        if (!fields.isAll()) {
+            return sparseQuery.findAll(
+                    FileEntity.class,
+                    COLUMNS,
+                    fields,
+                    (root, query, cb) -> cb.equal(root.get("uploadedBy").get("id"), userId),
+                    FILES_SORT,
+                    this::mapToResponse
+            );
+        }
+
         return fileRepository.findByUploadedByIdOrderByCreatedAtDesc(userId)
                 .stream()
                 .map(this::mapToResponse)
@@ -68,6 +99,10 @@ public class FileService {
         return mapToResponse(file);
     }
 
+    public LocalDateTime getVersion(String id, String userId) {
+        return fileRepository.findVersionByIdAndUploadedById(id, userId).orElse(null);
+    }
+
     public byte[] download(String id, String userId) {
         FileEntity file = fileRepository.findByIdAndUploadedById(id, userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Arquivo nÃƒÂ¯Ã‚Â¿Ã‚Â½o encontrado"));
@@ -99,4 +134,21 @@ public class FileService {
                 file.getCreatedAt()
         );
     }
+
+    private FileResponse mapToResponse(SparseQuery.Row row) {
+        String id = row.get("id");
+        Enum<?> storageType = row.get("storageType");
+
+        return new FileResponse(
+                id,
+                row.get("originalName"),
+                row.get("storedName"),
+                row.get("mimeType"),
+                row.get("size"),
+                row.includes("url") ? "/api/files/" + id + "/download" : null,
+                storageType != null ? storageType.name() : null,
+                row.get("uploadedById"),
+                row.get("createdAt")
+        );
+    }
 }
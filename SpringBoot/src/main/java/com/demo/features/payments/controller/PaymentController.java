@@ -7,6 +7,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -14,6 +15,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import com.demo.common.web.FieldSelection;
 import com.demo.features.payments.dto.CreatePreferenceRequest;
 import com.demo.features.payments.dto.PaymentResponse;
 import com.demo.features.payments.dto.PreferenceResponse;
@@ -43,10 +45,14 @@ public class PaymentController {
 
     @GetMapping("/user/history")
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<List<PaymentResponse>> getUserHistory(Authentication auth) {
+    public ResponseEntity<MappingJacksonValue> getUserHistory(
+            Authentication auth,
+            @RequestParam(required = false) String fields
+    ) {
         String userId = auth.getName();
-        List<PaymentResponse> response = paymentService.getUserHistory(userId);
-        return ResponseEntity.ok(response);
+        FieldSelection selection = FieldSelection.parse(fields, PaymentResponse.class);
+        List<PaymentResponse> response = paymentService.getUserHistory(userId, selection);
+        return ResponseEntity.ok(selection.wrap(response));
     }
 
     @GetMapping("/{id}")
@@ -1,6 +1,6 @@
 package com.demo.features.payments.controller;
 
-import com.demo.features.payments.service.PaymentService;
+import com.demo.features.payments.service.WebhookEventService;
 
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -11,8 +11,6 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.Map;
-
 @Slf4j
 @RestController
 @RequestMapping("/webhooks")
@@ -20,18 +18,15 @@ import java.util.Map;
 @Tag(name = "Webhooks", description = "Endpoints de webhook para integraÃƒÂ§ÃƒÂµes")
 public class WebhookController {
 
-    private final PaymentService paymentService;
+    private final WebhookEventService webhookEventService;
 
+    // Só grava e confirma; se a gravação falhar o erro volta ao MercadoPago, que reenvia
     @PostMapping("/mercadopago")
-    public ResponseEntity<Void> mercadoPagoWebhook(@RequestBody Map<String, Object> data) {
-        log.info("MercadoPago webhook received: {}", data);
-
-        try {
-            paymentService.processWebhook(data);
-            return ResponseEntity.ok().build();
-        } catch (Exception e) {
-            log.error("Error processing MercadoPago webhook", e);
-            return ResponseEntity.ok().build();
+    public ResponseEntity<Void> mercadoPagoWebhook(@RequestBody String payload) {
+        if (!webhookEventService.receiveMercadoPago(payload)) {
+            log.debug("Duplicate MercadoPago webhook ignored");
         }
+
+        return ResponseEntity.ok().build();
     }
 }
@@ -1,10 +1,14 @@
 package com.demo.features.payments.dto;
 
+import com.demo.common.web.FieldSelection;
+import com.fasterxml.jackson.annotation.JsonFilter;
+
 import com.demo.domain.Payment;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+@JsonFilter(FieldSelection.FILTER)
 public record PaymentResponse(
         String id,
         String externalId,
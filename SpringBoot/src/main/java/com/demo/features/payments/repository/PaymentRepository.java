@@ -1,9 +1,15 @@
 package com.demo.features.payments.repository;
 
 import com.demo.domain.Payment;
+import com.demo.domain.Payment.PreferenceStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,4 +23,32 @@ public interface PaymentRepository extends JpaRepository<Payment, String> {
     Optional<Payment> findByExternalId(String externalId);
 
     Optional<Payment> findByPreferenceId(String preferenceId);
+
+    List<Payment> findByPreferenceStatusAndUpdatedAtBefore(PreferenceStatus status, LocalDateTime before, Limit limit);
+
+    // Reserva para a recuperação: entre réplicas, só quem ainda vê a linha parada vence (rows == 1)
+    @Modifying
+    @Query("UPDATE Payment p SET p.preferenceAttempts = p.preferenceAttempts + 1, p.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE p.id = :id AND p.preferenceStatus = com.demo.domain.Payment.PreferenceStatus.CREATING " +
+           "AND p.updatedAt < :before")
+    int claimPreference(@Param("id") String id, @Param("before") LocalDateTime before);
+
+    // Transições a partir de CREATING: só uma chamada concorrente vence (rows == 1)
+    @Modifying
+    @Query("UPDATE Payment p SET p.preferenceId = :preferenceId, p.initPoint = :initPoint, " +
+           "p.sandboxInitPoint = :sandboxInitPoint, " +
+           "p.preferenceStatus = com.demo.domain.Payment.PreferenceStatus.CREATED, p.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE p.id = :id AND p.preferenceStatus = com.demo.domain.Payment.PreferenceStatus.CREATING")
+    int completePreference(
+            @Param("id") String id,
+            @Param("preferenceId") String preferenceId,
+            @Param("initPoint") String initPoint,
+            @Param("sandboxInitPoint") String sandboxInitPoint
+    );
+
+    @Modifying
+    @Query("UPDATE Payment p SET p.preferenceStatus = com.demo.domain.Payment.PreferenceStatus.FAILED, " +
+           "p.status = com.demo.domain.Payment.PaymentStatus.CANCELLED, p.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE p.id = :id AND p.preferenceStatus = com.demo.domain.Payment.PreferenceStatus.CREATING")
+    int failPreference(@Param("id") String id);
 }
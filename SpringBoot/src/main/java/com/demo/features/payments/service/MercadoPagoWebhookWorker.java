@@ -0,0 +1,341 @@
+package com.demo.features.payments.service;
+
+import com.demo.domain.Payment.PaymentStatus;
+import com.demo.infrastructure.payments.MercadoPagoService;
+import com.demo.infrastructure.payments.MercadoPagoService.PaymentResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processa os webhooks do MercadoPago gravados em webhook_events. Cada rodada reserva um lote
+ * (FOR UPDATE SKIP LOCKED, então réplicas não disputam as mesmas linhas), consulta os pagamentos
+ * na API em paralelo num pool limitado, fora de qualquer transação, e grava pagamentos e eventos
+ * em batch, com uma consulta por pagamento mesmo que o lote traga várias notificações dele. Falhas
+ * da API voltam para a fila com backoff; esgotadas as tentativas, ou com payload que nunca vai ser
+ * processável, o evento fica DEAD para inspeção.
+ */
+@Slf4j
+@Component
+class MercadoPagoWebhookWorker {
+
+    static final String SOURCE = "mercadopago";
+
+    private static final String CLAIM_SQL = """
+            UPDATE webhook_events e SET next_attempt_at = ?
+            FROM (
+                SELECT id FROM webhook_events
+                WHERE source = ? AND status = 'PENDING' AND next_attempt_at <= ?
+                ORDER BY next_attempt_at
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            ) due
+            WHERE e.id = due.id
+            RETURNING e.id, e.payload, e.attempts, e.received_at
+            """;
+
+    // Sem mudança de status não há escrita: reenvios e notificações repetidas não regravam a linha
+    private static final String PAYMENT_SQL = """
+            UPDATE payments SET external_id = ?, status = ?, payment_type = ?, updated_at = ?
+            WHERE id = ?
+              AND (external_id IS DISTINCT FROM ? OR status IS DISTINCT FROM ? OR payment_type IS DISTINCT FROM ?)
+            """;
+
+    private static final String PROCESSED_SQL = """
+            UPDATE webhook_events
+            SET status = 'PROCESSED', attempts = attempts + 1, processed_at = ?, last_error = NULL
+            WHERE id = ?
+            """;
+
+    private static final String RETRY_SQL = """
+            UPDATE webhook_events
+            SET status = ?, attempts = attempts + 1, next_attempt_at = ?, last_error = ?
+            WHERE id = ?
+            """;
+
+    private final MercadoPagoService mercadoPagoService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+    private final Duration lease;
+    private final Duration retention;
+    private final ThreadPoolExecutor lookups;
+    private final ExecutorService dispatcher;
+    private final AtomicBoolean requested = new AtomicBoolean();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final Counter processed;
+    private final Counter ignored;
+    private final Counter retried;
+    private final Counter dead;
+    private final Timer lag;
+
+    MercadoPagoWebhookWorker(
+            MercadoPagoService mercadoPagoService,
+            JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.mercadopago.webhooks.workers:8}") int workers,
+            @Value("${app.mercadopago.webhooks.batch-size:100}") int batchSize,
+            @Value("${app.mercadopago.webhooks.max-attempts:8}") int maxAttempts,
+            @Value("${app.mercadopago.webhooks.retry-backoff:10s}") Duration retryBackoff,
+            @Value("${app.mercadopago.webhooks.max-retry-backoff:30m}") Duration maxRetryBackoff,
+            @Value("${app.mercadopago.webhooks.lease:2m}") Duration lease,
+            @Value("${app.mercadopago.webhooks.retention:7d}") Duration retention
+    ) {
+        this.mercadoPagoService = mercadoPagoService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+        this.lease = lease;
+        this.retention = retention;
+
+        // A fila comporta um lote inteiro, então o despacho nunca é rejeitado
+        AtomicInteger threads = new AtomicInteger();
+        this.lookups = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchSize),
+                runnable -> daemon(runnable, "mercadopago-webhook-" + threads.incrementAndGet()));
+        this.dispatcher = Executors.newSingleThreadExecutor(
+                runnable -> daemon(runnable, "mercadopago-webhook-dispatcher"));
+
+        this.processed = outcomeCounter(meterRegistry, "processed");
+        this.ignored = outcomeCounter(meterRegistry, "ignored");
+        this.retried = outcomeCounter(meterRegistry, "retry");
+        this.dead = outcomeCounter(meterRegistry, "dead");
+        this.lag = Timer.builder("payments.webhooks.lag")
+                .description("Tempo entre o recebimento do webhook e o fim do processamento")
+                .register(meterRegistry);
+
+        log.info("MercadoPago webhook worker initialized (workers: {}, batch-size: {}, max-attempts: {})",
+                workers, batchSize, maxAttempts);
+    }
+
+    // Cobre retentativas agendadas, eventos recebidos por outras réplicas e o que ficou num restart
+    @Scheduled(fixedDelayString = "${app.mercadopago.webhooks.poll-interval-ms:1000}")
+    void wake() {
+        if (!mercadoPagoService.isConfigured()) {
+            return;
+        }
+        requested.set(true);
+        if (draining.compareAndSet(false, true)) {
+            dispatcher.execute(this::drain);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.mercadopago.webhooks.purge-interval-ms:3600000}")
+    void purgeProcessed() {
+        int purged = jdbcTemplate.update(
+                "DELETE FROM webhook_events WHERE status = 'PROCESSED' AND processed_at <= ?",
+                Timestamp.valueOf(LocalDateTime.now().minus(retention)));
+        if (purged > 0) {
+            log.debug("Purged {} processed webhook events", purged);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+        lookups.shutdownNow();
+    }
+
+    private void drain() {
+        try {
+            while (requested.getAndSet(false)) {
+                // Lote cheio indica fila acumulada: segue direto para o próximo
+                int claimed;
+                do {
+                    claimed = processBatch();
+                } while (claimed == batchSize);
+            }
+        } catch (Exception e) {
+            log.error("MercadoPago webhook batch failed", e);
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    private int processBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Event> batch = jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> new Event(
+                rs.getString("id"),
+                rs.getString("payload"),
+                rs.getInt("attempts"),
+                rs.getTimestamp("received_at").toLocalDateTime()
+        ), Timestamp.valueOf(now.plus(lease)), SOURCE, Timestamp.valueOf(now), batchSize);
+
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // Várias notificações do mesmo pagamento no lote viram uma consulta só
+        List<Notification> notifications = new ArrayList<>(batch.size());
+        Map<String, CompletableFuture<Lookup>> lookupsByPayment = new HashMap<>();
+        for (Event event : batch) {
+            Notification notification = parse(event);
+            notifications.add(notification);
+            if (notification.paymentId() != null) {
+                lookupsByPayment.computeIfAbsent(notification.paymentId(),
+                        paymentId -> CompletableFuture.supplyAsync(() -> lookup(paymentId), lookups));
+            }
+        }
+        CompletableFuture.allOf(lookupsByPayment.values().toArray(CompletableFuture[]::new)).join();
+
+        LocalDateTime finishedAt = LocalDateTime.now();
+        Map<String, Object[]> paymentRows = new LinkedHashMap<>();
+        List<Object[]> processedRows = new ArrayList<>();
+        List<Object[]> retryRows = new ArrayList<>();
+        for (Notification notification : notifications) {
+            Event event = notification.event();
+            Lookup lookup = notification.paymentId() != null
+                    ? lookupsByPayment.get(notification.paymentId()).join()
+                    : null;
+            String error = lookup != null ? lookup.error() : notification.error();
+
+            if (error == null) {
+                PaymentResult payment = lookup != null ? lookup.payment() : null;
+                if (payment != null && payment.externalReference() != null) {
+                    String status = mapMercadoPagoStatus(payment.status()).name();
+                    paymentRows.put(payment.externalReference(), new Object[]{
+                            notification.paymentId(), status, payment.paymentType(), Timestamp.valueOf(finishedAt),
+                            payment.externalReference(),
+                            notification.paymentId(), status, payment.paymentType()
+                    });
+                    processed.increment();
+                } else {
+                    ignored.increment();
+                }
+                processedRows.add(new Object[]{Timestamp.valueOf(finishedAt), event.id()});
+                lag.record(Duration.between(event.receivedAt(), finishedAt));
+            } else if (lookup == null || event.attempts() + 1 >= maxAttempts) {
+                retryRows.add(new Object[]{"DEAD", Timestamp.valueOf(finishedAt), error, event.id()});
+                dead.increment();
+                log.warn("Dead-lettering MercadoPago webhook event {} after {} attempts: {}",
+                        event.id(), event.attempts() + 1, error);
+            } else {
+                Timestamp nextAttempt = Timestamp.valueOf(finishedAt.plus(backoff(event.attempts())));
+                retryRows.add(new Object[]{"PENDING", nextAttempt, error, event.id()});
+                retried.increment();
+            }
+        }
+
+        if (!paymentRows.isEmpty()) {
+            List<Object[]> rows = new ArrayList<>(paymentRows.values());
+            int[] updated = jdbcTemplate.batchUpdate(PAYMENT_SQL, rows);
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] > 0) {
+                    log.info("Payment updated via webhook: {} - Status: {}", rows.get(i)[4], rows.get(i)[1]);
+                }
+            }
+        }
+        if (!processedRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(PROCESSED_SQL, processedRows);
+        }
+        if (!retryRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(RETRY_SQL, retryRows);
+        }
+
+        log.debug("Processed batch of {} webhook events ({} retrying or dead)", batch.size(), retryRows.size());
+        return batch.size();
+    }
+
+    // paymentId nulo quando não há o que consultar: outro tipo de notificação, pagamento mock ou payload inválido
+    private Notification parse(Event event) {
+        JsonNode notification;
+        try {
+            notification = objectMapper.readTree(event.payload());
+        } catch (JsonProcessingException e) {
+            // Não muda numa retentativa: vai direto para DEAD
+            return new Notification(event, null, "Invalid JSON payload: " + e.getOriginalMessage());
+        }
+
+        String paymentId = notification.path("data").path("id").asText();
+        if (!"payment".equals(notification.path("type").asText()) || paymentId.isEmpty()) {
+            return new Notification(event, null, null);
+        }
+        if (paymentId.contains("-")) {
+            log.info("Mock payment ID detected: {}", paymentId);
+            return new Notification(event, null, null);
+        }
+        return new Notification(event, paymentId, null);
+    }
+
+    private Lookup lookup(String paymentId) {
+        try {
+            return new Lookup(mercadoPagoService.getPayment(paymentId), null);
+        } catch (RuntimeException e) {
+            // MercadoPagoService embrulha o erro do SDK; a causa é o que explica a falha
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return new Lookup(null, String.valueOf(cause.getMessage()));
+        }
+    }
+
+    private static PaymentStatus mapMercadoPagoStatus(String mpStatus) {
+        if (mpStatus == null) {
+            return PaymentStatus.PENDING;
+        }
+        return switch (mpStatus) {
+            case "approved" -> PaymentStatus.APPROVED;
+            case "rejected" -> PaymentStatus.REJECTED;
+            case "cancelled" -> PaymentStatus.CANCELLED;
+            case "in_process", "pending" -> PaymentStatus.IN_PROCESS;
+            case "refunded" -> PaymentStatus.REFUNDED;
+            default -> PaymentStatus.PENDING;
+        };
+    }
+
+    // Exponencial a partir de retry-backoff, limitado a max-retry-backoff
+    private Duration backoff(int attempts) {
+        Duration delay = retryBackoff.multipliedBy(1L << Math.min(attempts, 20));
+        return delay.compareTo(maxRetryBackoff) < 0 ? delay : maxRetryBackoff;
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("payments.webhooks")
+                .description("Resultados do processamento dos webhooks do MercadoPago")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private record Event(String id, String payload, int attempts, LocalDateTime receivedAt) {}
+
+    private record Notification(Event event, String paymentId, String error) {}
+
+    private record Lookup(PaymentResult payment, String error) {}
+}
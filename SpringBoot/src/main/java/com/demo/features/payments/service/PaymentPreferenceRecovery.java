@@ -0,0 +1,77 @@
+package com.demo.features.payments.service;
+
+import com.demo.domain.Payment;
+import com.demo.domain.Payment.PreferenceStatus;
+import com.demo.features.payments.repository.PaymentRepository;
+import com.demo.infrastructure.payments.MercadoPagoService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Termina criações de preferência interrompidas: pagamentos em CREATING sem mudança há mais de
+ * stale-after (instância caiu no meio, ou a gravação final falhou) são reservados um a um e
+ * retomados com a mesma chave de idempotência. Esgotadas as tentativas, o pagamento vai para FAILED.
+ */
+@Slf4j
+@Component
+class PaymentPreferenceRecovery {
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentService paymentService;
+    private final MercadoPagoService mercadoPagoService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration staleAfter;
+    private final int maxAttempts;
+    private final int batchSize;
+
+    PaymentPreferenceRecovery(
+            PaymentRepository paymentRepository,
+            PaymentService paymentService,
+            MercadoPagoService mercadoPagoService,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.mercadopago.preferences.stale-after:2m}") Duration staleAfter,
+            @Value("${app.mercadopago.preferences.max-attempts:5}") int maxAttempts,
+            @Value("${app.mercadopago.preferences.batch-size:50}") int batchSize
+    ) {
+        this.paymentRepository = paymentRepository;
+        this.paymentService = paymentService;
+        this.mercadoPagoService = mercadoPagoService;
+        this.transactionTemplate = transactionTemplate;
+        this.staleAfter = staleAfter;
+        this.maxAttempts = maxAttempts;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.mercadopago.preferences.recovery-interval-ms:60000}")
+    void recoverStale() {
+        if (!mercadoPagoService.isConfigured()) {
+            return;
+        }
+
+        LocalDateTime before = LocalDateTime.now().minus(staleAfter);
+        List<Payment> stale = paymentRepository.findByPreferenceStatusAndUpdatedAtBefore(
+                PreferenceStatus.CREATING, before, Limit.of(batchSize));
+
+        for (Payment payment : stale) {
+            // Shutdown interrompeu uma retentativa: os pagamentos restantes ficam para a próxima varredura
+            if (Thread.currentThread().isInterrupted()) {
+                log.info("Preference recovery interrupted, stopping");
+                break;
+            }
+            // A reserva renova updated_at: a próxima tentativa só vem depois de outro stale-after
+            Integer claimed = transactionTemplate.execute(
+                    status -> paymentRepository.claimPreference(payment.getId(), before));
+            if (claimed != null && claimed > 0) {
+                paymentService.resumePreference(payment, maxAttempts);
+            }
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.demo.features.payments.service;
 import com.demo.features.payments.repository.PaymentRepository;
 
 import com.demo.common.exception.ResourceNotFoundException;
+import com.demo.common.persistence.SparseQuery;
+import com.demo.common.web.FieldSelection;
 import com.demo.features.payments.dto.CreatePreferenceRequest;
 import com.demo.features.payments.dto.PaymentResponse;
 import com.demo.features.payments.dto.PreferenceResponse;
@@ -13,8 +15,9 @@ import com.demo.infrastructure.payments.MercadoPagoService;
 import com.demo.infrastructure.payments.MercadoPagoService.PreferenceResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -25,15 +28,44 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class PaymentService {
 
+    // title e unitPrice/totalAmount saem de description e amount, como em mapToResponse(Payment)
+    private static final Map<String, String> COLUMNS = Map.ofEntries(
+            Map.entry("id", "id"),
+            Map.entry("externalId", "externalReference"),
+            Map.entry("preferenceId", "preferenceId"),
+            Map.entry("title", "description"),
+            Map.entry("description", "description"),
+            Map.entry("unitPrice", "amount"),
+            Map.entry("totalAmount", "amount"),
+            Map.entry("status", "status"),
+            Map.entry("userId", "user.id"),
+            Map.entry("createdAt", "createdAt"),
+            Map.entry("updatedAt", "updatedAt")
+    );
+
+    private static final Sort HISTORY_SORT = Sort.by("createdAt").descending();
+
     private final PaymentRepository paymentRepository;
     private final UserRepository userRepository;
     private final MercadoPagoService mercadoPagoService;
-
-    @Transactional
+    private final SparseQuery sparseQuery;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Três passos curtos em vez de uma transação em volta da chamada HTTP: grava o pagamento em
+     * CREATING, cria a preferência no MercadoPago sem conexão do pool presa (o id do pagamento é a
+     * chave de idempotência) e completa a linha. Se a instância cair entre um passo e outro, a
+     * linha fica em CREATING e PaymentPreferenceRecovery termina o trabalho com a mesma chave.
+     */
     public PreferenceResponse createPreference(String userId, CreatePreferenceRequest request) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("UsuÃƒÂ¯Ã‚Â¿Ã‚Â½rio nÃƒÂ¯Ã‚Â¿Ã‚Â½o encontrado"));
 
+        // Sem token nem vale gravar: a chamada falharia com certeza
+        if (!mercadoPagoService.isConfigured()) {
+            throw new IllegalStateException("MercadoPago not configured - missing access token");
+        }
+
         BigDecimal totalAmount = request.unitPrice().multiply(BigDecimal.valueOf(request.quantity()));
 
         Payment payment = Payment.builder()
@@ -43,24 +75,28 @@ public class PaymentService {
                 .unitPrice(request.unitPrice())
                 .amount(totalAmount)
                 .status(Payment.PaymentStatus.PENDING)
+                .payerEmail(request.payerEmail())
+                .preferenceStatus(Payment.PreferenceStatus.CREATING)
+                .preferenceAttempts(1)
                 .user(user)
                 .build();
 
         payment = paymentRepository.save(payment);
 
-        PreferenceResult preferenceResult = mercadoPagoService.createPreference(
-                request.title(),
-                request.description(),
-                request.quantity(),
-                request.unitPrice(),
-                payment.getId(),
-                request.payerEmail()
-        );
+        PreferenceResult preferenceResult;
+        try {
+            preferenceResult = requestPreference(payment);
+        } catch (RuntimeException e) {
+            String paymentId = payment.getId();
+            transactionTemplate.executeWithoutResult(status -> paymentRepository.failPreference(paymentId));
+            throw e;
+        }
+        complete(payment.getId(), preferenceResult);
 
         payment.setPreferenceId(preferenceResult.id());
         payment.setInitPoint(preferenceResult.initPoint());
         payment.setSandboxInitPoint(preferenceResult.sandboxInitPoint());
-        payment = paymentRepository.save(payment);
+        payment.setPreferenceStatus(Payment.PreferenceStatus.CREATED);
 
         log.info("Preference created: {} for user {}", preferenceResult.id(), userId);
 
@@ -72,7 +108,62 @@ public class PaymentService {
         );
     }
 
-    public List<PaymentResponse> getUserHistory(String userId) {
+    /**
+     * Retoma um pagamento parado em CREATING, já reservado pela recuperação. Com a mesma chave de
+     * idempotência, se a primeira chamada chegou ao MercadoPago a preferência devolvida é a mesma.
+     */
+    void resumePreference(Payment payment, int maxAttempts) {
+        try {
+            PreferenceResult preferenceResult = requestPreference(payment);
+            if (complete(payment.getId(), preferenceResult)) {
+                log.info("Preference recovered: {} for payment {}", preferenceResult.id(), payment.getId());
+            }
+        } catch (RuntimeException e) {
+            // A reserva já contou esta tentativa
+            if (payment.getPreferenceAttempts() + 1 >= maxAttempts) {
+                transactionTemplate.executeWithoutResult(status -> paymentRepository.failPreference(payment.getId()));
+                log.warn("Giving up preference for payment {} after {} attempts: {}",
+                        payment.getId(), payment.getPreferenceAttempts() + 1, e.getMessage());
+            } else {
+                log.warn("Preference recovery failed for payment {}: {}", payment.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private PreferenceResult requestPreference(Payment payment) {
+        return mercadoPagoService.createPreference(
+                payment.getTitle(),
+                payment.getDescription(),
+                payment.getQuantity(),
+                payment.getUnitPrice(),
+                payment.getId(),
+                payment.getPayerEmail(),
+                payment.getId()
+        );
+    }
+
+    private boolean complete(String paymentId, PreferenceResult preferenceResult) {
+        Integer updated = transactionTemplate.execute(status -> paymentRepository.completePreference(
+                paymentId,
+                preferenceResult.id(),
+                preferenceResult.initPoint(),
+                preferenceResult.sandboxInitPoint()
+        ));
+        return updated != null && updated > 0;
+    }
+
+    public List<PaymentResponse> getUserHistory(String userId, FieldSelection fields) {
+        if (!fields.isAll()) {
+            return sparseQuery.findAll(
+                    Payment.class,
+                    COLUMNS,
+                    fields,
+                    (root, query, cb) -> cb.equal(root.get("user").get("id"), userId),
+                    HISTORY_SORT,
+                    this::mapToResponse
+            );
+        }
+
         return paymentRepository.findByUserIdOrderByCreatedAtDesc(userId)
                 .stream()
                 .map(this::mapToResponse)
@@ -86,55 +177,6 @@ public class PaymentService {
         return mapToResponse(payment);
     }
 
-    @Transactional
-    public void processWebhook(Map<String, Object> data) {
-        String type = (String) data.get("type");
-
-        if ("payment".equals(type)) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> paymentData = (Map<String, Object>) data.get("data");
-            String paymentId = String.valueOf(paymentData.get("id"));
-
-            if (paymentId.contains("-")) {
-                log.info("Mock payment ID detected: {}", paymentId);
-                return;
-            }
-
-            try {
-                var mpPayment = mercadoPagoService.getPayment(paymentId);
-
-                if (mpPayment != null) {
-                    String externalReference = mpPayment.externalReference();
-                    Payment.PaymentStatus status = mapMercadoPagoStatus(mpPayment.status());
-
-                    paymentRepository.findById(externalReference)
-                            .ifPresent(payment -> {
-                                payment.setExternalId(paymentId);
-                                payment.setStatus(status);
-                                payment.setPaymentType(mpPayment.paymentType());
-                                paymentRepository.save(payment);
-
-                                log.info("Payment updated via webhook: {} - Status: {}", 
-                                        payment.getId(), status);
-                            });
-                }
-            } catch (Exception e) {
-                log.error("Error processing webhook for payment {}: {}", paymentId, e.getMessage());
-            }
-        }
-    }
-
-    private Payment.PaymentStatus mapMercadoPagoStatus(String mpStatus) {
-        return switch (mpStatus) {
-            case "approved" -> Payment.PaymentStatus.APPROVED;
-            case "rejected" -> Payment.PaymentStatus.REJECTED;
-            case "cancelled" -> Payment.PaymentStatus.CANCELLED;
-            case "in_process", "pending" -> Payment.PaymentStatus.IN_PROCESS;
-            case "refunded" -> Payment.PaymentStatus.REFUNDED;
-            default -> Payment.PaymentStatus.PENDING;
-        };
-    }
-
     private PaymentResponse mapToResponse(Payment payment) {
         return new PaymentResponse(
                 payment.getId(),
@@ -154,4 +196,24 @@ public class PaymentService {
                 payment.getUpdatedAt()
         );
     }
+
+    private PaymentResponse mapToResponse(SparseQuery.Row row) {
+        return new PaymentResponse(
+                row.get("id"),
+                row.get("externalId"),
+                row.get("preferenceId"),
+                row.get("title"),
+                row.get("description"),
+                row.includes("quantity") ? 1 : null,
+                row.get("unitPrice"),
+                row.get("totalAmount"),
+                row.get("status"),
+                null,
+                null,
+                null,
+                row.get("userId"),
+                row.get("createdAt"),
+                row.get("updatedAt")
+        );
+    }
 }
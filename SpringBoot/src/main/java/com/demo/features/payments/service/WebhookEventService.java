@@ -0,0 +1,115 @@
+package com.demo.features.payments.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Entrada dos webhooks: o evento é gravado como chegou em webhook_events e a resposta sai logo em
+ * seguida. Consulta à API e atualização do pagamento ficam com o worker, então um pico de
+ * notificações não prende threads HTTP nem conexões do pool esperando o MercadoPago.
+ *
+ * Reenvios da mesma notificação (id da notificação, id do pagamento e ação) são descartados: os
+ * vistos há pouco pela janela em memória, sem tocar no banco; os demais pelo índice único de
+ * dedup_key, no próprio INSERT.
+ */
+@Slf4j
+@Service
+public class WebhookEventService {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO webhook_events (id, source, payload, dedup_key, next_attempt_at, received_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (dedup_key) DO NOTHING
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final MercadoPagoWebhookWorker mercadoPagoWebhookWorker;
+    private final Cache<String, Boolean> recent;
+    private final Counter accepted;
+    private final Counter duplicateInMemory;
+    private final Counter duplicateStored;
+
+    public WebhookEventService(
+            JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            MercadoPagoWebhookWorker mercadoPagoWebhookWorker,
+            MeterRegistry meterRegistry,
+            @Value("${app.mercadopago.webhooks.dedup.max-size:100000}") long maxSize,
+            @Value("${app.mercadopago.webhooks.dedup.window:1h}") Duration window
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.mercadoPagoWebhookWorker = mercadoPagoWebhookWorker;
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(window)
+                .build();
+
+        this.accepted = receivedCounter(meterRegistry, "accepted");
+        this.duplicateInMemory = receivedCounter(meterRegistry, "duplicate_memory");
+        this.duplicateStored = receivedCounter(meterRegistry, "duplicate_stored");
+    }
+
+    /**
+     * false quando a notificação é repetida e nada foi gravado.
+     */
+    public boolean receiveMercadoPago(String payload) {
+        String dedupKey = dedupKey(payload);
+        if (dedupKey != null && recent.getIfPresent(dedupKey) != null) {
+            duplicateInMemory.increment();
+            return false;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int inserted = jdbcTemplate.update(INSERT_SQL, UUID.randomUUID().toString(),
+                MercadoPagoWebhookWorker.SOURCE, payload, dedupKey, now, now);
+        if (dedupKey != null) {
+            recent.put(dedupKey, Boolean.TRUE);
+        }
+        if (inserted == 0) {
+            duplicateStored.increment();
+            return false;
+        }
+
+        accepted.increment();
+        mercadoPagoWebhookWorker.wake();
+        return true;
+    }
+
+    // Sem o id da notificação não há como distinguir reenvio de notificação nova: grava sempre
+    private String dedupKey(String payload) {
+        try {
+            JsonNode notification = objectMapper.readTree(payload);
+            String notificationId = notification.path("id").asText();
+            if (notificationId.isEmpty()) {
+                return null;
+            }
+            return notificationId + ":" + notification.path("data").path("id").asText()
+                    + ":" + notification.path("action").asText();
+        } catch (Exception e) {
+            // Payload inválido segue para a fila, onde o worker o marca como DEAD
+            return null;
+        }
+    }
+
+    private static Counter receivedCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("payments.webhooks.received")
+                .description("Webhooks recebidos do MercadoPago, novos ou descartados como repetidos")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
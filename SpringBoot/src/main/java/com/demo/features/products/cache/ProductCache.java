@@ -0,0 +1,127 @@
+package com.demo.features.products.cache;
+
+import com.demo.features.products.dto.ProductListResponse;
+import com.demo.features.products.dto.ProductResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+@Slf4j
+@Component
+public class ProductCache {
+
+    static final String CHANNEL = "product_cache";
+    static final String ALL = "*";
+
+    private final Cache<String, ProductResponse> products;
+    private final Cache<PageKey, ProductListResponse> pages;
+    private final AtomicLong pageGeneration = new AtomicLong();
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public ProductCache(
+            @Value("${app.products.cache.max-size:10000}") long maxSize,
+            @Value("${app.products.cache.page-max-size:1000}") long pageMaxSize,
+            @Value("${app.products.cache.ttl:5m}") Duration ttl,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.products = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(pageMaxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, products, "products.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "products.pages");
+
+        log.info("Product cache initialized (max-size: {}, page-max-size: {}, ttl: {})", maxSize, pageMaxSize, ttl);
+    }
+
+    public ProductResponse getById(String id, Function<String, ProductResponse> loader) {
+        return products.get(id, loader);
+    }
+
+    public Map<String, ProductResponse> getAllById(
+            Collection<String> ids,
+            Function<Set<? extends String>, Map<String, ProductResponse>> loader
+    ) {
+        // Só os ids ausentes do cache vão ao loader, numa única chamada
+        return products.getAll(ids, loader);
+    }
+
+    public ProductResponse peek(String id) {
+        return products.getIfPresent(id);
+    }
+
+    public ProductListResponse getPage(Object query, Supplier<ProductListResponse> loader) {
+        // A geração muda a cada invalidação: uma carga iniciada antes dela grava numa chave que não é mais lida
+        return pages.get(new PageKey(pageGeneration.get(), query), key -> loader.get());
+    }
+
+    /**
+     * Invalida o produto (e todas as páginas) neste nó após o commit e nos demais via NOTIFY,
+     * que o Postgres só entrega quando a transação corrente é confirmada.
+     */
+    public void evict(String id) {
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, CHANNEL, nodeId + ":" + id);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictLocal(id);
+                }
+            });
+        } else {
+            evictLocal(id);
+        }
+    }
+
+    public void evictAll() {
+        evict(ALL);
+    }
+
+    boolean onNotification(String payload) {
+        int separator = payload.indexOf(':');
+        if (separator < 0 || payload.substring(0, separator).equals(nodeId)) {
+            return false;
+        }
+        evictLocal(payload.substring(separator + 1));
+        return true;
+    }
+
+    void evictLocal(String id) {
+        if (ALL.equals(id)) {
+            products.invalidateAll();
+        } else {
+            products.invalidate(id);
+        }
+        pageGeneration.incrementAndGet();
+        pages.invalidateAll();
+    }
+
+    private record PageKey(long generation, Object query) {}
+}
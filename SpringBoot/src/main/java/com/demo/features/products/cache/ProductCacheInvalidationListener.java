@@ -0,0 +1,105 @@
+package com.demo.features.products.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Mantém uma conexão dedicada em LISTEN no canal do ProductCache e aplica as invalidações
+ * publicadas pelas outras réplicas.
+ */
+@Slf4j
+@Component
+public class ProductCacheInvalidationListener {
+
+    private static final int POLL_TIMEOUT_MS = 1000;
+    private static final long RECONNECT_DELAY_MS = 5000;
+
+    private final DataSource dataSource;
+    private final ProductCache productCache;
+    private final Counter remoteInvalidations;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public ProductCacheInvalidationListener(
+            DataSource dataSource,
+            ProductCache productCache,
+            MeterRegistry meterRegistry
+    ) {
+        this.dataSource = dataSource;
+        this.productCache = productCache;
+        this.remoteInvalidations = Counter.builder("products.cache.remote.invalidations")
+                .description("Invalidações do cache de produtos recebidas via LISTEN/NOTIFY")
+                .register(meterRegistry);
+        this.worker = new Thread(this::listen, "product-cache-listener");
+        this.worker.setDaemon(true);
+    }
+
+    @PostConstruct
+    void start() {
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void listen() {
+        boolean reconnecting = false;
+
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + ProductCache.CHANNEL);
+                }
+
+                // Notificações podem ter sido perdidas enquanto estávamos desconectados
+                if (reconnecting) {
+                    productCache.evictLocal(ProductCache.ALL);
+                }
+                log.info("Listening for product cache invalidations on channel {}", ProductCache.CHANNEL);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        if (productCache.onNotification(notification.getParameter())) {
+                            remoteInvalidations.increment();
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.error("Product cache listener connection lost: {}", e.getMessage());
+                reconnecting = true;
+                sleep();
+            }
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(RECONNECT_DELAY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -1,17 +1,32 @@
 package com.demo.features.products.controller;
 
+import com.demo.features.products.service.ProductExportService;
+import com.demo.features.products.service.ProductExportService.ExportFormat;
+import com.demo.features.products.service.ProductImportService;
 import com.demo.features.products.service.ProductService;
 
+import com.demo.common.web.ConditionalGet;
+import com.demo.common.web.FieldSelection;
 import com.demo.features.products.dto.CreateProductRequest;
+import com.demo.features.products.dto.ProductBatchGetRequest;
+import com.demo.features.products.dto.ProductBatchResponse;
+import com.demo.features.products.dto.ProductImportResponse;
 import com.demo.features.products.dto.ProductListResponse;
 import com.demo.features.products.dto.ProductResponse;
+import com.demo.features.products.dto.ProductSuggestionResponse;
 import com.demo.features.products.dto.UpdateProductRequest;
+import com.demo.features.products.repository.ProductFilter;
+import com.demo.features.products.repository.ProductSort;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,9 +34,20 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/products")
@@ -29,6 +55,8 @@ import org.springframework.web.bind.annotation.RestController;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ProductExportService productExportService;
 
     @PostMapping
     @SecurityRequirement(name = "bearerAuth")
@@ -41,20 +69,86 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<ProductImportResponse> importProducts(
+            Authentication auth,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body
+    ) throws IOException {
+        String userId = auth.getName();
+        ProductImportResponse response = productImportService.importProducts(userId, contentType, body);
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping
-    public ResponseEntity<ProductListResponse> list(
+    public ResponseEntity<MappingJacksonValue> list(
             @RequestParam(defaultValue = "1") int page,
             @RequestParam(defaultValue = "10") int limit,
-            @RequestParam(required = false) String search
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean includeTotal,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "false") boolean inStock,
+            @RequestParam(required = false) String createdBy,
+            @RequestParam(defaultValue = "newest") String sort,
+            @RequestParam(defaultValue = "false") boolean facets,
+            @RequestParam(required = false) String fields
     ) {
-        ProductListResponse response = productService.list(page, limit, search);
+        ProductFilter filter = new ProductFilter(minPrice, maxPrice, inStock, createdBy, ProductSort.from(sort));
+        FieldSelection selection = FieldSelection.parse(fields, ProductResponse.class);
+        ProductListResponse response = productService.list(
+                page, limit, search, cursor, includeTotal, filter, facets, selection);
+        return ResponseEntity.ok(selection.wrap(response));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestionResponse>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        List<ProductSuggestionResponse> response = productService.suggest(q, limit);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/batch-get")
+    public ResponseEntity<ProductBatchResponse> batchGet(@Valid @RequestBody ProductBatchGetRequest request) {
+        ProductBatchResponse response = productService.getByIds(request.ids());
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/export")
+    @SecurityRequirement(name = "bearerAuth")
+    public void export(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response
+    ) throws IOException {
+        ExportFormat exportFormat = ExportFormat.from(format);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        response.setContentType(exportFormat.contentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"products." + exportFormat.name().toLowerCase(Locale.ROOT) + "\"");
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        OutputStream output = gzip ? new GZIPOutputStream(response.getOutputStream(), 8192) : response.getOutputStream();
+        productExportService.export(exportFormat, output);
+        output.close();
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<ProductResponse> getById(@PathVariable String id) {
+    public ResponseEntity<ProductResponse> getById(@PathVariable String id, WebRequest request) {
+        LocalDateTime version = productService.getVersion(id);
+        if (ConditionalGet.isNotModified(request, id, version)) {
+            return ConditionalGet.notModified(id, version);
+        }
+
         ProductResponse response = productService.getById(id);
-        return ResponseEntity.ok(response);
+        return ConditionalGet.ok(id, versionOf(response), response);
     }
 
     @PatchMapping("/{id}")
@@ -73,4 +167,8 @@ public class ProductController {
         productService.delete(id);
         return ResponseEntity.noContent().build();
     }
+
+    private LocalDateTime versionOf(ProductResponse response) {
+        return response.updatedAt() != null ? response.updatedAt() : response.createdAt();
+    }
 }
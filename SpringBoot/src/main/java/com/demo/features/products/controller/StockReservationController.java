@@ -0,0 +1,58 @@
+package com.demo.features.products.controller;
+
+import com.demo.features.products.service.StockReservationService;
+
+import com.demo.features.products.dto.ReserveStockRequest;
+import com.demo.features.products.dto.StockReservationResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/products")
+@RequiredArgsConstructor
+@SecurityRequirement(name = "bearerAuth")
+public class StockReservationController {
+
+    private final StockReservationService stockReservationService;
+
+    @PostMapping("/{id}/reservations")
+    public ResponseEntity<StockReservationResponse> reserve(
+            @PathVariable String id,
+            Authentication auth,
+            @Valid @RequestBody ReserveStockRequest request
+    ) {
+        String userId = auth.getName();
+        StockReservationResponse response = stockReservationService.reserve(userId, id, request.quantity());
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @PostMapping("/reservations/{reservationId}/commit")
+    public ResponseEntity<StockReservationResponse> commit(
+            @PathVariable String reservationId,
+            Authentication auth
+    ) {
+        String userId = auth.getName();
+        StockReservationResponse response = stockReservationService.commit(userId, reservationId);
+        return ResponseEntity.ok(response);
+    }
+
+    @DeleteMapping("/reservations/{reservationId}")
+    public ResponseEntity<Void> release(
+            @PathVariable String reservationId,
+            Authentication auth
+    ) {
+        String userId = auth.getName();
+        stockReservationService.release(userId, reservationId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,13 @@
+package com.demo.features.products.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record ProductBatchGetRequest(
+        @NotEmpty(message = "Informe ao menos um id")
+        @Size(max = 500, message = "Máximo de 500 ids por requisição")
+        List<String> ids
+) {
+}
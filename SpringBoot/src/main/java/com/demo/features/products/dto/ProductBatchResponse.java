@@ -0,0 +1,9 @@
+package com.demo.features.products.dto;
+
+import java.util.List;
+
+public record ProductBatchResponse(
+        List<ProductResponse> products,
+        List<String> missingIds
+) {
+}
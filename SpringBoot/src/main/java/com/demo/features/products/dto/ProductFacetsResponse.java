@@ -0,0 +1,19 @@
+package com.demo.features.products.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public record ProductFacetsResponse(
+        long total,
+        long inStock,
+        List<PriceBucket> priceBuckets
+) {
+
+    // Faixa [min, max); max nulo na última faixa
+    public record PriceBucket(
+            BigDecimal min,
+            BigDecimal max,
+            long count
+    ) {
+    }
+}
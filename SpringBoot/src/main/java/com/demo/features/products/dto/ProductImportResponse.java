@@ -0,0 +1,14 @@
+package com.demo.features.products.dto;
+
+import java.util.List;
+
+public record ProductImportResponse(
+        long totalRows,
+        long imported,
+        long failed,
+        List<RowError> errors,
+        boolean errorsTruncated
+) {
+
+    public record RowError(long line, String message) {}
+}
@@ -4,8 +4,10 @@ import java.util.List;
 
 public record ProductListResponse(
         List<ProductResponse> products,
-        long total,
+        Long total,
         int page,
-        int limit
+        int limit,
+        String nextCursor,
+        ProductFacetsResponse facets
 ) {
 }
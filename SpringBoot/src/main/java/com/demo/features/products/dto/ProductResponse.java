@@ -1,8 +1,12 @@
 package com.demo.features.products.dto;
 
+import com.demo.common.web.FieldSelection;
+import com.fasterxml.jackson.annotation.JsonFilter;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+@JsonFilter(FieldSelection.FILTER)
 public record ProductResponse(
         String id,
         String name,
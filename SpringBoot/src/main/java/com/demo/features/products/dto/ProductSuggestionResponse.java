@@ -0,0 +1,7 @@
+package com.demo.features.products.dto;
+
+public record ProductSuggestionResponse(
+        String id,
+        String name
+) {
+}
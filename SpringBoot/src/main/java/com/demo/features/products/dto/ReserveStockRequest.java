@@ -0,0 +1,11 @@
+package com.demo.features.products.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+public record ReserveStockRequest(
+        @NotNull(message = "Quantidade é obrigatória")
+        @Min(value = 1, message = "Quantidade deve ser pelo menos 1")
+        Integer quantity
+) {
+}
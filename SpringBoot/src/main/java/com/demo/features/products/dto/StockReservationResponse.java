@@ -0,0 +1,15 @@
+package com.demo.features.products.dto;
+
+import com.demo.domain.StockReservation;
+
+import java.time.LocalDateTime;
+
+public record StockReservationResponse(
+        String id,
+        String productId,
+        Integer quantity,
+        StockReservation.ReservationStatus status,
+        LocalDateTime expiresAt,
+        LocalDateTime createdAt
+) {
+}
@@ -0,0 +1,38 @@
+package com.demo.features.products.repository;
+
+import com.demo.common.exception.BusinessException;
+
+import java.math.BigDecimal;
+
+/**
+ * Filtros da listagem de produtos. Campos nulos não restringem a consulta.
+ */
+public record ProductFilter(
+        BigDecimal minPrice,
+        BigDecimal maxPrice,
+        boolean inStock,
+        String createdBy,
+        ProductSort sort
+) {
+
+    public static final ProductFilter NONE = new ProductFilter(null, null, false, null, ProductSort.NEWEST);
+
+    public ProductFilter {
+        if ((minPrice != null && minPrice.signum() < 0) || (maxPrice != null && maxPrice.signum() < 0)) {
+            throw new BusinessException("Preço do filtro não pode ser negativo");
+        }
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new BusinessException("minPrice deve ser menor ou igual a maxPrice");
+        }
+        if (createdBy != null && createdBy.isBlank()) {
+            createdBy = null;
+        }
+        if (sort == null) {
+            sort = ProductSort.NEWEST;
+        }
+    }
+
+    public boolean isDefault() {
+        return minPrice == null && maxPrice == null && !inStock && createdBy == null && sort == ProductSort.NEWEST;
+    }
+}
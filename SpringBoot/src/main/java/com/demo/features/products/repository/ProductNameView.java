@@ -0,0 +1,11 @@
+package com.demo.features.products.repository;
+
+/**
+ * Projeção mínima usada pelo índice de autocomplete.
+ */
+public interface ProductNameView {
+
+    String getId();
+
+    String getName();
+}
@@ -1,27 +1,103 @@
 package com.demo.features.products.repository;
 
 import com.demo.domain.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, String> {
+public interface ProductRepository extends JpaRepository<Product, String>, JpaSpecificationExecutor<Product> {
 
-    @Query("SELECT p FROM Product p WHERE p.active = true AND " +
-           "(:search IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
-           "OR LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%')))")
-    Page<Product> findAllWithSearch(@Param("search") String search, Pageable pageable);
+    // p.createdBy.id é lido da FK created_by_id, sem join em users
+    String VIEW_SELECT = "SELECT p.id AS id, p.name AS name, p.description AS description, " +
+            "p.price AS price, p.stock AS stock, p.imageUrl AS imageUrl, p.createdBy.id AS createdById, " +
+            "p.createdAt AS createdAt, p.updatedAt AS updatedAt FROM Product p";
 
-    Page<Product> findByCreatedById(String userId, Pageable pageable);
+    String NATIVE_VIEW_SELECT = "SELECT p.id AS id, p.name AS name, p.description AS description, " +
+            "p.price AS price, p.stock AS stock, p.image_url AS \"imageUrl\", p.created_by_id AS \"createdById\", " +
+            "p.created_at AS \"createdAt\", p.updated_at AS \"updatedAt\" FROM products p";
+
+    String ACTIVE_WITH_SEARCH = "p.active = true AND " +
+            "(:search IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
+            "OR LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%')))";
+
+    // Full-text (GIN em search_vector) + substring/similaridade no nome (GIN pg_trgm), ver V3
+    String RANKED_SEARCH_FILTER = "p.active = true AND (" +
+            "p.search_vector @@ websearch_to_tsquery('portuguese', :search) " +
+            "OR p.name ILIKE CONCAT('%', :search, '%') " +
+            "OR p.name % :search)";
+
+    String RANKED_SEARCH_ORDER = "ts_rank_cd(p.search_vector, websearch_to_tsquery('portuguese', :search)) DESC, " +
+            "similarity(p.name, :search) DESC, p.created_at DESC, p.id DESC";
+
+    @Query(value = VIEW_SELECT + " WHERE " + ACTIVE_WITH_SEARCH,
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE " + ACTIVE_WITH_SEARCH)
+    Page<ProductView> findAllWithSearch(@Param("search") String search, Pageable pageable);
+
+    @Query(VIEW_SELECT + " WHERE " + ACTIVE_WITH_SEARCH)
+    Slice<ProductView> findSliceWithSearch(@Param("search") String search, Pageable pageable);
+
+    @Query(value = NATIVE_VIEW_SELECT + " WHERE " + RANKED_SEARCH_FILTER + " ORDER BY " + RANKED_SEARCH_ORDER,
+           countQuery = "SELECT COUNT(*) FROM products p WHERE " + RANKED_SEARCH_FILTER,
+           nativeQuery = true)
+    Page<ProductView> searchRanked(@Param("search") String search, Pageable pageable);
+
+    @Query(value = NATIVE_VIEW_SELECT + " WHERE " + RANKED_SEARCH_FILTER + " ORDER BY " + RANKED_SEARCH_ORDER,
+           nativeQuery = true)
+    Slice<ProductView> searchRankedSlice(@Param("search") String search, Pageable pageable);
+
+    @Query(value = VIEW_SELECT + " WHERE p.createdBy.id = :userId",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.createdBy.id = :userId")
+    Page<ProductView> findByCreatedById(@Param("userId") String userId, Pageable pageable);
 
     List<Product> findAllByActiveTrue();
 
+    <T> List<T> findAllByActiveTrue(Class<T> type);
+
+    // Cursor no servidor: o driver só busca fetch-size linhas por vez (exige transação)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query(VIEW_SELECT + " WHERE p.active = true ORDER BY p.createdAt DESC, p.id DESC")
+    Stream<ProductView> streamAllActive();
+
+    boolean existsByIdAndActiveTrue(String id);
+
+    // Decremento atômico: nunca deixa o estoque negativo, sem ler-modificar-gravar
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = p.stock - :quantity, p.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE p.id = :id AND p.active = true AND p.stock >= :quantity")
+    int decrementStock(@Param("id") String id, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = p.stock + :quantity, p.updatedAt = CURRENT_TIMESTAMP WHERE p.id = :id")
+    int incrementStock(@Param("id") String id, @Param("quantity") int quantity);
+
     Optional<Product> findByIdAndActiveTrue(String id);
+
+    @Query("SELECT COALESCE(p.updatedAt, p.createdAt) FROM Product p WHERE p.id = :id AND p.active = true")
+    Optional<LocalDateTime> findVersionByIdAndActiveTrue(@Param("id") String id);
+
+    @Query(VIEW_SELECT + " WHERE p.id = :id AND p.active = true")
+    Optional<ProductView> findViewByIdAndActiveTrue(@Param("id") String id);
+
+    @Query(VIEW_SELECT + " WHERE p.id IN :ids AND p.active = true")
+    List<ProductView> findViewsByIdInAndActiveTrue(@Param("ids") Collection<String> ids);
 }
@@ -0,0 +1,8 @@
+package com.demo.features.products.repository;
+
+public interface ProductSalesView {
+
+    String getProductId();
+
+    Long getQuantity();
+}
@@ -0,0 +1,33 @@
+package com.demo.features.products.repository;
+
+import com.demo.common.exception.BusinessException;
+import org.springframework.data.domain.Sort;
+
+import java.util.Locale;
+
+/**
+ * Ordenações da listagem; cada uma termina em id para ser total e servir de chave keyset.
+ */
+public enum ProductSort {
+    NEWEST(Sort.by("createdAt").descending().and(Sort.by("id").descending())),
+    PRICE_ASC(Sort.by("price").ascending().and(Sort.by("id").ascending())),
+    PRICE_DESC(Sort.by("price").descending().and(Sort.by("id").descending()));
+
+    private final Sort sort;
+
+    ProductSort(Sort sort) {
+        this.sort = sort;
+    }
+
+    public Sort toSort() {
+        return sort;
+    }
+
+    public static ProductSort from(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("Ordenação inválida: use newest, price_asc ou price_desc");
+        }
+    }
+}
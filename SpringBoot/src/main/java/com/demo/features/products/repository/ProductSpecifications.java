@@ -0,0 +1,66 @@
+package com.demo.features.products.repository;
+
+import com.demo.domain.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Predicados da listagem filtrada. Só entram na consulta os filtros informados, para que o
+ * planner escolha o índice parcial correspondente (V5) em vez de um plano genérico.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> matching(ProductFilter filter) {
+        Specification<Product> spec = (root, query, cb) -> cb.isTrue(root.get("active"));
+
+        if (filter.minPrice() != null) {
+            spec = spec.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("price"), filter.minPrice()));
+        }
+        if (filter.maxPrice() != null) {
+            spec = spec.and((root, query, cb) -> cb.lessThanOrEqualTo(root.get("price"), filter.maxPrice()));
+        }
+        if (filter.inStock()) {
+            spec = spec.and((root, query, cb) -> cb.greaterThan(root.get("stock"), 0));
+        }
+        if (filter.createdBy() != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("createdBy").get("id"), filter.createdBy()));
+        }
+        return spec;
+    }
+
+    // Keyset: linhas estritamente depois de (createdAt, id) na ordem decrescente
+    public static Specification<Product> createdBefore(LocalDateTime createdAt, String id) {
+        return (root, query, cb) -> cb.and(
+                cb.lessThanOrEqualTo(root.get("createdAt"), createdAt),
+                cb.or(
+                        cb.lessThan(root.get("createdAt"), createdAt),
+                        cb.lessThan(root.get("id"), id)
+                )
+        );
+    }
+
+    public static Specification<Product> priceAfter(BigDecimal price, String id) {
+        return (root, query, cb) -> cb.and(
+                cb.greaterThanOrEqualTo(root.get("price"), price),
+                cb.or(
+                        cb.greaterThan(root.get("price"), price),
+                        cb.greaterThan(root.get("id"), id)
+                )
+        );
+    }
+
+    public static Specification<Product> priceBefore(BigDecimal price, String id) {
+        return (root, query, cb) -> cb.and(
+                cb.lessThanOrEqualTo(root.get("price"), price),
+                cb.or(
+                        cb.lessThan(root.get("price"), price),
+                        cb.lessThan(root.get("id"), id)
+                )
+        );
+    }
+}
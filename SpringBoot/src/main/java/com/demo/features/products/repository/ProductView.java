@@ -0,0 +1,28 @@
+package com.demo.features.products.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Projeção de leitura com apenas as colunas de ProductResponse; não carrega o User de createdBy.
+ */
+public interface ProductView {
+
+    String getId();
+
+    String getName();
+
+    String getDescription();
+
+    BigDecimal getPrice();
+
+    Integer getStock();
+
+    String getImageUrl();
+
+    String getCreatedById();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,52 @@
+package com.demo.features.products.repository;
+
+import com.demo.domain.StockReservation;
+import com.demo.domain.StockReservation.ReservationStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, String> {
+
+    Optional<StockReservation> findByIdAndUserId(String id, String userId);
+
+    List<StockReservation> findByStatusAndExpiresAtBefore(ReservationStatus status, LocalDateTime now, Limit limit);
+
+    // Unidades vendidas mantidas no commit da reserva (V15): sem somar stock_reservations inteira
+    @Query(value = "SELECT product_id AS \"productId\", units_sold AS quantity FROM product_sales", nativeQuery = true)
+    List<ProductSalesView> findUnitsSold();
+
+    @Modifying
+    @Query(value = "INSERT INTO product_sales (product_id, units_sold) VALUES (:productId, :quantity) " +
+                   "ON CONFLICT (product_id) DO UPDATE SET units_sold = product_sales.units_sold + EXCLUDED.units_sold",
+           nativeQuery = true)
+    int addUnitsSold(@Param("productId") String productId, @Param("quantity") long quantity);
+
+    // Transição condicional: só uma chamada concorrente vence (rows == 1)
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :to, r.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE r.id = :id AND r.status = :from")
+    int transition(
+            @Param("id") String id,
+            @Param("from") ReservationStatus from,
+            @Param("to") ReservationStatus to
+    );
+
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :to, r.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE r.id = :id AND r.status = :from AND r.expiresAt > :now")
+    int transitionIfNotExpired(
+            @Param("id") String id,
+            @Param("from") ReservationStatus from,
+            @Param("to") ReservationStatus to,
+            @Param("now") LocalDateTime now
+    );
+}
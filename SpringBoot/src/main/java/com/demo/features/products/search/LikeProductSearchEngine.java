@@ -0,0 +1,29 @@
+package com.demo.features.products.search;
+
+import com.demo.features.products.repository.ProductRepository;
+import com.demo.features.products.repository.ProductView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.products.search.engine", havingValue = "like")
+public class LikeProductSearchEngine implements ProductSearchEngine {
+
+    private static final Sort SORT = Sort.by("createdAt").descending().and(Sort.by("id").descending());
+
+    private final ProductRepository productRepository;
+
+    @Override
+    public Slice<ProductView> search(String term, Pageable pageable, boolean includeTotal) {
+        Pageable sorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), SORT);
+        return includeTotal
+                ? productRepository.findAllWithSearch(term, sorted)
+                : productRepository.findSliceWithSearch(term, sorted);
+    }
+}
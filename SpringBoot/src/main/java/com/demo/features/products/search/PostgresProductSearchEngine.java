@@ -0,0 +1,25 @@
+package com.demo.features.products.search;
+
+import com.demo.features.products.repository.ProductRepository;
+import com.demo.features.products.repository.ProductView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.products.search.engine", havingValue = "postgres", matchIfMissing = true)
+public class PostgresProductSearchEngine implements ProductSearchEngine {
+
+    private final ProductRepository productRepository;
+
+    @Override
+    public Slice<ProductView> search(String term, Pageable pageable, boolean includeTotal) {
+        String normalized = term.trim();
+        return includeTotal
+                ? productRepository.searchRanked(normalized, pageable)
+                : productRepository.searchRankedSlice(normalized, pageable);
+    }
+}
@@ -0,0 +1,14 @@
+package com.demo.features.products.search;
+
+import com.demo.features.products.repository.ProductView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+public interface ProductSearchEngine {
+
+    /**
+     * Busca produtos ativos pelo termo informado, ordenados por relevância.
+     * Retorna um {@link org.springframework.data.domain.Page} quando includeTotal é verdadeiro.
+     */
+    Slice<ProductView> search(String term, Pageable pageable, boolean includeTotal);
+}
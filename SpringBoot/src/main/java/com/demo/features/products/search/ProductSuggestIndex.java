@@ -0,0 +1,410 @@
+package com.demo.features.products.search;
+
+import com.demo.features.products.dto.ProductSuggestionResponse;
+import com.demo.features.products.repository.ProductNameView;
+import com.demo.features.products.repository.ProductRepository;
+import com.demo.features.products.repository.ProductSalesView;
+import com.demo.features.products.repository.StockReservationRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Índice em memória para o autocomplete por prefixo do nome. As chaves normalizadas (nome inteiro
+ * e a partir de cada palavra) ficam num mapa ordenado; prefixos curtos têm o top-K pré-calculado
+ * e os demais são resolvidos percorrendo o intervalo do prefixo. Nenhuma consulta vai ao banco:
+ * as escritas de produtos e as vendas chegam como mudanças por produto depois do commit.
+ */
+@Slf4j
+@Component
+public class ProductSuggestIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final Entry[] NONE = new Entry[0];
+
+    // Mais vendido primeiro; empates pelo nome e, por fim, pelo id, para uma ordem total
+    private static final Comparator<Entry> RANK = Comparator
+            .comparingLong(Entry::popularity).reversed()
+            .thenComparing(Entry::name, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(Entry::id);
+
+    private final ProductRepository productRepository;
+    private final StockReservationRepository stockReservationRepository;
+    private final MeterRegistry meterRegistry;
+    private final int topK;
+    private final int precomputedPrefixLength;
+    private final Timer reloadTimer;
+    private volatile Index index;
+    // Mudanças aplicadas enquanto uma recarga lê o banco, reaplicadas no índice novo; guardado por this
+    private List<Consumer<Index>> duringReload;
+
+    public ProductSuggestIndex(
+            ProductRepository productRepository,
+            StockReservationRepository stockReservationRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.products.suggest.top-k:10}") int topK,
+            @Value("${app.products.suggest.precomputed-prefix-length:3}") int precomputedPrefixLength
+    ) {
+        this.productRepository = productRepository;
+        this.stockReservationRepository = stockReservationRepository;
+        this.meterRegistry = meterRegistry;
+        this.topK = topK;
+        this.precomputedPrefixLength = precomputedPrefixLength;
+        this.reloadTimer = Timer.builder("products.suggest.rebuild")
+                .description("Tempo de recarga completa do índice de autocomplete")
+                .register(meterRegistry);
+        this.index = new Index(topK, precomputedPrefixLength);
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("products.suggest.keys", this, suggestIndex -> suggestIndex.index.keyCount)
+                .description("Chaves no índice de autocomplete")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void onReady() {
+        reload();
+    }
+
+    public List<ProductSuggestionResponse> suggest(String query, int limit) {
+        String prefix = normalize(query);
+        if (prefix.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Index current = index;
+        Entry[] top = prefix.length() <= precomputedPrefixLength
+                ? current.topByPrefix.getOrDefault(prefix, NONE)
+                : current.scanTop(prefix);
+
+        int size = Math.min(limit, top.length);
+        List<ProductSuggestionResponse> suggestions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            suggestions.add(new ProductSuggestionResponse(top[i].id(), top[i].name()));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Inclui o produto, ou troca o nome dele, depois do commit da transação corrente.
+     */
+    public void put(String productId, String name) {
+        afterCommit(current -> current.put(productId, name));
+    }
+
+    /**
+     * Tira o produto das sugestões depois do commit da transação corrente.
+     */
+    public void remove(String productId) {
+        afterCommit(current -> current.remove(productId));
+    }
+
+    /**
+     * Soma unidades vendidas à popularidade do produto depois do commit da transação corrente.
+     */
+    public void recordSale(String productId, long quantity) {
+        afterCommit(current -> current.recordSale(productId, quantity));
+    }
+
+    // Cobre escritas e vendas de outras réplicas, que não passam pelas mudanças desta
+    @Scheduled(
+            fixedDelayString = "${app.products.suggest.full-refresh-interval-ms:300000}",
+            initialDelayString = "${app.products.suggest.full-refresh-interval-ms:300000}"
+    )
+    void refreshPeriodically() {
+        reload();
+    }
+
+    void reload() {
+        synchronized (this) {
+            if (duringReload != null) {
+                return;
+            }
+            duringReload = new ArrayList<>();
+        }
+        try {
+            Index loaded = reloadTimer.recordCallable(() -> Index.load(
+                    productRepository.findAllByActiveTrue(ProductNameView.class),
+                    loadPopularity(),
+                    topK,
+                    precomputedPrefixLength
+            ));
+            synchronized (this) {
+                // Uma venda commitada antes da leitura pode contar duas vezes até a próxima recarga
+                duringReload.forEach(change -> change.accept(loaded));
+                index = loaded;
+                log.debug("Product suggest index reloaded with {} products and {} keys",
+                        loaded.products.size(), loaded.keyCount);
+            }
+        } catch (Exception e) {
+            // Mantém o índice atual: sugestões defasadas são melhores que nenhuma
+            log.error("Failed to reload product suggest index", e);
+        } finally {
+            synchronized (this) {
+                duringReload = null;
+            }
+        }
+    }
+
+    private void afterCommit(Consumer<Index> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private synchronized void apply(Consumer<Index> change) {
+        change.accept(index);
+        if (duringReload != null) {
+            duringReload.add(change);
+        }
+    }
+
+    private Map<String, Long> loadPopularity() {
+        return stockReservationRepository.findUnitsSold()
+                .stream()
+                .collect(Collectors.toMap(ProductSalesView::getProductId, ProductSalesView::getQuantity));
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String withoutAccents = MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+        return SPACES.matcher(withoutAccents.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Estrutura lida sem lock pelas sugestões e alterada por uma thread de cada vez (apply e
+     * reload). Os arrays guardados nos mapas nunca mudam depois de publicados: cada alteração grava
+     * um array novo, em ordem de rank, então uma leitura concorrente vê o antes ou o depois.
+     */
+    private static final class Index {
+
+        private final int topK;
+        private final int precomputedPrefixLength;
+        private final Map<String, Entry> products = new HashMap<>();
+        private final ConcurrentSkipListMap<String, Entry[]> keys = new ConcurrentSkipListMap<>();
+        private final Map<String, Entry[]> topByPrefix = new ConcurrentHashMap<>();
+        private volatile int keyCount;
+
+        Index(int topK, int precomputedPrefixLength) {
+            this.topK = topK;
+            this.precomputedPrefixLength = precomputedPrefixLength;
+        }
+
+        static Index load(List<ProductNameView> products, Map<String, Long> popularity, int topK, int precomputedPrefixLength) {
+            List<Entry> entries = new ArrayList<>(products.size());
+            for (ProductNameView product : products) {
+                entries.add(new Entry(product.getId(), product.getName(), popularity.getOrDefault(product.getId(), 0L),
+                        keysOf(product.getName())));
+            }
+            // Do melhor para o pior: depois de cheio, o top de cada prefixo só compara com o último
+            entries.sort(RANK);
+
+            Index loaded = new Index(topK, precomputedPrefixLength);
+            for (Entry entry : entries) {
+                loaded.replace(null, entry);
+            }
+            return loaded;
+        }
+
+        void put(String productId, String name) {
+            Entry old = products.get(productId);
+            if (old != null && old.name().equals(name)) {
+                return;
+            }
+            replace(old, new Entry(productId, name, old != null ? old.popularity() : 0L, keysOf(name)));
+        }
+
+        void remove(String productId) {
+            Entry old = products.get(productId);
+            if (old != null) {
+                replace(old, null);
+            }
+        }
+
+        void recordSale(String productId, long quantity) {
+            Entry old = products.get(productId);
+            if (old != null) {
+                replace(old, new Entry(productId, old.name(), old.popularity() + quantity, old.keys()));
+            }
+        }
+
+        Entry[] scanTop(String prefix) {
+            Entry[] best = NONE;
+            for (Entry[] sameKey : keys.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+                for (Entry entry : sameKey) {
+                    if (best.length == topK && RANK.compare(entry, best[topK - 1]) >= 0) {
+                        // O resto deste array tem rank pior ainda
+                        break;
+                    }
+                    best = insert(best, entry, topK);
+                }
+            }
+            return best;
+        }
+
+        // old nulo para produto novo, updated nulo para produto removido
+        private void replace(Entry old, Entry updated) {
+            Set<String> oldKeys = old != null ? old.keys() : Set.of();
+            Set<String> newKeys = updated != null ? updated.keys() : Set.of();
+
+            if (oldKeys == newKeys) {
+                // Venda: mesmas chaves, só a posição muda; uma busca no mapa por chave em vez de duas
+                for (String key : newKeys) {
+                    keys.computeIfPresent(key, (text, sameKey) -> insert(without(sameKey, old), updated, Integer.MAX_VALUE));
+                }
+            } else {
+                int count = keyCount;
+                for (String key : oldKeys) {
+                    keys.computeIfPresent(key, (text, sameKey) -> emptyToNull(without(sameKey, old)));
+                    count--;
+                }
+                for (String key : newKeys) {
+                    keys.merge(key, new Entry[]{updated}, (sameKey, single) -> insert(sameKey, updated, Integer.MAX_VALUE));
+                    count++;
+                }
+                keyCount = count;
+            }
+            if (updated != null) {
+                products.put(updated.id(), updated);
+            } else {
+                products.remove(old.id());
+            }
+
+            Set<String> oldPrefixes = prefixesOf(oldKeys);
+            Set<String> newPrefixes = prefixesOf(newKeys);
+            Set<String> affected = new LinkedHashSet<>(oldPrefixes);
+            affected.addAll(newPrefixes);
+            for (String prefix : affected) {
+                updateTop(prefix, old, newPrefixes.contains(prefix) ? updated : null);
+            }
+        }
+
+        private void updateTop(String prefix, Entry old, Entry updated) {
+            Entry[] current = topByPrefix.getOrDefault(prefix, NONE);
+            int position = old != null ? Arrays.binarySearch(current, old, RANK) : -1;
+
+            // Saiu de um top cheio sem garantia de continuar à frente de quem ficou de fora:
+            // o substituto só se descobre percorrendo o prefixo
+            boolean improved = updated != null && old != null && RANK.compare(updated, old) <= 0;
+            if (position >= 0 && current.length == topK && !improved) {
+                store(prefix, scanTop(prefix));
+                return;
+            }
+
+            Entry[] next = position >= 0 ? without(current, old) : current;
+            if (updated != null) {
+                next = insert(next, updated, topK);
+            }
+            store(prefix, next);
+        }
+
+        private void store(String prefix, Entry[] top) {
+            if (top.length == 0) {
+                topByPrefix.remove(prefix);
+            } else {
+                topByPrefix.put(prefix, top);
+            }
+        }
+
+        // Nome inteiro e a partir de cada palavra: "fone bluetooth" também casa com "blu"
+        private static Set<String> keysOf(String name) {
+            String normalized = normalize(name);
+            Set<String> keys = new LinkedHashSet<>();
+            int start = 0;
+            while (start < normalized.length()) {
+                keys.add(normalized.substring(start));
+                int space = normalized.indexOf(' ', start);
+                if (space < 0) {
+                    break;
+                }
+                start = space + 1;
+            }
+            return keys;
+        }
+
+        private Set<String> prefixesOf(Set<String> keys) {
+            Set<String> prefixes = new LinkedHashSet<>();
+            for (String key : keys) {
+                for (int length = 1; length <= Math.min(precomputedPrefixLength, key.length()); length++) {
+                    prefixes.add(key.substring(0, length));
+                }
+            }
+            return prefixes;
+        }
+
+        // Cópia com a entrada na posição do rank, com no máximo limit itens. Os arrays guardam as
+        // mesmas instâncias do mapa de produtos e RANK é uma ordem total: a busca binária acha a
+        // entrada exata, e um produto já presente (por outra chave do mesmo prefixo) não se repete
+        private static Entry[] insert(Entry[] ranked, Entry entry, int limit) {
+            int position = Arrays.binarySearch(ranked, entry, RANK);
+            if (position >= 0) {
+                return ranked;
+            }
+            position = -position - 1;
+            if (position >= limit) {
+                return ranked;
+            }
+            int size = Math.min(ranked.length + 1, limit);
+            Entry[] inserted = new Entry[size];
+            System.arraycopy(ranked, 0, inserted, 0, position);
+            inserted[position] = entry;
+            System.arraycopy(ranked, position, inserted, position + 1, size - position - 1);
+            return inserted;
+        }
+
+        private static Entry[] without(Entry[] ranked, Entry entry) {
+            int position = Arrays.binarySearch(ranked, entry, RANK);
+            if (position < 0) {
+                return ranked;
+            }
+            Entry[] removed = new Entry[ranked.length - 1];
+            System.arraycopy(ranked, 0, removed, 0, position);
+            System.arraycopy(ranked, position + 1, removed, position, removed.length - position);
+            return removed;
+        }
+
+        private static Entry[] emptyToNull(Entry[] ranked) {
+            return ranked.length > 0 ? ranked : null;
+        }
+    }
+
+    // keys: chaves normalizadas do nome, calculadas uma vez por nome e reaproveitadas nas vendas
+    private record Entry(String id, String name, long popularity, Set<String> keys) {}
+}
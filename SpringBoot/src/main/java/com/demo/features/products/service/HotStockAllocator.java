@@ -0,0 +1,224 @@
+package com.demo.features.products.service;
+
+import com.demo.features.products.cache.ProductCache;
+import com.demo.features.products.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Contadores em memória, divididos em stripes, para SKUs de alta concorrência. Cada stripe
+ * retira um lote de estoque do banco com o mesmo decremento condicional das reservas comuns,
+ * então nada é vendido além do que o banco liberou. Sobras só voltam ao banco quando o SKU fica
+ * ocioso por lease-idle-timeout, antes de uma escrita de estoque pelo admin e no shutdown; se o
+ * processo morrer, no máximo lease-size x stripes unidades por SKU ficam presas até um ajuste
+ * manual.
+ *
+ * <p>Leases abrem a própria transação: quem chama não deve estar dentro de outra, senão segura
+ * duas conexões do pool por reserva. Cada réplica drena só os próprios leases.
+ */
+@Slf4j
+@Component
+class HotStockAllocator {
+
+    private final ProductRepository productRepository;
+    private final ProductCache productCache;
+    private final TransactionTemplate leaseTransaction;
+    private final Set<String> hotSkus;
+    private final int leaseSize;
+    private final int stripes;
+    private final Duration idleTimeout;
+    private final Map<String, Leases> leases = new ConcurrentHashMap<>();
+
+    HotStockAllocator(
+            ProductRepository productRepository,
+            ProductCache productCache,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.products.stock.hot-skus:}") Set<String> hotSkus,
+            @Value("${app.products.stock.lease-size:50}") int leaseSize,
+            @Value("${app.products.stock.stripes:8}") int stripes,
+            @Value("${app.products.stock.lease-idle-timeout:30s}") Duration idleTimeout
+    ) {
+        this.productRepository = productRepository;
+        this.productCache = productCache;
+        this.leaseTransaction = new TransactionTemplate(transactionManager);
+        this.leaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.hotSkus = hotSkus;
+        this.leaseSize = leaseSize;
+        this.stripes = stripes;
+        this.idleTimeout = idleTimeout;
+
+        if (!hotSkus.isEmpty()) {
+            log.info("Hot stock allocator enabled for {} SKUs (lease-size: {}, stripes: {}, idle-timeout: {})",
+                    hotSkus.size(), leaseSize, stripes, idleTimeout);
+        }
+    }
+
+    boolean isHot(String productId) {
+        return hotSkus.contains(productId);
+    }
+
+    boolean take(String productId, int quantity) {
+        Leases sku = leasesFor(productId);
+        AtomicInteger stripe = sku.stripe();
+        sku.lastUsed = System.nanoTime();
+
+        while (true) {
+            if (tryTake(stripe, quantity)) {
+                return true;
+            }
+            synchronized (stripe) {
+                if (tryTake(stripe, quantity)) {
+                    return true;
+                }
+                // Read lock: leases novos esperam a escrita de estoque do admin terminar (drained)
+                sku.lock.readLock().lock();
+                try {
+                    int leased = lease(productId, quantity);
+                    if (leased == 0) {
+                        // Sobras de outros stripes podem cobrir o pedido: devolve tudo e tenta o exato
+                        flush(productId, sku);
+                        leased = lease(productId, quantity);
+                        if (leased == 0) {
+                            return false;
+                        }
+                    }
+                    stripe.addAndGet(leased);
+                } finally {
+                    sku.lock.readLock().unlock();
+                }
+            }
+        }
+    }
+
+    void giveBack(String productId, int quantity) {
+        Leases sku = leasesFor(productId);
+        sku.lock.readLock().lock();
+        try {
+            sku.stripe().addAndGet(quantity);
+        } finally {
+            sku.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Executa uma escrita absoluta de estoque com os leases do SKU drenados: as sobras voltam ao
+     * banco antes, e nenhum lease novo sai até a escrita terminar (transação já commitada), então
+     * o valor gravado não é somado a sobras antigas depois. A escrita não pode estar dentro de
+     * uma transação já aberta, senão o commit só acontece depois do unlock.
+     */
+    <T> T drained(String productId, Supplier<T> write) {
+        Leases sku = leasesFor(productId);
+        sku.lock.writeLock().lock();
+        try {
+            flush(productId, sku);
+            return write.get();
+        } finally {
+            sku.lock.writeLock().unlock();
+        }
+    }
+
+    // Só SKUs sem take há idle-timeout: nos quentes, devolver e retirar de novo a cada ciclo anularia o lote
+    @Scheduled(fixedDelayString = "${app.products.stock.flush-interval-ms:5000}")
+    void flushIdle() {
+        long idleSince = System.nanoTime() - idleTimeout.toNanos();
+        leases.forEach((productId, sku) -> {
+            if (sku.lastUsed - idleSince < 0 && sku.lock.readLock().tryLock()) {
+                try {
+                    flush(productId, sku);
+                } finally {
+                    sku.lock.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        leases.forEach((productId, sku) -> {
+            sku.lock.readLock().lock();
+            try {
+                flush(productId, sku);
+            } finally {
+                sku.lock.readLock().unlock();
+            }
+        });
+    }
+
+    private void flush(String productId, Leases sku) {
+        int leftover = 0;
+        for (AtomicInteger stripe : sku.stripes) {
+            leftover += stripe.getAndSet(0);
+        }
+        if (leftover == 0) {
+            return;
+        }
+
+        int returned = leftover;
+        leaseTransaction.executeWithoutResult(status -> {
+            productRepository.incrementStock(productId, returned);
+            productCache.evict(productId);
+        });
+        log.debug("Returned {} leased units of product {}", returned, productId);
+    }
+
+    private int lease(String productId, int quantity) {
+        int batch = Math.max(leaseSize, quantity);
+        Integer leased = leaseTransaction.execute(status -> {
+            int taken = productRepository.decrementStock(productId, batch) == 1 ? batch
+                    : productRepository.decrementStock(productId, quantity) == 1 ? quantity
+                    : 0;
+            if (taken > 0) {
+                productCache.evict(productId);
+            }
+            return taken;
+        });
+        return leased != null ? leased : 0;
+    }
+
+    private boolean tryTake(AtomicInteger stripe, int quantity) {
+        int available;
+        do {
+            available = stripe.get();
+            if (available < quantity) {
+                return false;
+            }
+        } while (!stripe.compareAndSet(available, available - quantity));
+        return true;
+    }
+
+    private Leases leasesFor(String productId) {
+        return leases.computeIfAbsent(productId, id -> new Leases(stripes));
+    }
+
+    private static final class Leases {
+        private final AtomicInteger[] stripes;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile long lastUsed = System.nanoTime();
+
+        Leases(int count) {
+            stripes = new AtomicInteger[count];
+            for (int i = 0; i < count; i++) {
+                stripes[i] = new AtomicInteger();
+            }
+        }
+
+        AtomicInteger stripe() {
+            return stripes[(int) (Thread.currentThread().threadId() % stripes.length)];
+        }
+    }
+}
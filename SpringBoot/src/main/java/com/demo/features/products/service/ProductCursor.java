@@ -0,0 +1,62 @@
+package com.demo.features.products.service;
+
+import com.demo.common.exception.BusinessException;
+import com.demo.features.products.dto.ProductResponse;
+import com.demo.features.products.repository.ProductSort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posição opaca de paginação keyset sobre (chave de ordenação, id). A chave é createdAt na
+ * ordenação padrão, na mesma ordem do índice idx_products_active_created_at_id, ou o preço
+ * nas ordenações por preço.
+ */
+record ProductCursor(String key, String id) {
+
+    private static final String SEPARATOR = "|";
+
+    static ProductCursor of(ProductResponse product, ProductSort sort) {
+        String key = sort == ProductSort.NEWEST
+                ? product.createdAt().toString()
+                : product.price().toPlainString();
+        return new ProductCursor(key, product.id());
+    }
+
+    LocalDateTime createdAt() {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (DateTimeParseException e) {
+            throw new BusinessException("Cursor inválido", e);
+        }
+    }
+
+    BigDecimal price() {
+        try {
+            return new BigDecimal(key);
+        } catch (NumberFormatException e) {
+            throw new BusinessException("Cursor inválido", e);
+        }
+    }
+
+    String encode() {
+        String raw = key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static ProductCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator <= 0 || separator == raw.length() - 1) {
+                throw new BusinessException("Cursor inválido");
+            }
+            return new ProductCursor(raw.substring(0, separator), raw.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("Cursor inválido", e);
+        }
+    }
+}
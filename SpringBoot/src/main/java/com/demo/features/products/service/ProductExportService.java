@@ -0,0 +1,106 @@
+package com.demo.features.products.service;
+
+import com.demo.common.exception.BusinessException;
+import com.demo.features.products.dto.ProductResponse;
+import com.demo.features.products.repository.ProductRepository;
+import com.demo.features.products.repository.ProductView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductExportService {
+
+    private static final String CSV_HEADER = "id,name,description,price,stock,imageUrl,createdById,createdAt,updatedAt";
+
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+
+    public enum ExportFormat {
+        NDJSON("application/x-ndjson"),
+        CSV("text/csv");
+
+        private final String contentType;
+
+        ExportFormat(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public static ExportFormat from(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new BusinessException("Formato de exportação inválido: use ndjson ou csv");
+            }
+        }
+    }
+
+    /**
+     * Escreve todos os produtos ativos direto na saída. O cursor do servidor (fetch size) e a
+     * projeção sem entidades mantêm a memória constante, sem contexto de persistência crescendo.
+     */
+    @Transactional(readOnly = true)
+    public long export(ExportFormat format, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long rows = 0;
+        try (Stream<ProductView> products = productRepository.streamAllActive()) {
+            for (ProductView product : (Iterable<ProductView>) products::iterator) {
+                ProductResponse response = ProductService.mapToResponse(product);
+                writer.write(format == ExportFormat.CSV ? toCsv(response) : objectMapper.writeValueAsString(response));
+                writer.write('\n');
+                rows++;
+            }
+        }
+        writer.flush();
+
+        log.info("Product export finished: {} rows as {}", rows, format);
+
+        return rows;
+    }
+
+    private String toCsv(ProductResponse product) {
+        return String.join(",",
+                csv(product.id()),
+                csv(product.name()),
+                csv(product.description()),
+                csv(product.price() != null ? product.price().toPlainString() : null),
+                csv(product.stock() != null ? product.stock().toString() : null),
+                csv(product.imageUrl()),
+                csv(product.createdById()),
+                csv(product.createdAt() != null ? product.createdAt().toString() : null),
+                csv(product.updatedAt() != null ? product.updatedAt().toString() : null)
+        );
+    }
+
+    private String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
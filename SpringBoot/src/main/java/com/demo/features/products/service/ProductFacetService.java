@@ -0,0 +1,80 @@
+package com.demo.features.products.service;
+
+import com.demo.features.products.dto.ProductFacetsResponse;
+import com.demo.features.products.dto.ProductFacetsResponse.PriceBucket;
+import com.demo.features.products.repository.ProductFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class ProductFacetService {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final List<BigDecimal> priceBuckets;
+
+    public ProductFacetService(
+            NamedParameterJdbcTemplate jdbcTemplate,
+            @Value("${app.products.facets.price-buckets:50,100,250,500,1000}") List<BigDecimal> priceBuckets
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.priceBuckets = priceBuckets.stream().distinct().sorted().toList();
+    }
+
+    /**
+     * Conta todas as facetas numa única varredura com agregados FILTER. Cada faceta ignora o
+     * próprio filtro (as faixas de preço não aplicam minPrice/maxPrice) para mostrar as opções
+     * que o usuário ainda pode escolher.
+     */
+    public ProductFacetsResponse count(ProductFilter filter) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String priceCondition = "TRUE";
+        if (filter.minPrice() != null) {
+            priceCondition += " AND price >= :minPrice";
+            params.addValue("minPrice", filter.minPrice());
+        }
+        if (filter.maxPrice() != null) {
+            priceCondition += " AND price <= :maxPrice";
+            params.addValue("maxPrice", filter.maxPrice());
+        }
+        String stockCondition = filter.inStock() ? "stock > 0" : "TRUE";
+
+        StringBuilder sql = new StringBuilder("SELECT ")
+                .append("count(*) FILTER (WHERE ").append(priceCondition).append(" AND ").append(stockCondition)
+                .append(") AS total, ")
+                .append("count(*) FILTER (WHERE ").append(priceCondition).append(" AND stock > 0) AS in_stock");
+        for (int i = 0; i <= priceBuckets.size(); i++) {
+            sql.append(", count(*) FILTER (WHERE ").append(stockCondition);
+            if (i > 0) {
+                sql.append(" AND price >= :bucket").append(i - 1);
+            }
+            if (i < priceBuckets.size()) {
+                sql.append(" AND price < :bucket").append(i);
+                params.addValue("bucket" + i, priceBuckets.get(i));
+            }
+            sql.append(") AS bucket_").append(i);
+        }
+        sql.append(" FROM products WHERE active = TRUE");
+        if (filter.createdBy() != null) {
+            sql.append(" AND created_by_id = :createdBy");
+            params.addValue("createdBy", filter.createdBy());
+        }
+
+        return jdbcTemplate.queryForObject(sql.toString(), params, (rs, rowNum) -> {
+            List<PriceBucket> buckets = new ArrayList<>(priceBuckets.size() + 1);
+            for (int i = 0; i <= priceBuckets.size(); i++) {
+                buckets.add(new PriceBucket(
+                        i == 0 ? BigDecimal.ZERO : priceBuckets.get(i - 1),
+                        i < priceBuckets.size() ? priceBuckets.get(i) : null,
+                        rs.getLong("bucket_" + i)
+                ));
+            }
+            return new ProductFacetsResponse(rs.getLong("total"), rs.getLong("in_stock"), buckets);
+        });
+    }
+}
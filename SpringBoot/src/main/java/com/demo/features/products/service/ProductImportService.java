@@ -0,0 +1,309 @@
+package com.demo.features.products.service;
+
+import com.demo.common.exception.BusinessException;
+import com.demo.common.exception.ResourceNotFoundException;
+import com.demo.common.web.CsvLine;
+import com.demo.features.products.cache.ProductCache;
+import com.demo.features.products.dto.CreateProductRequest;
+import com.demo.features.products.dto.ProductImportResponse;
+import com.demo.features.products.dto.ProductImportResponse.RowError;
+import com.demo.features.products.search.ProductSuggestIndex;
+import com.demo.features.users.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Importação em massa: lê CSV ou NDJSON linha a linha, valida cada linha com as mesmas regras de
+ * CreateProductRequest e grava em lotes JDBC, cada lote na sua própria transação. A memória fica
+ * limitada a um lote mais o relatório de erros (truncado em max-errors).
+ */
+@Slf4j
+@Service
+public class ProductImportService {
+
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private static final String INSERT_SQL = "INSERT INTO products " +
+            "(id, name, description, price, stock, image_url, active, created_by_id, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, TRUE, ?, ?, ?)";
+
+    private static final List<String> CSV_COLUMNS = List.of("name", "description", "price", "stock", "imageUrl");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+    private final ProductCache productCache;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int batchSize;
+    private final int maxErrors;
+
+    public ProductImportService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            UserRepository userRepository,
+            ProductCache productCache,
+            ProductSuggestIndex productSuggestIndex,
+            ObjectMapper objectMapper,
+            Validator validator,
+            @Value("${app.products.import.batch-size:1000}") int batchSize,
+            @Value("${app.products.import.max-errors:1000}") int maxErrors
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userRepository = userRepository;
+        this.productCache = productCache;
+        this.productSuggestIndex = productSuggestIndex;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    public ProductImportResponse importProducts(String userId, MediaType contentType, InputStream input) throws IOException {
+        boolean csv = TEXT_CSV.isCompatibleWith(contentType);
+        if (!csv && !APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            throw new BusinessException("Formato não suportado: use text/csv ou application/x-ndjson");
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("Usuário não encontrado");
+        }
+
+        ImportReport report = new ImportReport(maxErrors);
+        List<Row> batch = new ArrayList<>(batchSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            Map<String, Integer> header = csv ? readCsvHeader(reader) : null;
+            long nextLine = csv ? 2 : 1;
+
+            String text;
+            while ((text = csv ? CsvLine.readRecord(reader, nextLine) : reader.readLine()) != null) {
+                // Registros CSV com quebras de linha entre aspas ocupam mais de uma linha física
+                long line = nextLine;
+                nextLine += 1 + text.chars().filter(c -> c == '\n').count();
+                if (text.isBlank()) {
+                    continue;
+                }
+                report.totalRows++;
+
+                try {
+                    CreateProductRequest request = csv ? parseCsv(text, header) : parseJson(text);
+                    String violations = validate(request);
+                    if (violations != null) {
+                        report.fail(line, violations);
+                        continue;
+                    }
+                    batch.add(new Row(line, request));
+                } catch (IllegalArgumentException e) {
+                    report.fail(line, e.getMessage());
+                    continue;
+                }
+
+                if (batch.size() >= batchSize) {
+                    flush(userId, batch, report);
+                }
+            }
+        }
+        flush(userId, batch, report);
+
+        if (report.imported > 0) {
+            productCache.evictAll();
+        }
+
+        log.info("Product import by user {}: {} rows, {} imported, {} failed",
+                userId, report.totalRows, report.imported, report.failed);
+
+        return new ProductImportResponse(
+                report.totalRows,
+                report.imported,
+                report.failed,
+                report.errors,
+                report.failed > report.errors.size()
+        );
+    }
+
+    private void flush(String userId, List<Row> batch, ImportReport report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> params = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            CreateProductRequest request = row.request();
+            params.add(new Object[]{
+                    UUID.randomUUID().toString(),
+                    request.name(),
+                    request.description(),
+                    request.price(),
+                    request.stock(),
+                    request.imageUrl(),
+                    userId,
+                    now,
+                    now
+            });
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, params));
+            report.imported += batch.size();
+            params.forEach(this::suggest);
+        } catch (DataAccessException e) {
+            // Uma linha que o banco recusa (tamanho de coluna, precisão do preço) derruba o lote
+            // inteiro: regrava linha a linha, cada uma na sua transação, para reportar só as culpadas
+            log.warn("Product import batch failed (lines {}-{}), retrying row by row: {}",
+                    batch.get(0).line(), batch.get(batch.size() - 1).line(), databaseMessage(e));
+            for (int i = 0; i < batch.size(); i++) {
+                Object[] row = params.get(i);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(INSERT_SQL, row));
+                    report.imported++;
+                    suggest(row);
+                } catch (DataAccessException rowError) {
+                    report.fail(batch.get(i).line(), "Falha ao gravar a linha: " + databaseMessage(rowError));
+                }
+            }
+        }
+        batch.clear();
+    }
+
+    // Linha já commitada: id e nome nas duas primeiras posições de INSERT_SQL
+    private void suggest(Object[] row) {
+        productSuggestIndex.put((String) row[0], (String) row[1]);
+    }
+
+    // Só a primeira linha da mensagem do banco: o Detail do Postgres repete a linha inteira
+    private static String databaseMessage(DataAccessException e) {
+        String message = String.valueOf(e.getMostSpecificCause().getMessage());
+        int newline = message.indexOf('\n');
+        return (newline >= 0 ? message.substring(0, newline) : message).replaceFirst("^ERROR: ", "");
+    }
+
+    private Map<String, Integer> readCsvHeader(BufferedReader reader) throws IOException {
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            return Map.of();
+        }
+
+        List<String> columns = CsvLine.split(headerLine.replace("\uFEFF", ""));
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            header.put(columns.get(i).trim(), i);
+        }
+        if (!header.containsKey("name") || !header.containsKey("price") || !header.containsKey("stock")) {
+            throw new BusinessException("Cabeçalho CSV deve conter as colunas " + CSV_COLUMNS);
+        }
+        return header;
+    }
+
+    private CreateProductRequest parseCsv(String line, Map<String, Integer> header) {
+        List<String> values = CsvLine.split(line);
+        return new CreateProductRequest(
+                column(values, header, "name"),
+                column(values, header, "description"),
+                parseDecimal(column(values, header, "price")),
+                parseInteger(column(values, header, "stock")),
+                column(values, header, "imageUrl")
+        );
+    }
+
+    private CreateProductRequest parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, CreateProductRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("JSON inválido");
+        }
+    }
+
+    private String validate(CreateProductRequest request) {
+        Set<ConstraintViolation<CreateProductRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private String column(List<String> values, Map<String, Integer> header, String name) {
+        Integer index = header.get(name);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private BigDecimal parseDecimal(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("price: valor numérico inválido");
+        }
+    }
+
+    private Integer parseInteger(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("stock: valor inteiro inválido");
+        }
+    }
+
+    private record Row(long line, CreateProductRequest request) {}
+
+    private static final class ImportReport {
+
+        private final int maxErrors;
+        private final List<RowError> errors = new ArrayList<>();
+        private long totalRows;
+        private long imported;
+        private long failed;
+
+        private ImportReport(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        private void fail(long line, String message) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new RowError(line, message));
+            }
+        }
+    }
+}
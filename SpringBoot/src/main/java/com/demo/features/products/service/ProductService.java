@@ -1,13 +1,25 @@
 package com.demo.features.products.service;
 
+import com.demo.features.products.repository.ProductFilter;
 import com.demo.features.products.repository.ProductRepository;
+import com.demo.features.products.repository.ProductSort;
+import com.demo.features.products.repository.ProductSpecifications;
+import com.demo.features.products.repository.ProductView;
 
 import com.demo.common.exception.BusinessException;
 import com.demo.common.exception.ResourceNotFoundException;
+import com.demo.common.persistence.SparseQuery;
+import com.demo.common.web.FieldSelection;
+import com.demo.features.products.cache.ProductCache;
 import com.demo.features.products.dto.CreateProductRequest;
+import com.demo.features.products.dto.ProductBatchResponse;
+import com.demo.features.products.dto.ProductFacetsResponse;
 import com.demo.features.products.dto.ProductListResponse;
 import com.demo.features.products.dto.ProductResponse;
+import com.demo.features.products.dto.ProductSuggestionResponse;
 import com.demo.features.products.dto.UpdateProductRequest;
+import com.demo.features.products.search.ProductSearchEngine;
+import com.demo.features.products.search.ProductSuggestIndex;
 import com.demo.domain.User;
 import com.demo.domain.Product;
 import com.demo.features.users.repository.UserRepository;
@@ -15,21 +27,48 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ProductService {
 
+    static final int MAX_LIST_LIMIT = 100;
+
+    private static final Map<String, String> COLUMNS = Map.of(
+            "id", "id",
+            "name", "name",
+            "description", "description",
+            "price", "price",
+            "stock", "stock",
+            "imageUrl", "imageUrl",
+            "createdById", "createdBy.id",
+            "createdAt", "createdAt",
+            "updatedAt", "updatedAt"
+    );
+
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final ProductSearchEngine productSearchEngine;
+    private final ProductCache productCache;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ProductFacetService productFacetService;
+    private final SparseQuery sparseQuery;
+    private final HotStockAllocator hotStockAllocator;
+    private final TransactionTemplate transactionTemplate;
 
     @Transactional
     public ProductResponse create(String userId, CreateProductRequest request) {
@@ -54,38 +93,171 @@ public class ProductService {
                 .build();
 
         product = productRepository.save(product);
+        productCache.evict(product.getId());
+        productSuggestIndex.put(product.getId(), product.getName());
 
         log.info("Product created: {} by user {}", product.getId(), userId);
 
         return mapToResponse(product);
     }
 
-    public ProductListResponse list(int page, int limit, String search) {
-        Pageable pageable = PageRequest.of(page - 1, limit, Sort.by("createdAt").descending());
-        Page<Product> productPage = productRepository.findAllWithSearch(search, pageable);
+    public ProductListResponse list(
+            int page,
+            int limit,
+            String search,
+            String cursor,
+            boolean includeTotal,
+            ProductFilter filter,
+            boolean facets,
+            FieldSelection fields
+    ) {
+        validatePage(page, limit);
+        ListQuery query = new ListQuery(page, limit, search, cursor, includeTotal, filter, facets, fields);
+        return productCache.getPage(query, () -> loadList(query));
+    }
 
-        List<ProductResponse> products = productPage.getContent()
-                .stream()
-                .map(this::mapToResponse)
-                .toList();
+    // Antes de qualquer consulta: limit fora do intervalo viraria "sem limite" ou índice negativo
+    private static void validatePage(int page, int limit) {
+        if (limit < 1 || limit > MAX_LIST_LIMIT) {
+            throw new BusinessException("Limite deve estar entre 1 e " + MAX_LIST_LIMIT);
+        }
+        if (page < 1) {
+            throw new BusinessException("Página deve ser maior ou igual a 1");
+        }
+        if ((long) (page - 1) * limit > Integer.MAX_VALUE) {
+            throw new BusinessException("Página fora do intervalo; use cursor para ir tão longe");
+        }
+    }
 
+    private ProductListResponse loadList(ListQuery query) {
+        boolean hasSearch = query.search() != null && !query.search().isBlank();
+        boolean hasCursor = query.cursor() != null && !query.cursor().isBlank();
+
+        if (!hasSearch) {
+            return listActive(query, hasCursor);
+        }
+        if (hasCursor) {
+            throw new BusinessException("Paginação por cursor não é suportada em buscas; use page");
+        }
+        if (!query.filter().isDefault() || query.facets()) {
+            throw new BusinessException("Filtros, ordenação e facetas não são suportados em buscas");
+        }
+
+        Slice<ProductView> results = productSearchEngine.search(
+                query.search(), PageRequest.of(query.page() - 1, query.limit()), query.includeTotal());
         return new ProductListResponse(
-                products,
-                productPage.getTotalElements(),
-                page,
-                limit
+                results.getContent().stream().map(ProductService::mapToResponse).toList(),
+                results instanceof Page<ProductView> productPage ? productPage.getTotalElements() : null,
+                query.page(),
+                query.limit(),
+                null,
+                null
+        );
+    }
+
+    /**
+     * Listagem sem busca, por Specification com projeção dinâmica: atende filtros, ordenação,
+     * cursor keyset e fields=, buscando só as colunas pedidas (mais id e a chave do cursor).
+     */
+    private ProductListResponse listActive(ListQuery query, boolean hasCursor) {
+        ProductFilter filter = query.filter();
+        ProductSort sort = filter.sort();
+        Specification<Product> spec = ProductSpecifications.matching(filter);
+        FieldSelection columns = query.fields().with("id", sort == ProductSort.NEWEST ? "createdAt" : "price");
+        int limit = query.limit();
+
+        Specification<Product> pageSpec = spec;
+        long offset = (long) (query.page() - 1) * limit;
+        if (hasCursor) {
+            ProductCursor cursor = ProductCursor.decode(query.cursor());
+            pageSpec = spec.and(switch (sort) {
+                case NEWEST -> ProductSpecifications.createdBefore(cursor.createdAt(), cursor.id());
+                case PRICE_ASC -> ProductSpecifications.priceAfter(cursor.price(), cursor.id());
+                case PRICE_DESC -> ProductSpecifications.priceBefore(cursor.price(), cursor.id());
+            });
+            offset = 0;
+        }
+
+        List<ProductResponse> rows = sparseQuery.find(
+                Product.class,
+                COLUMNS,
+                columns,
+                pageSpec,
+                sort.toSort(),
+                offset,
+                limit + 1,
+                ProductService::mapToResponse
+        );
+        boolean hasNext = rows.size() > limit;
+        List<ProductResponse> content = hasNext ? rows.subList(0, limit) : rows;
+        String nextCursor = hasNext ? ProductCursor.of(content.get(content.size() - 1), sort).encode() : null;
+
+        return new ProductListResponse(
+                content,
+                query.includeTotal() ? productRepository.count(spec) : null,
+                query.page(),
+                limit,
+                nextCursor,
+                query.facets() ? productFacetService.count(filter) : null
         );
     }
 
     public ProductResponse getById(String id) {
-        Product product = productRepository.findByIdAndActiveTrue(id)
+        return productCache.getById(id, this::loadById);
+    }
+
+    public List<ProductSuggestionResponse> suggest(String query, int limit) {
+        return productSuggestIndex.suggest(query, limit);
+    }
+
+    public ProductBatchResponse getByIds(List<String> ids) {
+        List<String> requested = ids.stream().distinct().toList();
+        Map<String, ProductResponse> found = productCache.getAllById(requested, this::loadByIds);
+
+        List<ProductResponse> products = new ArrayList<>(found.size());
+        List<String> missingIds = new ArrayList<>();
+        for (String id : requested) {
+            ProductResponse product = found.get(id);
+            if (product != null) {
+                products.add(product);
+            } else {
+                missingIds.add(id);
+            }
+        }
+
+        return new ProductBatchResponse(products, missingIds);
+    }
+
+    private Map<String, ProductResponse> loadByIds(Set<? extends String> ids) {
+        return productRepository.findViewsByIdInAndActiveTrue(List.copyOf(ids))
+                .stream()
+                .collect(Collectors.toMap(ProductView::getId, ProductService::mapToResponse));
+    }
+
+    public LocalDateTime getVersion(String id) {
+        ProductResponse cached = productCache.peek(id);
+        if (cached != null) {
+            return cached.updatedAt() != null ? cached.updatedAt() : cached.createdAt();
+        }
+        return productRepository.findVersionByIdAndActiveTrue(id).orElse(null);
+    }
+
+    private ProductResponse loadById(String id) {
+        ProductView product = productRepository.findViewByIdAndActiveTrue(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Produto não encontrado"));
 
         return mapToResponse(product);
     }
 
-    @Transactional
     public ProductResponse update(String id, UpdateProductRequest request) {
+        if (request.stock() != null && hotStockAllocator.isHot(id)) {
+            // Estoque absoluto de um SKU quente: as sobras dos leases não podem voltar por cima dele
+            return hotStockAllocator.drained(id, () -> transactionTemplate.execute(status -> applyUpdate(id, request)));
+        }
+        return transactionTemplate.execute(status -> applyUpdate(id, request));
+    }
+
+    private ProductResponse applyUpdate(String id, UpdateProductRequest request) {
         Product product = productRepository.findByIdAndActiveTrue(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Produto não encontrado"));
 
@@ -114,6 +286,10 @@ public class ProductService {
         }
 
         product = productRepository.save(product);
+        productCache.evict(id);
+        if (request.name() != null) {
+            productSuggestIndex.put(id, product.getName());
+        }
 
         log.info("Product updated: {}", product.getId());
 
@@ -127,6 +303,8 @@ public class ProductService {
 
         product.setActive(false);
         productRepository.save(product);
+        productCache.evict(id);
+        productSuggestIndex.remove(id);
 
         log.info("Product deactivated: {}", id);
     }
@@ -144,4 +322,43 @@ public class ProductService {
                 product.getUpdatedAt()
         );
     }
+
+    private static ProductResponse mapToResponse(SparseQuery.Row row) {
+        return new ProductResponse(
+                row.get("id"),
+                row.get("name"),
+                row.get("description"),
+                row.get("price"),
+                row.get("stock"),
+                row.get("imageUrl"),
+                row.get("createdById"),
+                row.get("createdAt"),
+                row.get("updatedAt")
+        );
+    }
+
+    static ProductResponse mapToResponse(ProductView product) {
+        return new ProductResponse(
+                product.getId(),
+                product.getName(),
+                product.getDescription(),
+                product.getPrice(),
+                product.getStock(),
+                product.getImageUrl(),
+                product.getCreatedById(),
+                product.getCreatedAt(),
+                product.getUpdatedAt()
+        );
+    }
+
+    private record ListQuery(
+            int page,
+            int limit,
+            String search,
+            String cursor,
+            boolean includeTotal,
+            ProductFilter filter,
+            boolean facets,
+            FieldSelection fields
+    ) {}
 }
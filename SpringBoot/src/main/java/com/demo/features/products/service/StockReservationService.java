@@ -0,0 +1,192 @@
+package com.demo.features.products.service;
+
+import com.demo.common.exception.BusinessException;
+import com.demo.common.exception.ResourceNotFoundException;
+import com.demo.domain.StockReservation;
+import com.demo.domain.StockReservation.ReservationStatus;
+import com.demo.features.products.cache.ProductCache;
+import com.demo.features.products.dto.StockReservationResponse;
+import com.demo.features.products.repository.ProductRepository;
+import com.demo.features.products.repository.StockReservationRepository;
+import com.demo.features.products.search.ProductSuggestIndex;
+import com.demo.features.users.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+public class StockReservationService {
+
+    private static final int EXPIRATION_BATCH_SIZE = 500;
+
+    private final StockReservationRepository reservationRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final ProductCache productCache;
+    private final HotStockAllocator hotStockAllocator;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration reservationTtl;
+
+    public StockReservationService(
+            StockReservationRepository reservationRepository,
+            ProductRepository productRepository,
+            UserRepository userRepository,
+            ProductCache productCache,
+            HotStockAllocator hotStockAllocator,
+            ProductSuggestIndex productSuggestIndex,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.products.stock.reservation-ttl:10m}") Duration reservationTtl
+    ) {
+        this.reservationRepository = reservationRepository;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.productCache = productCache;
+        this.hotStockAllocator = hotStockAllocator;
+        this.productSuggestIndex = productSuggestIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.reservationTtl = reservationTtl;
+    }
+
+    public StockReservationResponse reserve(String userId, String productId, int quantity) {
+        if (!hotStockAllocator.isHot(productId)) {
+            return transactionTemplate.execute(status -> {
+                if (productRepository.decrementStock(productId, quantity) == 0) {
+                    throw insufficientStock(productId);
+                }
+                productCache.evict(productId);
+                return saveReservation(userId, productId, quantity);
+            });
+        }
+
+        // O lease (transação própria) sai antes da transação da reserva: uma conexão do pool por vez
+        if (!hotStockAllocator.take(productId, quantity)) {
+            throw insufficientStock(productId);
+        }
+        try {
+            return transactionTemplate.execute(status -> saveReservation(userId, productId, quantity));
+        } catch (RuntimeException e) {
+            hotStockAllocator.giveBack(productId, quantity);
+            throw e;
+        }
+    }
+
+    @Transactional
+    public StockReservationResponse commit(String userId, String reservationId) {
+        StockReservation reservation = findReservation(reservationId, userId);
+
+        int updated = reservationRepository.transitionIfNotExpired(
+                reservationId, ReservationStatus.RESERVED, ReservationStatus.COMMITTED, LocalDateTime.now());
+        if (updated == 0) {
+            throw new BusinessException("Reserva expirada ou já finalizada");
+        }
+
+        // Popularidade do autocomplete: contador por produto em vez de somar as reservas a cada leitura
+        String productId = reservation.getProduct().getId();
+        reservationRepository.addUnitsSold(productId, reservation.getQuantity());
+        productSuggestIndex.recordSale(productId, reservation.getQuantity());
+
+        log.info("Stock reservation committed: {}", reservationId);
+
+        return new StockReservationResponse(
+                reservation.getId(),
+                productId,
+                reservation.getQuantity(),
+                ReservationStatus.COMMITTED,
+                reservation.getExpiresAt(),
+                reservation.getCreatedAt()
+        );
+    }
+
+    @Transactional
+    public void release(String userId, String reservationId) {
+        StockReservation reservation = findReservation(reservationId, userId);
+
+        int updated = reservationRepository.transition(
+                reservationId, ReservationStatus.RESERVED, ReservationStatus.RELEASED);
+        if (updated == 0) {
+            throw new BusinessException("Reserva já finalizada");
+        }
+
+        restoreStock(reservation.getProduct().getId(), reservation.getQuantity());
+
+        log.info("Stock reservation released: {}", reservationId);
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${app.products.stock.expiration-interval-ms:30000}")
+    public void expireReservations() {
+        List<StockReservation> expired = reservationRepository.findByStatusAndExpiresAtBefore(
+                ReservationStatus.RESERVED, LocalDateTime.now(), Limit.of(EXPIRATION_BATCH_SIZE));
+
+        Map<String, Integer> restored = new HashMap<>();
+        for (StockReservation reservation : expired) {
+            // Outra réplica pode ter expirado a mesma reserva; só quem faz a transição devolve o estoque
+            if (reservationRepository.transition(
+                    reservation.getId(), ReservationStatus.RESERVED, ReservationStatus.EXPIRED) == 1) {
+                restored.merge(reservation.getProduct().getId(), reservation.getQuantity(), Integer::sum);
+            }
+        }
+
+        restored.forEach(this::restoreStock);
+
+        if (!restored.isEmpty()) {
+            log.info("Expired stock reservations released for {} products", restored.size());
+        }
+    }
+
+    private void restoreStock(String productId, int quantity) {
+        productRepository.incrementStock(productId, quantity);
+        productCache.evict(productId);
+    }
+
+    private StockReservationResponse saveReservation(String userId, String productId, int quantity) {
+        StockReservation reservation = StockReservation.builder()
+                .product(productRepository.getReferenceById(productId))
+                .user(userRepository.getReferenceById(userId))
+                .quantity(quantity)
+                .status(ReservationStatus.RESERVED)
+                .expiresAt(LocalDateTime.now().plus(reservationTtl))
+                .build();
+
+        reservation = reservationRepository.save(reservation);
+
+        log.info("Stock reserved: {} x{} of product {} by user {}", reservation.getId(), quantity, productId, userId);
+
+        return mapToResponse(reservation);
+    }
+
+    private StockReservation findReservation(String reservationId, String userId) {
+        return reservationRepository.findByIdAndUserId(reservationId, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Reserva não encontrada"));
+    }
+
+    private RuntimeException insufficientStock(String productId) {
+        if (!productRepository.existsByIdAndActiveTrue(productId)) {
+            return new ResourceNotFoundException("Produto não encontrado");
+        }
+        return new BusinessException("Estoque insuficiente");
+    }
+
+    private StockReservationResponse mapToResponse(StockReservation reservation) {
+        return new StockReservationResponse(
+                reservation.getId(),
+                reservation.getProduct().getId(),
+                reservation.getQuantity(),
+                reservation.getStatus(),
+                reservation.getExpiresAt(),
+                reservation.getCreatedAt()
+        );
+    }
+}
@@ -2,6 +2,7 @@ package com.demo.features.users.controller;
 
 import com.demo.features.users.service.UserService;
 
+import com.demo.common.web.ConditionalGet;
 import com.demo.features.users.dto.UpdateUserRequest;
 import com.demo.features.users.dto.UserResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -17,6 +18,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDateTime;
 
 @RestController
 @RequestMapping("/users")
@@ -27,10 +31,16 @@ public class UserController {
     private final UserService userService;
 
     @GetMapping("/me")
-    public ResponseEntity<UserResponse> getMe(Authentication auth) {
+    public ResponseEntity<UserResponse> getMe(Authentication auth, WebRequest request) {
         String userId = auth.getName();
+        LocalDateTime version = userService.getVersion(userId);
+        if (ConditionalGet.isNotModified(request, userId, version)) {
+            return ConditionalGet.notModified(userId, version);
+        }
+
         UserResponse response = userService.getById(userId);
-        return ResponseEntity.ok(response);
+        LocalDateTime responseVersion = response.updatedAt() != null ? response.updatedAt() : response.createdAt();
+        return ConditionalGet.ok(userId, responseVersion, response);
     }
 
     @GetMapping("/{id}")
@@ -2,8 +2,11 @@ package com.demo.features.users.repository;
 
 import com.demo.domain.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
@@ -14,4 +17,7 @@ public interface UserRepository extends JpaRepository<User, String> {
     Optional<User> findByEmailConfirmationToken(String token);
 
     boolean existsByEmail(String email);
+
+    @Query("SELECT COALESCE(u.updatedAt, u.createdAt) FROM User u WHERE u.id = :id")
+    Optional<LocalDateTime> findVersionById(@Param("id") String id);
 }
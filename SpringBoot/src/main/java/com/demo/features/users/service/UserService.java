@@ -12,6 +12,8 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -27,6 +29,10 @@ public class UserService {
         return mapToResponse(user);
     }
 
+    public LocalDateTime getVersion(String id) {
+        return userRepository.findVersionById(id).orElse(null);
+    }
+
     public UserResponse getByEmail(String email) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new ResourceNotFoundException("UsuÃƒÆ’Ã‚Â¡rio nÃƒÆ’Ã‚Â£o encontrado"));
@@ -0,0 +1,105 @@
+package com.demo.infrastructure.geolocation;
+
+import com.demo.infrastructure.geolocation.GoogleMapsService.GeocodingResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Geocodificador offline: devolve o centróide do prefixo de CEP mais longo presente na base
+ * (prefix,latitude,longitude,city,state). Cada prefixo é uma chave de HashMap, então a busca são
+ * no máximo cinco consultas O(1), sem rede. Os resultados saem com approximate = true.
+ *
+ * A base embutida (geo/cep-centroids.csv) tem prefixos de 3 dígitos com o centróide da capital
+ * ou do estado, o suficiente para testes de carga e modo degradado; uma base mais fina (prefixos
+ * de 5 dígitos, por exemplo) entra por app.google-maps.offline.dataset sem mudar o código.
+ */
+@Slf4j
+@Component
+public class CepCentroidGeocoder implements Geocoder {
+
+    private static final Pattern ZIP_CODE = Pattern.compile("\\b(\\d{5})\\s*-?\\s*(\\d{3})\\b");
+    private static final int MAX_PREFIX_LENGTH = 5;
+
+    private final Map<String, Centroid> centroids;
+
+    public CepCentroidGeocoder(
+            ResourceLoader resourceLoader,
+            @Value("${app.google-maps.offline.dataset:classpath:geo/cep-centroids.csv}") String dataset
+    ) {
+        this.centroids = load(resourceLoader.getResource(dataset));
+        log.info("Offline CEP geocoder loaded {} prefixes from {}", centroids.size(), dataset);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return !centroids.isEmpty();
+    }
+
+    @Override
+    public GeocodingResult geocode(String address) {
+        // Último CEP do texto: o formato usado pelo worker termina com ele
+        Matcher matcher = ZIP_CODE.matcher(address);
+        String zipCode = null;
+        while (matcher.find()) {
+            zipCode = matcher.group(1) + matcher.group(2);
+        }
+        if (zipCode == null) {
+            return null;
+        }
+
+        for (int length = MAX_PREFIX_LENGTH; length >= 1; length--) {
+            Centroid centroid = centroids.get(zipCode.substring(0, length));
+            if (centroid != null) {
+                return new GeocodingResult(centroid.latitude(), centroid.longitude(), null,
+                        centroid.label(), true);
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, Centroid> load(Resource resource) {
+        Map<String, Centroid> centroids = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            reader.readLine();
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                if (fields.length < 5 || fields[0].isEmpty() || fields[0].length() > MAX_PREFIX_LENGTH) {
+                    log.warn("Skipping invalid CEP centroid line: {}", line);
+                    continue;
+                }
+                String city = fields[3].trim();
+                String state = fields[4].trim();
+                centroids.put(fields[0].trim(), new Centroid(
+                        Double.parseDouble(fields[1]),
+                        Double.parseDouble(fields[2]),
+                        city.isEmpty() ? state : city + " - " + state
+                ));
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Sem base o geocodificador só fica indisponível; a aplicação sobe do mesmo jeito
+            log.error("Failed to load CEP centroids from {}: {}", resource, e.getMessage());
+            return Map.of();
+        }
+        return centroids;
+    }
+
+    private record Centroid(double latitude, double longitude, String label) {}
+}
@@ -0,0 +1,107 @@
+package com.demo.infrastructure.geolocation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+
+/**
+ * Circuit breaker por falhas consecutivas. Depois de failureThreshold falhas seguidas o circuito
+ * abre e as chamadas são recusadas sem tocar na rede durante openDuration; passado esse tempo,
+ * até halfOpenCalls chamadas de teste decidem se ele fecha de novo ou volta a abrir.
+ *
+ * Cada transição incrementa {name}.circuit-breaker.transitions{from,to}; o estado atual fica no
+ * gauge {name}.circuit-breaker.state (0 fechado, 1 aberto, 2 meio-aberto).
+ */
+@Slf4j
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final MeterRegistry meterRegistry;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private int trialCalls;
+
+    CircuitBreaker(String name, int failureThreshold, Duration openDuration, int halfOpenCalls,
+                   MeterRegistry meterRegistry) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder(name + ".circuit-breaker.state", this, breaker -> breaker.state().ordinal())
+                .description("Estado do circuit breaker: 0 fechado, 1 aberto, 2 meio-aberto")
+                .register(meterRegistry);
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    /**
+     * false quando a chamada deve ir direto para o fallback.
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return false;
+            }
+            transition(State.HALF_OPEN);
+            trialCalls = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialCalls >= halfOpenCalls) {
+                return false;
+            }
+            trialCalls++;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (state == State.HALF_OPEN) {
+            transition(State.CLOSED);
+        }
+    }
+
+    synchronized void onFailure() {
+        // Chamadas lentas que terminam depois da abertura não reiniciam a contagem do tempo aberto
+        if (state == State.OPEN) {
+            return;
+        }
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            transition(State.OPEN);
+            openedAt = System.nanoTime();
+            consecutiveFailures = 0;
+        }
+    }
+
+    private void transition(State to) {
+        State from = state;
+        state = to;
+        Counter.builder(name + ".circuit-breaker.transitions")
+                .description("Transições de estado do circuit breaker")
+                .tag("from", from.name().toLowerCase())
+                .tag("to", to.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+
+        if (to == State.OPEN) {
+            log.warn("Circuit breaker {} opened ({} -> {})", name, from, to);
+        } else {
+            log.info("Circuit breaker {} transitioned {} -> {}", name, from, to);
+        }
+    }
+}
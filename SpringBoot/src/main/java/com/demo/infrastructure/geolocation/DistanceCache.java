@@ -0,0 +1,94 @@
+package com.demo.infrastructure.geolocation;
+
+import com.demo.infrastructure.geolocation.GoogleMapsService.DistanceResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Cache de rotas em memória, com origem e destino arredondados para uma grade de cell-size-meters.
+ * Loja e bairro consultados de novo caem na mesma célula e reaproveitam a rota; o erro fica em
+ * torno de uma diagonal de célula em cada ponta, bem abaixo da diferença entre rotas reais.
+ *
+ * Só rotas vindas da API são guardadas: a linha reta de fallback é barata de recalcular e, se
+ * ficasse no cache, esconderia a rota verdadeira depois que a API voltasse.
+ *
+ * Hit rate: cache.gets{cache=distance}; distance.cache.straight-line conta as faltas que
+ * terminaram em fallback.
+ */
+@Slf4j
+@Component
+public class DistanceCache {
+
+    private static final double METERS_PER_DEGREE = Math.PI * Haversine.EARTH_RADIUS_KM * 1000 / 180;
+
+    private final DistanceMatrixBatcher distanceMatrixBatcher;
+    private final double cellDegrees;
+    private final Cache<Key, DistanceResult> entries;
+    private final Counter straightLine;
+
+    public DistanceCache(
+            DistanceMatrixBatcher distanceMatrixBatcher,
+            MeterRegistry meterRegistry,
+            @Value("${app.google-maps.distance.cache.cell-size-meters:50}") double cellSizeMeters,
+            @Value("${app.google-maps.distance.cache.max-size:10000}") long maxSize,
+            @Value("${app.google-maps.distance.cache.ttl:1d}") Duration ttl
+    ) {
+        this.distanceMatrixBatcher = distanceMatrixBatcher;
+        this.cellDegrees = cellSizeMeters / METERS_PER_DEGREE;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "distance");
+        this.straightLine = Counter.builder("distance.cache.straight-line")
+                .description("Faltas do cache de rotas respondidas com a distância em linha reta")
+                .register(meterRegistry);
+
+        log.info("Distance cache initialized (cell-size-meters: {}, max-size: {}, ttl: {})",
+                cellSizeMeters, maxSize, ttl);
+    }
+
+    public DistanceResult calculateDistance(double originLat, double originLng, double destLat, double destLng) {
+        long originRow = latitudeCell(originLat);
+        long destinationRow = latitudeCell(destLat);
+        Key key = new Key(
+                originRow, longitudeCell(originRow, originLng),
+                destinationRow, longitudeCell(destinationRow, destLng)
+        );
+
+        DistanceResult cached = entries.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        DistanceResult result = distanceMatrixBatcher.calculateDistance(originLat, originLng, destLat, destLng);
+        if (result.straightLine()) {
+            straightLine.increment();
+        } else {
+            entries.put(key, result);
+        }
+        return result;
+    }
+
+    private long latitudeCell(double latitude) {
+        return (long) Math.floor(latitude / cellDegrees);
+    }
+
+    // Largura em graus ajustada pelo cosseno do centro da faixa, para a célula ter ~cell-size-meters
+    private long longitudeCell(long row, double longitude) {
+        double cosLat = Math.max(Math.cos(Math.toRadians((row + 0.5) * cellDegrees)), 1e-6);
+        return (long) Math.floor(longitude * cosLat / cellDegrees);
+    }
+
+    private record Key(long originLat, long originLng, long destinationLat, long destinationLng) {}
+}
@@ -0,0 +1,155 @@
+package com.demo.infrastructure.geolocation;
+
+import com.demo.infrastructure.geolocation.GoogleMapsService.Coordinates;
+import com.demo.infrastructure.geolocation.GoogleMapsService.DistanceResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Junta as chamadas de distância de um único par que chegam dentro de uma janela curta e as envia
+ * como requisições de Distance Matrix. Os pares são agrupados por origem (1 origem x até 25
+ * destinos): a API cobra por elemento, então montar o produto cartesiano de todas as origens e
+ * destinos pendentes pagaria elementos que ninguém pediu. Pares repetidos na janela compartilham
+ * o mesmo elemento.
+ */
+@Slf4j
+@Component
+public class DistanceMatrixBatcher {
+
+    private final GoogleMapsService googleMapsService;
+    private final long windowMs;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService executor;
+    private final Counter coalescedCalls;
+    private final Counter matrixRequests;
+    private final DistributionSummary batchSizes;
+
+    private Map<Pair, CompletableFuture<DistanceResult>> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    public DistanceMatrixBatcher(
+            GoogleMapsService googleMapsService,
+            MeterRegistry meterRegistry,
+            @Value("${app.google-maps.distance.batch-window-ms:10}") long windowMs,
+            @Value("${app.google-maps.distance.max-batch-size:100}") int maxBatchSize,
+            @Value("${app.google-maps.distance.threads:4}") int threads
+    ) {
+        this.googleMapsService = googleMapsService;
+        this.windowMs = windowMs;
+        this.maxBatchSize = maxBatchSize;
+
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "distance-matrix-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.coalescedCalls = Counter.builder("google-maps.distance.calls")
+                .description("Chamadas de distância de um par recebidas pelo batcher")
+                .register(meterRegistry);
+        this.matrixRequests = Counter.builder("google-maps.distance.matrix.requests")
+                .description("Requisições de Distance Matrix enviadas pelo batcher")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("google-maps.distance.batch.size")
+                .description("Pares distintos por janela de coalescência")
+                .register(meterRegistry);
+    }
+
+    public DistanceResult calculateDistance(double originLat, double originLng, double destLat, double destLng) {
+        // Sem API não há o que juntar: a linha reta sai na hora, sem esperar a janela
+        if (!googleMapsService.isConfigured()) {
+            return googleMapsService.calculateDistance(originLat, originLng, destLat, destLng);
+        }
+
+        coalescedCalls.increment();
+        Pair pair = new Pair(new Coordinates(originLat, originLng), new Coordinates(destLat, destLng));
+        return enqueue(pair).join();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private synchronized CompletableFuture<DistanceResult> enqueue(Pair pair) {
+        CompletableFuture<DistanceResult> future = pending.computeIfAbsent(pair, key -> new CompletableFuture<>());
+
+        if (pending.size() >= maxBatchSize) {
+            // Lote cheio sai antes do fim da janela
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+            }
+            Map<Pair, CompletableFuture<DistanceResult>> batch = takePending();
+            executor.execute(() -> flush(batch));
+        } else if (scheduledFlush == null) {
+            scheduledFlush = executor.schedule(this::flushScheduled, windowMs, TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    private void flushScheduled() {
+        flush(takePending());
+    }
+
+    private synchronized Map<Pair, CompletableFuture<DistanceResult>> takePending() {
+        Map<Pair, CompletableFuture<DistanceResult>> batch = pending;
+        pending = new LinkedHashMap<>();
+        scheduledFlush = null;
+        return batch;
+    }
+
+    private void flush(Map<Pair, CompletableFuture<DistanceResult>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        batchSizes.record(batch.size());
+
+        Map<Coordinates, List<Pair>> byOrigin = new LinkedHashMap<>();
+        for (Pair pair : batch.keySet()) {
+            byOrigin.computeIfAbsent(pair.origin(), key -> new ArrayList<>()).add(pair);
+        }
+
+        for (Map.Entry<Coordinates, List<Pair>> entry : byOrigin.entrySet()) {
+            List<Pair> pairs = entry.getValue();
+            for (int from = 0; from < pairs.size(); from += GoogleMapsService.MAX_DESTINATIONS) {
+                List<Pair> chunk = pairs.subList(from, Math.min(from + GoogleMapsService.MAX_DESTINATIONS, pairs.size()));
+                executor.execute(() -> request(entry.getKey(), chunk, batch));
+            }
+        }
+    }
+
+    private void request(Coordinates origin, List<Pair> chunk, Map<Pair, CompletableFuture<DistanceResult>> batch) {
+        try {
+            matrixRequests.increment();
+            DistanceResult[] row = googleMapsService.calculateDistanceMatrix(
+                    List.of(origin),
+                    chunk.stream().map(Pair::destination).toList()
+            )[0];
+            for (int i = 0; i < chunk.size(); i++) {
+                batch.get(chunk.get(i)).complete(row[i]);
+            }
+        } catch (Exception e) {
+            log.error("Distance matrix batch failed: {}", e.getMessage());
+            chunk.forEach(pair -> batch.get(pair).completeExceptionally(e));
+        }
+    }
+
+    private record Pair(Coordinates origin, Coordinates destination) {}
+}
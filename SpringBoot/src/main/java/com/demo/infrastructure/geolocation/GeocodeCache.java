@@ -0,0 +1,215 @@
+package com.demo.infrastructure.geolocation;
+
+import com.demo.infrastructure.geolocation.GoogleMapsService.GeocodingResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Cache de geocodificação em duas camadas: Caffeine limitado em memória na frente da tabela
+ * geocode_cache, que sobrevive a reinícios e é compartilhada entre instâncias. Só endereços
+ * ausentes das duas camadas chegam à API do Google. "Não encontrado" também é cacheado, com TTL
+ * menor; erros da API não são cacheados e sobem como GeocodingException, para que o chamador
+ * decida quando tentar de novo.
+ *
+ * Hit rate: cache.gets{cache=geocode} dá a camada de memória; geocode.cache.database.hits e
+ * geocode.api.calls dizem quantas faltas foram resolvidas pelo banco e quantas foram pagas na API.
+ */
+@Slf4j
+@Component
+public class GeocodeCache implements Geocoder {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern ZIP_CODE = Pattern.compile("\\b(\\d{5})\\s*-?\\s*(\\d{3})\\b");
+    private static final Pattern COMMAS = Pattern.compile("\\s*,\\s*");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private static final String SELECT = """
+            SELECT latitude, longitude, place_id, formatted_address, found, expires_at
+            FROM geocode_cache
+            WHERE address_key = ? AND expires_at > ?
+            """;
+
+    private static final String UPSERT = """
+            INSERT INTO geocode_cache (address_key, latitude, longitude, place_id, formatted_address, found, expires_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (address_key) DO UPDATE SET
+                latitude = EXCLUDED.latitude,
+                longitude = EXCLUDED.longitude,
+                place_id = EXCLUDED.place_id,
+                formatted_address = EXCLUDED.formatted_address,
+                found = EXCLUDED.found,
+                expires_at = EXCLUDED.expires_at,
+                updated_at = CURRENT_TIMESTAMP
+            """;
+
+    private final GoogleMapsService googleMapsService;
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+    private final Duration negativeTtl;
+    private final Cache<String, Entry> entries;
+    private final Counter databaseHits;
+    private final Counter apiFound;
+    private final Counter apiNotFound;
+    private final Counter apiErrors;
+
+    public GeocodeCache(
+            GoogleMapsService googleMapsService,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.google-maps.cache.max-size:10000}") long maxSize,
+            @Value("${app.google-maps.cache.memory-ttl:1h}") Duration memoryTtl,
+            @Value("${app.google-maps.cache.ttl:30d}") Duration ttl,
+            @Value("${app.google-maps.cache.negative-ttl:1d}") Duration negativeTtl
+    ) {
+        this.googleMapsService = googleMapsService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        // Em memória, a entrada vive o menor entre memory-ttl e o que ainda resta da validade no banco
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.creating((String key, Entry entry) -> {
+                    Duration remaining = Duration.between(LocalDateTime.now(), entry.expiresAt());
+                    return remaining.compareTo(memoryTtl) < 0 ? remaining : memoryTtl;
+                }))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "geocode");
+        this.databaseHits = Counter.builder("geocode.cache.database.hits")
+                .description("Faltas da memória resolvidas pela tabela geocode_cache")
+                .register(meterRegistry);
+        this.apiFound = apiCounter(meterRegistry, "found");
+        this.apiNotFound = apiCounter(meterRegistry, "not_found");
+        this.apiErrors = apiCounter(meterRegistry, "error");
+
+        log.info("Geocode cache initialized (max-size: {}, memory-ttl: {}, ttl: {}, negative-ttl: {})",
+                maxSize, memoryTtl, ttl, negativeTtl);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return googleMapsService.isConfigured();
+    }
+
+    /**
+     * Retorna null quando o endereço não existe para a API; falhas lançam GeocodingException.
+     */
+    @Override
+    public GeocodingResult geocode(String address) {
+        if (!isAvailable()) {
+            throw new GeocodingException("Google Maps not configured");
+        }
+
+        // Exceções do loader propagam pelo Caffeine sem deixar nada gravado para a chave
+        return entries.get(normalize(address), key -> load(key, address)).result();
+    }
+
+    private Entry load(String key, String address) {
+        Entry stored = findStored(key);
+        if (stored != null) {
+            databaseHits.increment();
+            return stored;
+        }
+
+        GeocodingResult result;
+        try {
+            result = googleMapsService.lookup(address);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            apiErrors.increment();
+            throw new GeocodingException("Error geocoding address: " + e.getMessage(), e);
+        }
+
+        (result != null ? apiFound : apiNotFound).increment();
+        Entry entry = new Entry(result, LocalDateTime.now().plus(result != null ? ttl : negativeTtl));
+        store(key, entry);
+        return entry;
+    }
+
+    private Entry findStored(String key) {
+        try {
+            List<Entry> rows = jdbcTemplate.query(SELECT, (rs, rowNum) -> new Entry(
+                    rs.getBoolean("found")
+                            ? new GeocodingResult(
+                                    rs.getDouble("latitude"),
+                                    rs.getDouble("longitude"),
+                                    rs.getString("place_id"),
+                                    rs.getString("formatted_address"),
+                                    false)
+                            : null,
+                    rs.getTimestamp("expires_at").toLocalDateTime()
+            ), key, Timestamp.valueOf(LocalDateTime.now()));
+            return rows.isEmpty() ? null : rows.get(0);
+        } catch (DataAccessException e) {
+            // Sem a camada persistente ainda dá para geocodificar; só se perde o compartilhamento
+            log.warn("Failed to read geocode cache: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(String key, Entry entry) {
+        GeocodingResult result = entry.result();
+        try {
+            jdbcTemplate.update(UPSERT,
+                    key,
+                    result != null ? result.latitude() : null,
+                    result != null ? result.longitude() : null,
+                    result != null ? result.placeId() : null,
+                    result != null ? result.formattedAddress() : null,
+                    result != null,
+                    Timestamp.valueOf(entry.expiresAt()));
+        } catch (DataAccessException e) {
+            log.warn("Failed to write geocode cache: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.google-maps.cache.purge-interval-ms:3600000}")
+    void purgeExpired() {
+        int purged = jdbcTemplate.update("DELETE FROM geocode_cache WHERE expires_at <= ?",
+                Timestamp.valueOf(LocalDateTime.now()));
+        if (purged > 0) {
+            log.debug("Purged {} expired geocode cache entries", purged);
+        }
+    }
+
+    /**
+     * Chave canônica do endereço: sem acentos, minúsculas, espaços colapsados e CEP só com dígitos,
+     * para que "Rua São João, 10 - ... 01000-000" e "rua sao joao,10 - ... 01000000" coincidam.
+     */
+    public static String normalize(String address) {
+        String folded = MARKS.matcher(Normalizer.normalize(address, Normalizer.Form.NFD)).replaceAll("");
+        folded = ZIP_CODE.matcher(folded.toLowerCase(Locale.ROOT)).replaceAll("$1$2");
+        folded = COMMAS.matcher(folded).replaceAll(", ");
+        return SPACES.matcher(folded).replaceAll(" ").trim();
+    }
+
+    private static Counter apiCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("geocode.api.calls")
+                .description("Chamadas pagas à API de geocodificação")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private record Entry(GeocodingResult result, LocalDateTime expiresAt) {}
+}
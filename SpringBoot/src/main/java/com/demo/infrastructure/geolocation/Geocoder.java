@@ -0,0 +1,20 @@
+package com.demo.infrastructure.geolocation;
+
+import com.demo.infrastructure.geolocation.GoogleMapsService.GeocodingResult;
+
+/**
+ * Fonte de coordenadas para endereços em texto livre.
+ */
+public interface Geocoder {
+
+    /**
+     * false quando a fonte não pode ser consultada (sem chave de API, sem base carregada).
+     */
+    boolean isAvailable();
+
+    /**
+     * Retorna null quando o endereço não existe para a fonte; falhas lançam GeocodingException,
+     * para que o chamador decida quando tentar de novo.
+     */
+    GeocodingResult geocode(String address);
+}
@@ -0,0 +1,16 @@
+package com.demo.infrastructure.geolocation;
+
+/**
+ * Falha transitória de geocodificação (rede, cota, API indisponível). Diferente de um endereço não
+ * encontrado, que é um resultado válido e volta como null.
+ */
+public class GeocodingException extends RuntimeException {
+
+    public GeocodingException(String message) {
+        super(message);
+    }
+
+    public GeocodingException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,126 @@
+package com.demo.infrastructure.geolocation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Geohash no mesmo esquema da função geohash_encode (V8): os índices de latitude e longitude da
+ * célula têm os bits intercalados começando pela longitude. Células vizinhas na curva Z têm
+ * geohashes consecutivos, então a cobertura de uma região vira poucos intervalos de string que o
+ * B-tree de addresses.geohash resolve com range scans.
+ */
+public final class Geohash {
+
+    public static final int MAX_PRECISION = 12;
+
+    private static final String ALPHABET = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final double KM_PER_DEGREE = Math.PI * Haversine.EARTH_RADIUS_KM / 180;
+
+    private Geohash() {
+    }
+
+    /**
+     * Intervalos [from, to) de geohash que cobrem o círculo de raio radiusKm em torno do ponto. A
+     * precisão é a mais fina cuja grade cobre a caixa envolvente com até maxCells células; to nulo
+     * significa sem limite superior.
+     */
+    public static List<Range> cover(double latitude, double longitude, double radiusKm, int maxCells) {
+        double deltaLat = radiusKm / KM_PER_DEGREE;
+        double minLat = Math.max(-90, latitude - deltaLat);
+        double maxLat = Math.min(90, latitude + deltaLat);
+
+        // Perto dos polos o círculo abrange todas as longitudes
+        double cosLat = Math.cos(Math.toRadians(Math.max(Math.abs(minLat), Math.abs(maxLat))));
+        double deltaLng = cosLat > 0 ? radiusKm / (KM_PER_DEGREE * cosLat) : 180;
+        boolean allLongitudes = deltaLng >= 180;
+        double west = wrap(longitude - deltaLng);
+        double east = wrap(longitude + deltaLng);
+
+        for (int precision = MAX_PRECISION; precision >= 1; precision--) {
+            int lngBits = (5 * precision + 1) / 2;
+            int latBits = 5 * precision / 2;
+
+            long fromRow = index(minLat + 90, 180, latBits);
+            long toRow = index(maxLat + 90, 180, latBits);
+            long fromColumn = allLongitudes ? 0 : index(west + 180, 360, lngBits);
+            long toColumn = allLongitudes ? (1L << lngBits) - 1 : index(east + 180, 360, lngBits);
+            // Caixa que cruza o antimeridiano: a faixa de colunas dá a volta
+            long columns = Math.floorMod(toColumn - fromColumn, 1L << lngBits) + 1;
+
+            if (precision > 1 && (toRow - fromRow + 1) * columns > maxCells) {
+                continue;
+            }
+
+            TreeSet<String> cells = new TreeSet<>();
+            for (long row = fromRow; row <= toRow; row++) {
+                for (long offset = 0; offset < columns; offset++) {
+                    long column = Math.floorMod(fromColumn + offset, 1L << lngBits);
+                    cells.add(encode(row, column, precision));
+                }
+            }
+            return merge(cells);
+        }
+        throw new IllegalStateException("Unreachable: precision 1 always covers the area");
+    }
+
+    private static List<Range> merge(TreeSet<String> cells) {
+        List<Range> ranges = new ArrayList<>();
+        String from = null;
+        String to = null;
+        for (String cell : cells) {
+            if (from == null || !cell.equals(to)) {
+                if (from != null) {
+                    ranges.add(new Range(from, to));
+                }
+                from = cell;
+            }
+            to = successor(cell);
+        }
+        ranges.add(new Range(from, to));
+        return ranges;
+    }
+
+    // Próxima célula na mesma precisão; null depois de "zz...z"
+    private static String successor(String cell) {
+        char[] chars = cell.toCharArray();
+        for (int i = chars.length - 1; i >= 0; i--) {
+            int value = ALPHABET.indexOf(chars[i]);
+            if (value < 31) {
+                chars[i] = ALPHABET.charAt(value + 1);
+                return new String(chars);
+            }
+            chars[i] = ALPHABET.charAt(0);
+        }
+        return null;
+    }
+
+    private static double wrap(double longitude) {
+        return longitude < -180 ? longitude + 360 : longitude > 180 ? longitude - 360 : longitude;
+    }
+
+    private static long index(double offset, double span, int bits) {
+        long cells = 1L << bits;
+        return Math.max(0, Math.min(cells - 1, (long) Math.floor(offset / span * cells)));
+    }
+
+    private static String encode(long row, long column, int precision) {
+        int lngBits = (5 * precision + 1) / 2;
+        int latBits = 5 * precision / 2;
+        long bits = 0;
+        for (int i = 0; i < 5 * precision; i++) {
+            bits = i % 2 == 0
+                    ? bits << 1 | (column >> --lngBits & 1)
+                    : bits << 1 | (row >> --latBits & 1);
+        }
+
+        char[] chars = new char[precision];
+        for (int i = precision - 1; i >= 0; i--) {
+            chars[i] = ALPHABET.charAt((int) (bits & 31));
+            bits >>= 5;
+        }
+        return new String(chars);
+    }
+
+    public record Range(String from, String to) {}
+}
@@ -3,28 +3,88 @@ package com.demo.infrastructure.geolocation;
 import com.google.maps.DistanceMatrixApi;
 import com.google.maps.GeoApiContext;
 import com.google.maps.GeocodingApi;
+import com.google.maps.errors.InvalidRequestException;
+import com.google.maps.errors.NotFoundException;
+import com.google.maps.errors.ZeroResultsException;
 import com.google.maps.model.DistanceMatrix;
+import com.google.maps.model.DistanceMatrixElementStatus;
 import com.google.maps.model.GeocodingResult;
 import com.google.maps.model.LatLng;
 import com.google.maps.model.TravelMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
 @Slf4j
 @Service
 public class GoogleMapsService {
 
+    // Limites por requisição da Distance Matrix API
+    public static final int MAX_ORIGINS = 25;
+    public static final int MAX_DESTINATIONS = 25;
+    public static final int MAX_ELEMENTS = 100;
+
     private final GeoApiContext geoApiContext;
     private final boolean isConfigured;
+    private final Semaphore bulkhead;
+    private final Duration bulkheadMaxWait;
+    private final CircuitBreaker circuitBreaker;
+    private final Counter succeeded;
+    private final Counter failed;
+    private final Counter shortCircuited;
+    private final Counter bulkheadFull;
+
+    public GoogleMapsService(
+            @Value("${app.google-maps.api-key:}") String apiKey,
+            @Value("${app.google-maps.base-url:}") String baseUrl,
+            @Value("${app.google-maps.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${app.google-maps.read-timeout:5s}") Duration readTimeout,
+            @Value("${app.google-maps.max-retries:1}") int maxRetries,
+            @Value("${app.google-maps.queries-per-second:50}") int queriesPerSecond,
+            @Value("${app.google-maps.bulkhead.max-concurrent:20}") int maxConcurrent,
+            @Value("${app.google-maps.bulkhead.max-wait:100ms}") Duration bulkheadMaxWait,
+            @Value("${app.google-maps.circuit-breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${app.google-maps.circuit-breaker.open-duration:30s}") Duration openDuration,
+            @Value("${app.google-maps.circuit-breaker.half-open-calls:1}") int halfOpenCalls,
+            MeterRegistry meterRegistry
+    ) {
+        this.bulkhead = new Semaphore(maxConcurrent, true);
+        this.bulkheadMaxWait = bulkheadMaxWait;
+        this.circuitBreaker = new CircuitBreaker("google-maps", failureThreshold, openDuration, halfOpenCalls, meterRegistry);
+        this.succeeded = callCounter(meterRegistry, "success");
+        this.failed = callCounter(meterRegistry, "failure");
+        this.shortCircuited = callCounter(meterRegistry, "short_circuited");
+        this.bulkheadFull = callCounter(meterRegistry, "bulkhead_full");
 
-    public GoogleMapsService(@Value("${app.google-maps.api-key:}") String apiKey) {
         if (apiKey != null && !apiKey.isBlank()) {
-            this.geoApiContext = new GeoApiContext.Builder()
+            GeoApiContext.Builder builder = new GeoApiContext.Builder()
                     .apiKey(apiKey)
-                    .build();
+                    .connectTimeout(connectTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .readTimeout(readTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                    // O padrão do cliente é retentar por até 60s, segurando a thread do chamador
+                    .retryTimeout(connectTimeout.plus(readTimeout).multipliedBy(maxRetries + 1L).toMillis(),
+                            TimeUnit.MILLISECONDS)
+                    .queryRateLimit(queriesPerSecond);
+            if (maxRetries > 0) {
+                builder.maxRetries(maxRetries);
+            } else {
+                builder.disableRetries();
+            }
+            if (baseUrl != null && !baseUrl.isBlank()) {
+                builder.baseUrlOverride(baseUrl);
+            }
+            this.geoApiContext = builder.build();
             this.isConfigured = true;
-            log.info("Google Maps API configured successfully");
+            log.info("Google Maps API configured successfully (read-timeout: {}, qps: {}, max-concurrent: {})",
+                    readTimeout, queriesPerSecond, maxConcurrent);
         } else {
             this.geoApiContext = null;
             this.isConfigured = false;
@@ -32,6 +92,10 @@ public class GoogleMapsService {
         }
     }
 
+    public boolean isConfigured() {
+        return isConfigured;
+    }
+
     public GeocodingResult geocode(String address) {
         if (!isConfigured) {
             log.warn("Google Maps not configured, returning null for geocode");
@@ -39,17 +103,7 @@ public class GoogleMapsService {
         }
 
         try {
-            com.google.maps.model.GeocodingResult[] results = GeocodingApi.geocode(geoApiContext, address).await();
-
-            if (results != null && results.length > 0) {
-                var result = results[0];
-                return new GeocodingResult(
-                        result.geometry.location.lat,
-                        result.geometry.location.lng,
-                        result.placeId,
-                        result.formattedAddress
-                );
-            }
+            return lookup(address);
         } catch (Exception e) {
             log.error("Error geocoding address: {}", e.getMessage());
         }
@@ -57,60 +111,179 @@ public class GoogleMapsService {
         return null;
     }
 
+    /**
+     * Geocodifica sem engolir falhas: null significa endereço não encontrado, enquanto erros de
+     * rede/API sobem como exceção para que o chamador não os confunda com um resultado negativo.
+     */
+    GeocodingResult lookup(String address) throws Exception {
+        com.google.maps.model.GeocodingResult[] results = call(() -> GeocodingApi.geocode(geoApiContext, address).await());
+
+        if (results == null || results.length == 0) {
+            return null;
+        }
+
+        var result = results[0];
+        return new GeocodingResult(
+                result.geometry.location.lat,
+                result.geometry.location.lng,
+                result.placeId,
+                result.formattedAddress,
+                false
+        );
+    }
+
     public DistanceResult calculateDistance(double originLat, double originLng, double destLat, double destLng) {
-        if (!isConfigured) {
-            double straightLine = calculateStraightLineDistance(originLat, originLng, destLat, destLng);
-            return new DistanceResult(
-                    straightLine,
-                    String.format("%.1f km", straightLine),
-                    0,
-                    "N/A"
-            );
+        return calculateDistanceMatrix(
+                List.of(new Coordinates(originLat, originLng)),
+                List.of(new Coordinates(destLat, destLng))
+        )[0][0];
+    }
+
+    /**
+     * Distâncias de cada origem para cada destino, em blocos dentro dos limites da Distance Matrix
+     * API. Elementos sem rota e blocos cuja chamada falhar caem na distância em linha reta.
+     */
+    public DistanceResult[][] calculateDistanceMatrix(List<Coordinates> origins, List<Coordinates> destinations) {
+        DistanceResult[][] results = new DistanceResult[origins.size()][destinations.size()];
+
+        if (isConfigured && !origins.isEmpty() && !destinations.isEmpty()) {
+            int destinationsPerRequest = Math.min(MAX_DESTINATIONS, destinations.size());
+            int originsPerRequest = Math.min(MAX_ORIGINS, MAX_ELEMENTS / destinationsPerRequest);
+
+            for (int o = 0; o < origins.size(); o += originsPerRequest) {
+                for (int d = 0; d < destinations.size(); d += destinationsPerRequest) {
+                    requestBlock(
+                            origins.subList(o, Math.min(o + originsPerRequest, origins.size())),
+                            destinations.subList(d, Math.min(d + destinationsPerRequest, destinations.size())),
+                            results, o, d
+                    );
+                }
+            }
         }
 
-        try {
-            LatLng origin = new LatLng(originLat, originLng);
-            LatLng destination = new LatLng(destLat, destLng);
+        for (int o = 0; o < origins.size(); o++) {
+            for (int d = 0; d < destinations.size(); d++) {
+                if (results[o][d] == null) {
+                    results[o][d] = straightLineResult(origins.get(o), destinations.get(d));
+                }
+            }
+        }
+        return results;
+    }
 
-            DistanceMatrix result = DistanceMatrixApi.newRequest(geoApiContext)
-                    .origins(origin)
-                    .destinations(destination)
+    private void requestBlock(
+            List<Coordinates> origins,
+            List<Coordinates> destinations,
+            DistanceResult[][] results,
+            int originOffset,
+            int destinationOffset
+    ) {
+        try {
+            DistanceMatrix matrix = call(() -> DistanceMatrixApi.newRequest(geoApiContext)
+                    .origins(origins.stream().map(Coordinates::toLatLng).toArray(LatLng[]::new))
+                    .destinations(destinations.stream().map(Coordinates::toLatLng).toArray(LatLng[]::new))
                     .mode(TravelMode.DRIVING)
-                    .await();
-
-            if (result.rows.length > 0 && result.rows[0].elements.length > 0) {
-                var element = result.rows[0].elements[0];
-                return new DistanceResult(
-                        element.distance.inMeters / 1000.0,
-                        element.distance.humanReadable,
-                        (int) element.duration.inSeconds,
-                        element.duration.humanReadable
-                );
+                    .await());
+
+            for (int o = 0; o < matrix.rows.length; o++) {
+                for (int d = 0; d < matrix.rows[o].elements.length; d++) {
+                    var element = matrix.rows[o].elements[d];
+                    if (element.status == DistanceMatrixElementStatus.OK) {
+                        results[originOffset + o][destinationOffset + d] = new DistanceResult(
+                                element.distance.inMeters / 1000.0,
+                                element.distance.humanReadable,
+                                (int) element.duration.inSeconds,
+                                element.duration.humanReadable,
+                                false
+                        );
+                    }
+                }
             }
+        } catch (GeocodingException e) {
+            log.debug("Distance matrix request skipped: {}", e.getMessage());
         } catch (Exception e) {
             log.error("Error calculating distance: {}", e.getMessage());
         }
+    }
 
-        double straightLine = calculateStraightLineDistance(originLat, originLng, destLat, destLng);
-        return new DistanceResult(straightLine, String.format("%.1f km", straightLine), 0, "N/A");
+    /**
+     * Executa a chamada à API atrás do bulkhead e do circuit breaker. Quando algum deles recusa,
+     * lança GeocodingException sem tocar na rede: a distância cai na linha reta e o geocoding
+     * assíncrono agenda nova tentativa.
+     */
+    private <T> T call(Callable<T> request) throws Exception {
+        if (!bulkhead.tryAcquire(bulkheadMaxWait.toMillis(), TimeUnit.MILLISECONDS)) {
+            bulkheadFull.increment();
+            throw new GeocodingException("Google Maps bulkhead full");
+        }
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                shortCircuited.increment();
+                throw new GeocodingException("Google Maps circuit breaker open");
+            }
+            try {
+                T result = request.call();
+                circuitBreaker.onSuccess();
+                succeeded.increment();
+                return result;
+            } catch (InvalidRequestException | NotFoundException | ZeroResultsException e) {
+                // A API respondeu; o problema é a requisição, não a disponibilidade
+                circuitBreaker.onSuccess();
+                succeeded.increment();
+                throw e;
+            } catch (Exception e) {
+                circuitBreaker.onFailure();
+                failed.increment();
+                throw e;
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private DistanceResult straightLineResult(Coordinates origin, Coordinates destination) {
+        double straightLine = calculateStraightLineDistance(
+                origin.latitude(), origin.longitude(), destination.latitude(), destination.longitude());
+        return new DistanceResult(straightLine, String.format("%.1f km", straightLine), 0, "N/A", true);
     }
 
     public double calculateStraightLineDistance(double lat1, double lon1, double lat2, double lon2) {
-        final double R = 6371;
+        return Haversine.distanceKm(lat1, lon1, lat2, lon2);
+    }
 
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
+    private static Counter callCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("google-maps.calls")
+                .description("Chamadas à API do Google Maps por resultado")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
 
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                   Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    /**
+     * approximate indica coordenadas de centróide (CEP ou cidade) em vez do endereço exato.
+     */
+    public record GeocodingResult(
+            double latitude,
+            double longitude,
+            String placeId,
+            String formattedAddress,
+            boolean approximate
+    ) {}
 
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    public record Coordinates(double latitude, double longitude) {
 
-        return R * c;
+        LatLng toLatLng() {
+            return new LatLng(latitude, longitude);
+        }
     }
 
-    public record GeocodingResult(double latitude, double longitude, String placeId, String formattedAddress) {}
-
-    public record DistanceResult(double distanceKm, String distanceText, int durationSeconds, String durationText) {}
+    /**
+     * straightLine indica que a rota não veio da API e o valor é a distância em linha reta.
+     */
+    public record DistanceResult(
+            double distanceKm,
+            String distanceText,
+            int durationSeconds,
+            String durationText,
+            boolean straightLine
+    ) {}
 }
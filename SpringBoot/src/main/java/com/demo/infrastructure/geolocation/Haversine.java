@@ -0,0 +1,59 @@
+package com.demo.infrastructure.geolocation;
+
+/**
+ * Distância em linha reta (haversine) sobre a esfera de raio 6371 km. A versão em lote recebe os
+ * pontos em arrays paralelos de latitude e longitude e calcula o seno e o cosseno da origem uma
+ * vez só, em vez de uma vez por par como a versão escalar.
+ */
+public final class Haversine {
+
+    public static final double EARTH_RADIUS_KM = 6371;
+
+    private static final double RADIANS_PER_DEGREE = Math.PI / 180;
+
+    private Haversine() {
+    }
+
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = lat1 * RADIANS_PER_DEGREE;
+        double phi2 = lat2 * RADIANS_PER_DEGREE;
+        double sinHalfDeltaPhi = Math.sin((phi2 - phi1) * 0.5);
+        double sinHalfDeltaLambda = Math.sin((lon2 - lon1) * RADIANS_PER_DEGREE * 0.5);
+
+        double a = sinHalfDeltaPhi * sinHalfDeltaPhi
+                + Math.cos(phi1) * Math.cos(phi2) * sinHalfDeltaLambda * sinHalfDeltaLambda;
+        return centralAngle(a) * EARTH_RADIUS_KM;
+    }
+
+    /**
+     * Distâncias da origem para os count primeiros pontos de latitudes/longitudes, gravadas em
+     * distancesKm[0..count). Os arrays podem ser maiores que count, para reaproveitar buffers.
+     */
+    public static void distancesKm(
+            double originLat,
+            double originLng,
+            double[] latitudes,
+            double[] longitudes,
+            int count,
+            double[] distancesKm
+    ) {
+        double phi1 = originLat * RADIANS_PER_DEGREE;
+        double lambda1 = originLng * RADIANS_PER_DEGREE;
+        double cosPhi1 = Math.cos(phi1);
+
+        for (int i = 0; i < count; i++) {
+            double phi2 = latitudes[i] * RADIANS_PER_DEGREE;
+            double sinHalfDeltaPhi = Math.sin((phi2 - phi1) * 0.5);
+            double sinHalfDeltaLambda = Math.sin((longitudes[i] * RADIANS_PER_DEGREE - lambda1) * 0.5);
+
+            double a = sinHalfDeltaPhi * sinHalfDeltaPhi
+                    + cosPhi1 * Math.cos(phi2) * sinHalfDeltaLambda * sinHalfDeltaLambda;
+            distancesKm[i] = centralAngle(a) * EARTH_RADIUS_KM;
+        }
+    }
+
+    // 2·asin(√a) equivale ao 2·atan2(√a, √(1−a)) usual e custa menos; o min protege do arredondamento
+    private static double centralAngle(double a) {
+        return 2 * Math.asin(Math.sqrt(Math.min(1, a)));
+    }
+}
@@ -0,0 +1,91 @@
+package com.demo.infrastructure.geolocation;
+
+import com.demo.infrastructure.geolocation.GoogleMapsService.GeocodingResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+/**
+ * Geocodificador usado pela aplicação: escolhe a fonte principal por app.google-maps.geocoder
+ * (google ou offline) e, com app.google-maps.fallback: offline, responde pelo centróide do CEP
+ * quando a principal está indisponível ou falha. "Não encontrado" da principal é resposta
+ * definitiva e não aciona o fallback.
+ */
+@Slf4j
+@Primary
+@Component
+public class RoutingGeocoder implements Geocoder {
+
+    private final Geocoder primary;
+    private final Geocoder fallback;
+    private final Counter fallbackUnavailable;
+    private final Counter fallbackError;
+
+    public RoutingGeocoder(
+            GeocodeCache geocodeCache,
+            CepCentroidGeocoder cepCentroidGeocoder,
+            MeterRegistry meterRegistry,
+            @Value("${app.google-maps.geocoder:google}") String geocoder,
+            @Value("${app.google-maps.fallback:none}") String fallback
+    ) {
+        this.primary = select(geocoder, geocodeCache, cepCentroidGeocoder);
+        Geocoder secondary = "none".equalsIgnoreCase(fallback)
+                ? null
+                : select(fallback, geocodeCache, cepCentroidGeocoder);
+        this.fallback = secondary != primary ? secondary : null;
+        this.fallbackUnavailable = fallbackCounter(meterRegistry, "unavailable");
+        this.fallbackError = fallbackCounter(meterRegistry, "error");
+
+        log.info("Geocoder: {} (fallback: {})", geocoder, this.fallback != null ? fallback : "none");
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return primary.isAvailable() || (fallback != null && fallback.isAvailable());
+    }
+
+    @Override
+    public GeocodingResult geocode(String address) {
+        if (!primary.isAvailable()) {
+            if (fallback == null) {
+                throw new GeocodingException("No geocoder available");
+            }
+            fallbackUnavailable.increment();
+            return fallback.geocode(address);
+        }
+
+        try {
+            return primary.geocode(address);
+        } catch (GeocodingException e) {
+            if (fallback == null) {
+                throw e;
+            }
+            // Sem resposta do fallback, vale o erro original: o chamador tenta de novo mais tarde
+            GeocodingResult result = fallback.geocode(address);
+            if (result == null) {
+                throw e;
+            }
+            fallbackError.increment();
+            log.debug("Geocoding fell back after error: {}", e.getMessage());
+            return result;
+        }
+    }
+
+    private static Geocoder select(String name, GeocodeCache google, CepCentroidGeocoder offline) {
+        return switch (name.toLowerCase()) {
+            case "google" -> google;
+            case "offline" -> offline;
+            default -> throw new IllegalStateException("Unknown geocoder: " + name + " (use google or offline)");
+        };
+    }
+
+    private static Counter fallbackCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("geocode.fallback")
+                .description("Geocodificações respondidas pelo fallback, por motivo")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -7,6 +7,9 @@ import com.mercadopago.client.preference.PreferenceClient;
 import com.mercadopago.client.preference.PreferenceItemRequest;
 import com.mercadopago.client.preference.PreferencePayerRequest;
 import com.mercadopago.client.preference.PreferenceRequest;
+import com.mercadopago.core.MPRequestOptions;
+import com.mercadopago.exceptions.MPApiException;
+import com.mercadopago.exceptions.MPException;
 import com.mercadopago.resources.payment.Payment;
 import com.mercadopago.resources.preference.Preference;
 import lombok.extern.slf4j.Slf4j;
@@ -14,7 +17,10 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 @Slf4j
 @Service
@@ -24,12 +30,24 @@ public class MercadoPagoService {
     private final PaymentClient paymentClient;
     private final String appUrl;
     private final boolean isConfigured;
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+    private final int maxRetries;
+    private final Duration retryBackoff;
 
     public MercadoPagoService(
             @Value("${app.mercadopago.access-token:}") String accessToken,
-            @Value("${app.url:http://localhost:3000}") String appUrl
+            @Value("${app.url:http://localhost:3000}") String appUrl,
+            @Value("${app.mercadopago.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${app.mercadopago.read-timeout:10s}") Duration readTimeout,
+            @Value("${app.mercadopago.max-retries:2}") int maxRetries,
+            @Value("${app.mercadopago.retry-backoff:200ms}") Duration retryBackoff
     ) {
         this.appUrl = appUrl;
+        this.connectTimeoutMs = (int) connectTimeout.toMillis();
+        this.readTimeoutMs = (int) readTimeout.toMillis();
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
 
         if (accessToken != null && !accessToken.isBlank()) {
             MercadoPagoConfig.setAccessToken(accessToken);
@@ -45,13 +63,23 @@ public class MercadoPagoService {
         }
     }
 
+    public boolean isConfigured() {
+        return isConfigured;
+    }
+
+    /**
+     * Cria a preferência com timeouts e retentativas. idempotencyKey vai no X-Idempotency-Key de
+     * todas as tentativas: repetir a chamada com a mesma chave devolve a preferência já criada
+     * em vez de criar outra.
+     */
     public PreferenceResult createPreference(
             String title,
             String description,
             int quantity,
             BigDecimal unitPrice,
             String externalReference,
-            String payerEmail
+            String payerEmail,
+            String idempotencyKey
     ) {
         if (!isConfigured) {
             throw new RuntimeException("MercadoPago not configured - missing access token");
@@ -86,7 +114,9 @@ public class MercadoPagoService {
                 requestBuilder.payer(payer);
             }
 
-            Preference preference = preferenceClient.create(requestBuilder.build());
+            PreferenceRequest preferenceRequest = requestBuilder.build();
+            MPRequestOptions options = requestOptions(Map.of("X-Idempotency-Key", idempotencyKey));
+            Preference preference = withRetries(() -> preferenceClient.create(preferenceRequest, options));
 
             log.info("Preference created: {}", preference.getId());
 
@@ -95,6 +125,10 @@ public class MercadoPagoService {
                     preference.getInitPoint(),
                     preference.getSandboxInitPoint()
             );
+        } catch (InterruptedException e) {
+            // Interrompido no backoff (shutdown): restaura o flag e desiste das retentativas
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while creating payment preference", e);
         } catch (Exception e) {
             log.error("Failed to create preference: {}", e.getMessage());
             throw new RuntimeException("Failed to create payment preference", e);
@@ -107,7 +141,7 @@ public class MercadoPagoService {
         }
 
         try {
-            Payment payment = paymentClient.get(Long.parseLong(paymentId));
+            Payment payment = paymentClient.get(Long.parseLong(paymentId), requestOptions(Map.of()));
 
             return new PaymentResult(
                     payment.getId().toString(),
@@ -121,6 +155,35 @@ public class MercadoPagoService {
         }
     }
 
+    private MPRequestOptions requestOptions(Map<String, String> headers) {
+        return MPRequestOptions.builder()
+                .connectionTimeout(connectTimeoutMs)
+                .socketTimeout(readTimeoutMs)
+                .customHeaders(headers)
+                .build();
+    }
+
+    // Rede, 5xx e 429 são transitórios; os demais 4xx voltariam iguais
+    private <T> T withRetries(Callable<T> request) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return request.call();
+            } catch (MPApiException e) {
+                if (attempt >= maxRetries || (e.getStatusCode() < 500 && e.getStatusCode() != 429)) {
+                    throw e;
+                }
+                log.warn("MercadoPago call failed with status {}, retrying", e.getStatusCode());
+            } catch (MPException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                log.warn("MercadoPago call failed, retrying: {}", e.getMessage());
+            }
+            // Lança InterruptedException se a thread já foi interrompida, sem nova tentativa
+            Thread.sleep(retryBackoff.multipliedBy(1L << attempt).toMillis());
+        }
+    }
+
     public record PreferenceResult(String id, String initPoint, String sandboxInitPoint) {}
 
     public record PaymentResult(String id, String status, String externalReference, String paymentType) {}
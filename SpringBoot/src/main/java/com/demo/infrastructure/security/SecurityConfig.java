@@ -46,11 +46,15 @@ public class SecurityConfig {
     @Value("${app.jwt.private-key}")
     private RSAPrivateKey privateKey;
 
+    // A exportação lê o catálogo inteiro: não entra no GET público de /products/*
+    private final RequestMatcher authenticatedProductEndpoints = new AntPathRequestMatcher("/products/export", HttpMethod.GET.name());
+
     private final RequestMatcher publicEndpoints = new OrRequestMatcher(
             new AntPathRequestMatcher("/auth/**", HttpMethod.POST.name()),
             new AntPathRequestMatcher("/auth/**", HttpMethod.GET.name()),
             new AntPathRequestMatcher("/products", HttpMethod.GET.name()),
             new AntPathRequestMatcher("/products/*", HttpMethod.GET.name()),
+            new AntPathRequestMatcher("/products/batch-get", HttpMethod.POST.name()),
             new AntPathRequestMatcher("/health", HttpMethod.GET.name()),
             new AntPathRequestMatcher("/v3/api-docs/**", HttpMethod.GET.name()),
             new AntPathRequestMatcher("/swagger-ui/**", HttpMethod.GET.name()),
@@ -62,6 +66,7 @@ public class SecurityConfig {
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .authorizeHttpRequests(authorize -> authorize
+                        .requestMatchers(authenticatedProductEndpoints).authenticated()
                         .requestMatchers(publicEndpoints).permitAll()
                         .anyRequest().authenticated())
                 .csrf(AbstractHttpConfigurer::disable)
@@ -0,0 +1,21 @@
+-- V10__Address_Single_Default.sql
+-- No máximo um endereço padrão por usuário, garantido pelo banco
+
+-- Usuários que já têm mais de um padrão ficam com o alterado por último
+UPDATE addresses SET is_default = FALSE
+WHERE id IN (
+    SELECT id FROM (
+        SELECT id, ROW_NUMBER() OVER (
+            PARTITION BY user_id ORDER BY updated_at DESC NULLS LAST, created_at DESC NULLS LAST, id
+        ) AS position
+        FROM addresses
+        WHERE is_default
+    ) defaults
+    WHERE position > 1
+);
+
+-- Equivale ao índice único parcial (user_id) WHERE is_default, mas DEFERRABLE: a troca de padrão
+-- num único UPDATE liga um e desliga o outro, e o índice único comum conferiria linha a linha
+ALTER TABLE addresses ADD CONSTRAINT uq_addresses_user_default
+    EXCLUDE USING btree (user_id WITH =) WHERE (is_default)
+    DEFERRABLE INITIALLY IMMEDIATE;
@@ -0,0 +1,23 @@
+-- V11__Webhook_Events.sql
+-- Webhooks recebidos: gravados como chegaram e processados depois por um worker, com retentativas
+
+CREATE TABLE webhook_events (
+    id VARCHAR(36) PRIMARY KEY,
+    source VARCHAR(30) NOT NULL,
+    payload TEXT NOT NULL,
+    -- PENDING até ser processado; DEAD depois de esgotar as tentativas
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL,
+    last_error TEXT,
+    received_at TIMESTAMP NOT NULL,
+    processed_at TIMESTAMP
+);
+
+-- Fila do worker: só as pendentes, na ordem em que ficam elegíveis
+CREATE INDEX idx_webhook_events_pending ON webhook_events(source, next_attempt_at)
+    WHERE status = 'PENDING';
+
+-- Limpeza periódica dos já processados
+CREATE INDEX idx_webhook_events_processed_at ON webhook_events(processed_at)
+    WHERE status = 'PROCESSED';
@@ -0,0 +1,7 @@
+-- V12__Webhook_Events_Dedup.sql
+-- Deduplicação dos webhooks: a mesma notificação reenviada pelo provedor não gera um segundo evento
+
+-- notificação:pagamento:ação; NULL quando o payload não traz o id da notificação
+ALTER TABLE webhook_events ADD COLUMN dedup_key TEXT;
+
+CREATE UNIQUE INDEX uq_webhook_events_dedup_key ON webhook_events(dedup_key);
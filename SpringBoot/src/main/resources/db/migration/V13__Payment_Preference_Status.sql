@@ -0,0 +1,16 @@
+-- V13__Payment_Preference_Status.sql
+-- Criação da preferência em passos curtos: o pagamento nasce CREATING e só vira CREATED depois da
+-- resposta do MercadoPago; linhas paradas em CREATING são retomadas pela recuperação
+
+-- Pagamentos existentes já passaram pela criação da preferência
+ALTER TABLE payments ADD COLUMN preference_status VARCHAR(20) NOT NULL DEFAULT 'CREATED';
+ALTER TABLE payments ADD COLUMN preference_attempts INTEGER NOT NULL DEFAULT 0;
+-- A recuperação refaz a chamada com os dados originais, inclusive o pagador
+ALTER TABLE payments ADD COLUMN payer_email VARCHAR(255);
+
+-- A entidade grava amount; total_amount ficou só no schema inicial e barrava o INSERT
+ALTER TABLE payments ALTER COLUMN total_amount DROP NOT NULL;
+
+-- Fila da recuperação: só as criações em andamento
+CREATE INDEX idx_payments_preference_creating ON payments(updated_at)
+    WHERE preference_status = 'CREATING';
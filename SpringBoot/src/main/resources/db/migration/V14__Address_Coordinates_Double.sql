@@ -0,0 +1,17 @@
+-- V14__Address_Coordinates_Double.sql
+-- Coordenadas de addresses em DOUBLE PRECISION, o tipo mapeado em Address. Num banco criado só
+-- pelas migrações elas ainda eram DECIMAL(10, 7) do V1, e o ddl-auto não consegue mais alterá-las
+-- porque a coluna gerada geohash (V8) depende delas; por isso a coluna e o índice são recriados
+
+DROP INDEX IF EXISTS idx_addresses_geohash;
+ALTER TABLE addresses DROP COLUMN geohash;
+
+ALTER TABLE addresses
+    ALTER COLUMN latitude TYPE DOUBLE PRECISION,
+    ALTER COLUMN longitude TYPE DOUBLE PRECISION;
+
+ALTER TABLE addresses ADD COLUMN geohash VARCHAR(12) COLLATE "C"
+    GENERATED ALWAYS AS (geohash_encode(latitude, longitude, 12)) STORED;
+
+CREATE INDEX idx_addresses_geohash ON addresses(geohash) INCLUDE (id, user_id, latitude, longitude)
+    WHERE geohash IS NOT NULL;
@@ -0,0 +1,15 @@
+-- V15__Product_Sales.sql
+-- Unidades vendidas por produto, somadas no commit de cada reserva: a popularidade do autocomplete
+-- sai daqui em vez de um GROUP BY sobre stock_reservations, que só cresce
+
+-- Linha própria, fora de products: o commit não disputa o lock da linha do estoque
+CREATE TABLE product_sales (
+    product_id VARCHAR(36) PRIMARY KEY REFERENCES products(id),
+    units_sold BIGINT NOT NULL
+);
+
+INSERT INTO product_sales (product_id, units_sold)
+SELECT product_id, SUM(quantity)
+FROM stock_reservations
+WHERE status = 'COMMITTED'
+GROUP BY product_id;
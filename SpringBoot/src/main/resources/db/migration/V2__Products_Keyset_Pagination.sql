@@ -0,0 +1,10 @@
+-- V2__Products_Keyset_Pagination.sql
+-- Paginação keyset (cursor) da listagem de produtos
+
+-- A entidade Product usa soft delete via coluna active
+ALTER TABLE products ADD COLUMN IF NOT EXISTS active BOOLEAN NOT NULL DEFAULT TRUE;
+
+-- Índice na mesma ordem da listagem: ORDER BY created_at DESC, id DESC
+CREATE INDEX IF NOT EXISTS idx_products_active_created_at_id
+    ON products (created_at DESC, id DESC)
+    WHERE active = TRUE;
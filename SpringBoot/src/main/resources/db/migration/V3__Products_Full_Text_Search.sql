@@ -0,0 +1,21 @@
+-- V3__Products_Full_Text_Search.sql
+-- Busca de produtos indexada: full-text (tsvector) + trigramas (pg_trgm)
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Nome com peso A e descrição com peso B para o ranking (ts_rank_cd)
+ALTER TABLE products
+    ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('portuguese', coalesce(name, '')), 'A') ||
+        setweight(to_tsvector('portuguese', coalesce(description, '')), 'B')
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_products_search_vector
+    ON products USING gin (search_vector)
+    WHERE active = TRUE;
+
+-- Atende ILIKE '%termo%' e o operador de similaridade (%) no nome
+CREATE INDEX IF NOT EXISTS idx_products_name_trgm
+    ON products USING gin (name gin_trgm_ops)
+    WHERE active = TRUE;
@@ -0,0 +1,23 @@
+-- V4__Stock_Reservations.sql
+-- Reservas de estoque (reserve/commit/release com TTL)
+
+-- Última barreira contra venda acima do estoque
+ALTER TABLE products ADD CONSTRAINT chk_products_stock_non_negative CHECK (stock >= 0);
+
+CREATE TABLE stock_reservations (
+    id VARCHAR(36) PRIMARY KEY,
+    product_id VARCHAR(36) NOT NULL REFERENCES products(id),
+    user_id VARCHAR(36) NOT NULL REFERENCES users(id),
+    quantity INTEGER NOT NULL CHECK (quantity > 0),
+    status VARCHAR(20) NOT NULL DEFAULT 'RESERVED',
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_stock_reservations_user ON stock_reservations(user_id);
+
+-- Varredura de expiração: apenas reservas ainda pendentes
+CREATE INDEX idx_stock_reservations_expiring
+    ON stock_reservations (expires_at)
+    WHERE status = 'RESERVED';
@@ -0,0 +1,21 @@
+-- V5__Products_Filter_Indexes.sql
+-- Índices parciais para os filtros (preço, estoque, criador) e a ordenação por preço da listagem
+
+-- Faixa de preço e ORDER BY price, id; INCLUDE (stock) deixa a contagem de facetas só no índice
+CREATE INDEX IF NOT EXISTS idx_products_active_price_id
+    ON products (price, id) INCLUDE (stock)
+    WHERE active = TRUE;
+
+-- Somente com estoque, nas duas ordenações
+CREATE INDEX IF NOT EXISTS idx_products_in_stock_created_at_id
+    ON products (created_at DESC, id DESC)
+    WHERE active = TRUE AND stock > 0;
+
+CREATE INDEX IF NOT EXISTS idx_products_in_stock_price_id
+    ON products (price, id)
+    WHERE active = TRUE AND stock > 0;
+
+-- Vitrine de um criador; idx_products_created_by continua atendendo a FK
+CREATE INDEX IF NOT EXISTS idx_products_active_created_by_created_at_id
+    ON products (created_by_id, created_at DESC, id DESC) INCLUDE (price, stock)
+    WHERE active = TRUE;
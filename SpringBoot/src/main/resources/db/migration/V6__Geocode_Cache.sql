@@ -0,0 +1,18 @@
+-- V6__Geocode_Cache.sql
+-- Cache persistente de geocodificação, compartilhado entre instâncias e preservado entre reinícios
+
+CREATE TABLE geocode_cache (
+    address_key TEXT PRIMARY KEY,
+    latitude DOUBLE PRECISION,
+    longitude DOUBLE PRECISION,
+    place_id VARCHAR(255),
+    formatted_address VARCHAR(500),
+    -- FALSE registra endereços que a API não encontrou (TTL menor)
+    found BOOLEAN NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Limpeza periódica das entradas vencidas
+CREATE INDEX idx_geocode_cache_expires_at ON geocode_cache(expires_at);
@@ -0,0 +1,13 @@
+-- V7__Address_Geocode_Status.sql
+-- Geocodificação assíncrona: o endereço é gravado como PENDING e enriquecido depois por um worker
+
+ALTER TABLE addresses ADD COLUMN geocode_status VARCHAR(20) NOT NULL DEFAULT 'PENDING';
+ALTER TABLE addresses ADD COLUMN geocode_attempts INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE addresses ADD COLUMN geocode_next_attempt_at TIMESTAMP;
+
+-- Endereços que já têm coordenadas não voltam para a fila; os demais são geocodificados pelo worker
+UPDATE addresses SET geocode_status = 'RESOLVED' WHERE latitude IS NOT NULL;
+
+-- Fila do worker: só as pendentes, na ordem em que ficam elegíveis
+CREATE INDEX idx_addresses_geocode_pending ON addresses(geocode_next_attempt_at NULLS FIRST)
+    WHERE geocode_status = 'PENDING';
@@ -0,0 +1,42 @@
+-- V8__Address_Geohash.sql
+-- Índice espacial sem PostGIS: geohash das coordenadas numa coluna gerada com índice B-tree
+
+-- Mesmo esquema de com.demo.infrastructure.geolocation.Geohash: índices de célula com os bits
+-- intercalados começando pela longitude
+CREATE OR REPLACE FUNCTION geohash_encode(lat DOUBLE PRECISION, lng DOUBLE PRECISION, hash_length INTEGER)
+RETURNS VARCHAR
+LANGUAGE plpgsql IMMUTABLE STRICT PARALLEL SAFE
+AS $$
+DECLARE
+    alphabet CONSTANT TEXT := '0123456789bcdefghjkmnpqrstuvwxyz';
+    lng_bits INTEGER := (5 * hash_length + 1) / 2;
+    lat_bits INTEGER := 5 * hash_length / 2;
+    lng_index BIGINT := GREATEST(0, LEAST((1::BIGINT << lng_bits) - 1, FLOOR((lng + 180) / 360 * (1::BIGINT << lng_bits))));
+    lat_index BIGINT := GREATEST(0, LEAST((1::BIGINT << lat_bits) - 1, FLOOR((lat + 90) / 180 * (1::BIGINT << lat_bits))));
+    bits BIGINT := 0;
+    result VARCHAR := '';
+BEGIN
+    FOR i IN 0 .. 5 * hash_length - 1 LOOP
+        IF i % 2 = 0 THEN
+            lng_bits := lng_bits - 1;
+            bits := (bits << 1) | ((lng_index >> lng_bits) & 1);
+        ELSE
+            lat_bits := lat_bits - 1;
+            bits := (bits << 1) | ((lat_index >> lat_bits) & 1);
+        END IF;
+    END LOOP;
+
+    FOR i IN REVERSE hash_length - 1 .. 0 LOOP
+        result := result || substr(alphabet, ((bits >> (5 * i)) & 31)::INTEGER + 1, 1);
+    END LOOP;
+    RETURN result;
+END;
+$$;
+
+-- COLLATE "C": intervalos de geohash dependem da ordem byte a byte do alfabeto base32
+ALTER TABLE addresses ADD COLUMN geohash VARCHAR(12) COLLATE "C"
+    GENERATED ALWAYS AS (geohash_encode(latitude::DOUBLE PRECISION, longitude::DOUBLE PRECISION, 12)) STORED;
+
+-- INCLUDE deixa a busca por raio só no índice (index-only scan), sem visitar o heap
+CREATE INDEX idx_addresses_geohash ON addresses(geohash) INCLUDE (id, user_id, latitude, longitude)
+    WHERE geohash IS NOT NULL;
@@ -0,0 +1,22 @@
+-- V9__Address_Import_Jobs.sql
+-- Importação em massa de endereços: um job por arquivo, com contadores atualizados a cada lote gravado
+
+CREATE TABLE address_import_jobs (
+    id VARCHAR(36) PRIMARY KEY,
+    user_id VARCHAR(36) NOT NULL REFERENCES users(id),
+    status VARCHAR(20) NOT NULL,
+    total_rows BIGINT NOT NULL DEFAULT 0,
+    imported BIGINT NOT NULL DEFAULT 0,
+    duplicates BIGINT NOT NULL DEFAULT 0,
+    failed BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_address_import_jobs_user ON address_import_jobs(user_id);
+
+ALTER TABLE addresses ADD COLUMN import_job_id VARCHAR(36) REFERENCES address_import_jobs(id) ON DELETE SET NULL;
+
+-- Progresso do geocoding de um job: contagem por status sem tocar no heap
+CREATE INDEX idx_addresses_import_job ON addresses(import_job_id, geocode_status)
+    WHERE import_job_id IS NOT NULL;
@@ -0,0 +1,236 @@
+package com.demo.features.addresses.service;
+
+import com.demo.common.exception.BusinessException;
+import com.demo.common.persistence.SparseQuery;
+import com.demo.features.addresses.dto.AddressResponse;
+import com.demo.features.addresses.dto.CreateAddressRequest;
+import com.demo.features.addresses.dto.UpdateAddressRequest;
+import com.demo.features.addresses.repository.AddressRepository;
+import com.demo.infrastructure.geolocation.DistanceCache;
+import com.demo.infrastructure.geolocation.GoogleMapsService;
+import com.demo.support.PostgresIntegrationTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Endereço padrão contra o banco real: trocas e criações simultâneas deixam exatamente um padrão
+ * por usuário, quem perde a corrida recebe BusinessException, e nem a troca nem a criação de um
+ * novo padrão carregam o padrão anterior.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+        AddressService.class,
+        SparseQuery.class,
+        SimpleMeterRegistry.class
+})
+class AddressDefaultConcurrencyTest extends PostgresIntegrationTest {
+
+    private static final List<String> USERS = List.of("owner-1", "owner-2");
+    private static final int ADDRESSES_PER_USER = 5;
+    private static final int THREADS = 16;
+    // Perdedores de deadlock esperam o deadlock_timeout (1s) do Postgres: poucas tentativas bastam
+    private static final int ATTEMPTS = 120;
+
+    @MockitoBean
+    private GoogleMapsService googleMapsService;
+
+    @MockitoBean
+    private DistanceCache distanceCache;
+
+    @MockitoBean
+    private AddressGeocodingWorker geocodingWorker;
+
+    @Autowired
+    private AddressService addressService;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final Map<String, List<String>> addresses = new HashMap<>();
+
+    @BeforeEach
+    void seedAddresses() {
+        for (String userId : USERS) {
+            jdbcTemplate.update("INSERT INTO users (id, name, email, password) VALUES (?, ?, ?, 'secret')",
+                    userId, "Owner " + userId, userId + "@example.com");
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < ADDRESSES_PER_USER; i++) {
+                ids.add(addressService.create(userId, request(i == 0)).id());
+            }
+            addresses.put(userId, ids);
+        }
+    }
+
+    @AfterEach
+    void deleteAddresses() {
+        for (String userId : USERS) {
+            jdbcTemplate.update("DELETE FROM addresses WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+        }
+    }
+
+    @Test
+    void parallelSwitchesAndCreatesLeaveOneDefaultPerUser() throws Exception {
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ConcurrentLinkedQueue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int i = 0; i < ATTEMPTS; i++) {
+                String userId = USERS.get(i % USERS.size());
+                boolean create = i % 5 == 0;
+                executor.submit(() -> {
+                    start.await();
+                    try {
+                        if (create) {
+                            addressService.create(userId, request(true));
+                        } else {
+                            List<String> ids = addresses.get(userId);
+                            String id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+                            addressService.update(id, userId, switchTo());
+                        }
+                        succeeded.incrementAndGet();
+                    } catch (BusinessException e) {
+                        rejected.incrementAndGet();
+                    } catch (Throwable e) {
+                        unexpected.add(e);
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(unexpected).isEmpty();
+        assertThat(succeeded.get()).isPositive();
+        assertThat(succeeded.get() + rejected.get()).isEqualTo(ATTEMPTS);
+        for (String userId : USERS) {
+            assertThat(defaultsOf(userId)).as("defaults of %s", userId).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void staleDefaultFlagIsRejectedAsBusinessException() {
+        String userId = USERS.get(0);
+        String oldDefault = addresses.get(userId).get(0);
+        String newDefault = addresses.get(userId).get(1);
+
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            // Lido como padrão antes da troca que outra requisição commita em seguida
+            addressRepository.findById(oldDefault).orElseThrow();
+            CompletableFuture.runAsync(() -> addressService.update(newDefault, userId, switchTo())).join();
+
+            // Só muda o rótulo, mas o UPDATE da entidade leva o is_default = true antigo junto
+            addressService.update(oldDefault, userId, new UpdateAddressRequest(
+                    null, null, null, null, null, null, null, null, "Casa", null));
+        })).isInstanceOf(BusinessException.class);
+
+        assertThat(defaultsOf(userId)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT is_default FROM addresses WHERE id = ?", Boolean.class, newDefault))
+                .isTrue();
+    }
+
+    @Test
+    void switchingDefaultDoesNotLoadThePreviousDefault() {
+        String userId = USERS.get(0);
+        String previous = addresses.get(userId).get(0);
+        String next = addresses.get(userId).get(3);
+        Statistics statistics = statistics();
+
+        AddressResponse response = addressService.update(next, userId, switchTo());
+
+        // Endereço alvo, o seu usuário, a troca em lote e o UPDATE da entidade; o padrão anterior
+        // só é tocado pela troca em lote, sem SELECT nem UPDATE próprios
+        assertThat(response.isDefault()).isTrue();
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(2);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+        assertThat(jdbcTemplate.queryForObject("SELECT is_default FROM addresses WHERE id = ?", Boolean.class, previous))
+                .isFalse();
+        assertThat(defaultsOf(userId)).isEqualTo(1);
+    }
+
+    @Test
+    void creatingADefaultDoesNotLoadThePreviousDefault() {
+        String userId = USERS.get(1);
+        String previous = addresses.get(userId).get(0);
+        Statistics statistics = statistics();
+
+        AddressResponse response = addressService.create(userId, request(true));
+
+        // O usuário, o UPDATE que desliga o padrão anterior e o INSERT já como padrão
+        assertThat(response.isDefault()).isTrue();
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT is_default FROM addresses WHERE id = ?", Boolean.class, previous))
+                .isFalse();
+        assertThat(defaultsOf(userId)).isEqualTo(1);
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private int defaultsOf(String userId) {
+        Integer defaults = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM addresses WHERE user_id = ? AND is_default", Integer.class, userId);
+        return defaults != null ? defaults : -1;
+    }
+
+    private static CreateAddressRequest request(boolean isDefault) {
+        return new CreateAddressRequest("Rua Augusta", "100", null, "Consolação", "São Paulo", "SP",
+                "01305-000", null, null, isDefault);
+    }
+
+    private static UpdateAddressRequest switchTo() {
+        return new UpdateAddressRequest(null, null, null, null, null, null, null, null, null, true);
+    }
+}
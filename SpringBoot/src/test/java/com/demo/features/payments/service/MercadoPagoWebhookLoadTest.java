@@ -0,0 +1,217 @@
+package com.demo.features.payments.service;
+
+import com.demo.infrastructure.payments.MercadoPagoService;
+import com.demo.infrastructure.payments.MercadoPagoService.PaymentResult;
+import com.demo.support.PostgresIntegrationTest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Carga nos webhooks com a API do MercadoPago simulada com latência fixa: o recebimento não espera
+ * a API, duas réplicas drenam a fila sem processar um evento duas vezes, e a drenagem usa o pool
+ * de consultas em vez de seguir no ritmo de uma chamada por vez.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+// O worker processa em threads próprias e só enxerga o que foi commitado
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+        WebhookEventService.class,
+        MercadoPagoWebhookWorker.class,
+        SimpleMeterRegistry.class
+})
+class MercadoPagoWebhookLoadTest extends PostgresIntegrationTest {
+
+    private static final String BUYER = "load-buyer";
+    private static final int PAYMENTS = 250;
+    // Notificações por pagamento: criado, atualizado e reenvios com outro id
+    private static final int NOTIFICATIONS_PER_PAYMENT = 4;
+    private static final int WARMUP = 200;
+    private static final int SENDERS = 16;
+    private static final long API_LATENCY_MS = 25;
+    // Folga para CI compartilhado; num núcleo só, com 16 remetentes, o p99 fica abaixo de 200ms
+    private static final long ACK_P99_BUDGET_MS = 1000;
+
+    @MockitoBean
+    private MercadoPagoService mercadoPagoService;
+
+    @Autowired
+    private WebhookEventService webhookEventService;
+
+    @Autowired
+    private MercadoPagoWebhookWorker worker;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicInteger apiCalls = new AtomicInteger();
+    // Fechado durante a rajada: a API não responde até o último webhook ser aceito
+    private final CountDownLatch apiAvailable = new CountDownLatch(1);
+
+    @BeforeEach
+    void seedPayments() {
+        jdbcTemplate.update("INSERT INTO users (id, name, email, password) VALUES (?, 'Buyer', 'load@example.com', 'secret')",
+                BUYER);
+        List<Object[]> payments = new ArrayList<>();
+        for (int i = 0; i < PAYMENTS; i++) {
+            payments.add(new Object[]{paymentId(i), BUYER});
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO payments (id, title, description, quantity, unit_price, amount, total_amount, status, user_id)
+                VALUES (?, 'Pedido', 'Pedido', 1, 10.00, 10.00, 10.00, 'PENDING', ?)
+                """, payments);
+
+        when(mercadoPagoService.isConfigured()).thenReturn(true);
+        // O id no MercadoPago é o índice do pagamento local, devolvido como referência externa
+        when(mercadoPagoService.getPayment(anyString())).thenAnswer(invocation -> {
+            apiCalls.incrementAndGet();
+            apiAvailable.await(30, TimeUnit.SECONDS);
+            Thread.sleep(API_LATENCY_MS);
+            String mercadoPagoId = invocation.getArgument(0);
+            return new PaymentResult(mercadoPagoId, "approved", paymentId(Integer.parseInt(mercadoPagoId)), "credit_card");
+        });
+    }
+
+    @AfterEach
+    void deleteRows() {
+        jdbcTemplate.update("DELETE FROM webhook_events");
+        jdbcTemplate.update("DELETE FROM payments WHERE user_id = ?", BUYER);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", BUYER);
+    }
+
+    @Test
+    void burstIsAcknowledgedWithoutWaitingForTheApiAndDrainedOnceByTwoReplicas() throws Exception {
+        int notifications = PAYMENTS * NOTIFICATIONS_PER_PAYMENT;
+        MercadoPagoWebhookWorker replica = new MercadoPagoWebhookWorker(mercadoPagoService, jdbcTemplate, objectMapper,
+                meterRegistry, 8, 100, 8, Duration.ofSeconds(10), Duration.ofMinutes(30), Duration.ofMinutes(2),
+                Duration.ofDays(7));
+        // Faz o papel do @Scheduled nas duas réplicas
+        ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor();
+        poller.scheduleWithFixedDelay(() -> {
+            worker.wake();
+            replica.wake();
+        }, 0, 100, TimeUnit.MILLISECONDS);
+        ExecutorService senders = Executors.newFixedThreadPool(SENDERS);
+        try {
+            // Aquece JIT, pool de conexões e caches; merchant_order não consulta a API
+            for (int i = 0; i < WARMUP; i++) {
+                webhookEventService.receiveMercadoPago(
+                        "{\"id\": \"%s\", \"type\": \"merchant_order\", \"data\": {\"id\": \"1\"}}".formatted(UUID.randomUUID()));
+            }
+            awaitDrained();
+            double processed = outcome("processed");
+
+            List<Future<Long>> receipts = new ArrayList<>(notifications);
+            for (int i = 0; i < notifications; i++) {
+                String payload = notification(i % PAYMENTS);
+                receipts.add(senders.submit(() -> {
+                    long sent = System.nanoTime();
+                    assertThat(webhookEventService.receiveMercadoPago(payload)).isTrue();
+                    return System.nanoTime() - sent;
+                }));
+            }
+            long[] ackNanos = new long[notifications];
+            for (int i = 0; i < notifications; i++) {
+                ackNanos[i] = receipts.get(i).get(30, TimeUnit.SECONDS);
+            }
+
+            // Todas as respostas saíram com a API parada e os workers presos nela
+            assertThat(apiAvailable.getCount()).isEqualTo(1);
+            assertThat(apiCalls.get()).as("consultas em andamento").isPositive();
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM webhook_events WHERE payload LIKE '%payment.updated%'",
+                    Integer.class)).isEqualTo(notifications);
+            Arrays.sort(ackNanos);
+            long ackP99Millis = TimeUnit.NANOSECONDS.toMillis(ackNanos[notifications * 99 / 100]);
+            assertThat(ackP99Millis).as("p99 da resposta ao webhook em ms").isLessThan(ACK_P99_BUDGET_MS);
+
+            long start = System.nanoTime();
+            apiAvailable.countDown();
+            awaitDrained();
+            long drainMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertThat(pending()).as("eventos ainda na fila").isZero();
+            // Cada evento processado uma vez, mesmo com as duas réplicas reservando ao mesmo tempo
+            assertThat(outcome("processed") - processed).isEqualTo(notifications);
+            assertThat(jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM webhook_events WHERE status = 'PROCESSED' AND attempts = 1", Integer.class))
+                    .isEqualTo(WARMUP + notifications);
+            assertThat(jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM payments WHERE user_id = ? AND status = 'APPROVED' AND external_id IS NOT NULL",
+                    Integer.class, BUYER)).isEqualTo(PAYMENTS);
+            // Notificações do mesmo pagamento no mesmo lote viram uma consulta só
+            assertThat(apiCalls.get()).isBetween(PAYMENTS, notifications);
+            // Em série seriam apiCalls * latência; com o pool de consultas, uma fração disso
+            assertThat(drainMillis).as("drenagem em ms").isLessThan(apiCalls.get() * API_LATENCY_MS / 4);
+        } finally {
+            apiAvailable.countDown();
+            poller.shutdownNow();
+            senders.shutdownNow();
+            replica.shutdown();
+        }
+    }
+
+    private static String paymentId(int index) {
+        return "load-payment-" + index;
+    }
+
+    private String notification(int payment) {
+        return """
+                {"id": "%s", "type": "payment", "action": "payment.updated", "data": {"id": "%d"}}
+                """.formatted(UUID.randomUUID(), payment);
+    }
+
+    private void awaitDrained() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (pending() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    private int pending() {
+        Integer pending = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM webhook_events WHERE status <> 'PROCESSED'", Integer.class);
+        return pending != null ? pending : -1;
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.get("payments.webhooks").tag("outcome", outcome).counter().count();
+    }
+}
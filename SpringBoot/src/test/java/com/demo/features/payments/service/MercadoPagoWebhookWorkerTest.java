@@ -0,0 +1,333 @@
+package com.demo.features.payments.service;
+
+import com.demo.infrastructure.payments.MercadoPagoService;
+import com.demo.infrastructure.payments.MercadoPagoService.PaymentResult;
+import com.demo.support.PostgresIntegrationTest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Worker dos webhooks contra o banco real: uma consulta por pagamento no lote, gravação só quando
+ * algo muda, backoff exponencial limitado, DEAD ao esgotar as tentativas ou com payload inválido,
+ * e o lease da reserva, que impede outra réplica de pegar o mesmo evento enquanto ele está em voo.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+// O worker processa em threads próprias e só enxerga o que foi commitado
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+        WebhookEventService.class,
+        MercadoPagoWebhookWorker.class,
+        SimpleMeterRegistry.class
+})
+class MercadoPagoWebhookWorkerTest extends PostgresIntegrationTest {
+
+    private static final String BUYER = "webhook-buyer";
+    private static final String PAYMENT = "webhook-payment";
+    // Defaults de app.mercadopago.webhooks.*
+    private static final int MAX_ATTEMPTS = 8;
+    private static final Duration RETRY_BACKOFF = Duration.ofSeconds(10);
+    private static final Duration MAX_RETRY_BACKOFF = Duration.ofMinutes(30);
+    private static final Duration LEASE = Duration.ofMinutes(2);
+
+    @MockitoBean
+    private MercadoPagoService mercadoPagoService;
+
+    @Autowired
+    private MercadoPagoWebhookWorker worker;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void seedPayment() {
+        jdbcTemplate.update("INSERT INTO users (id, name, email, password) VALUES (?, 'Buyer', 'webhook@example.com', 'secret')",
+                BUYER);
+        jdbcTemplate.update("""
+                INSERT INTO payments (id, title, description, quantity, unit_price, amount, total_amount, status, user_id, updated_at)
+                VALUES (?, 'Pedido', 'Pedido', 1, 10.00, 10.00, 10.00, 'PENDING', ?, ?)
+                """, PAYMENT, BUYER, Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 0, 0)));
+        when(mercadoPagoService.isConfigured()).thenReturn(true);
+    }
+
+    @AfterEach
+    void deleteRows() {
+        jdbcTemplate.update("DELETE FROM webhook_events");
+        jdbcTemplate.update("DELETE FROM payments WHERE user_id = ?", BUYER);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", BUYER);
+    }
+
+    @Test
+    void batchLooksUpEachPaymentOnceAndUpdatesIt() throws InterruptedException {
+        when(mercadoPagoService.getPayment("501")).thenReturn(new PaymentResult("501", "approved", PAYMENT, "credit_card"));
+        when(mercadoPagoService.getPayment("502")).thenReturn(new PaymentResult("502", "approved", "elsewhere", "pix"));
+        double processed = outcome("processed");
+        String[] events = {
+                enqueue(notification("501", "payment.created"), 0),
+                enqueue(notification("501", "payment.updated"), 0),
+                enqueue(notification("501", "payment.updated"), 0),
+                enqueue(notification("502", "payment.created"), 0)
+        };
+
+        worker.wake();
+        await(() -> statuses(events).values().stream().allMatch("PROCESSED"::equals));
+
+        // Três notificações do mesmo pagamento no lote: uma consulta
+        verify(mercadoPagoService, times(1)).getPayment("501");
+        verify(mercadoPagoService, times(1)).getPayment("502");
+        assertThat(outcome("processed") - processed).isEqualTo(4);
+        Map<String, Object> payment = payment();
+        assertThat(payment.get("status")).isEqualTo("APPROVED");
+        assertThat(payment.get("external_id")).isEqualTo("501");
+        assertThat(payment.get("payment_type")).isEqualTo("credit_card");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM webhook_events WHERE attempts = 1 AND processed_at IS NOT NULL AND last_error IS NULL",
+                Integer.class)).isEqualTo(4);
+    }
+
+    @Test
+    void unchangedPaymentIsNotRewritten() throws InterruptedException {
+        when(mercadoPagoService.getPayment("503")).thenReturn(new PaymentResult("503", "approved", PAYMENT, "credit_card"));
+        String first = enqueue(notification("503", "payment.updated"), 0);
+        worker.wake();
+        await(() -> "PROCESSED".equals(status(first)));
+        Object updatedAt = payment().get("updated_at");
+
+        // Reenvio com o mesmo estado: o evento é processado, o pagamento não é regravado
+        String resend = enqueue(notification("503", "payment.updated"), 0);
+        worker.wake();
+        await(() -> "PROCESSED".equals(status(resend)));
+        assertThat(payment().get("updated_at")).isEqualTo(updatedAt);
+
+        when(mercadoPagoService.getPayment("503")).thenReturn(new PaymentResult("503", "refunded", PAYMENT, "credit_card"));
+        String refund = enqueue(notification("503", "payment.updated"), 0);
+        worker.wake();
+        await(() -> "PROCESSED".equals(status(refund)));
+        assertThat(payment().get("status")).isEqualTo("REFUNDED");
+        assertThat(payment().get("updated_at")).isNotEqualTo(updatedAt);
+    }
+
+    @Test
+    void apiFailureRetriesWithExponentialBackoff() throws InterruptedException {
+        when(mercadoPagoService.getPayment(anyString()))
+                .thenThrow(new RuntimeException("Failed to get payment", new RuntimeException("timeout")));
+        double retried = outcome("retry");
+        String firstFailure = enqueue(notification("504", "payment.updated"), 0);
+        String fourthFailure = enqueue(notification("505", "payment.updated"), 3);
+
+        LocalDateTime before = LocalDateTime.now();
+        worker.wake();
+        await(() -> attempts(firstFailure) == 1 && attempts(fourthFailure) == 4);
+        LocalDateTime after = LocalDateTime.now();
+
+        assertThat(statuses(firstFailure, fourthFailure).values()).containsOnly("PENDING");
+        assertThat(outcome("retry") - retried).isEqualTo(2);
+        assertThat(nextAttempt(firstFailure)).isBetween(before.plus(RETRY_BACKOFF), after.plus(RETRY_BACKOFF));
+        assertThat(nextAttempt(fourthFailure)).isBetween(before.plus(RETRY_BACKOFF.multipliedBy(8)),
+                after.plus(RETRY_BACKOFF.multipliedBy(8)));
+        assertThat(jdbcTemplate.queryForList("SELECT last_error FROM webhook_events", String.class))
+                .containsOnly("timeout");
+    }
+
+    @Test
+    void backoffIsCappedAtMaxRetryBackoff() throws InterruptedException {
+        when(mercadoPagoService.getPayment(anyString()))
+                .thenThrow(new RuntimeException("Failed to get payment", new RuntimeException("timeout")));
+        // Com o default de tentativas o limite não é alcançado: 10s * 2^6 ainda fica abaixo de 30m
+        MercadoPagoWebhookWorker patient = replica(20);
+        try {
+            String event = enqueue(notification("506", "payment.updated"), 8);
+
+            LocalDateTime before = LocalDateTime.now();
+            patient.wake();
+            await(() -> attempts(event) == 9);
+            LocalDateTime after = LocalDateTime.now();
+
+            assertThat(status(event)).isEqualTo("PENDING");
+            assertThat(nextAttempt(event)).isBetween(before.plus(MAX_RETRY_BACKOFF), after.plus(MAX_RETRY_BACKOFF));
+        } finally {
+            patient.shutdown();
+        }
+    }
+
+    @Test
+    void lastAttemptDeadLettersTheEvent() throws InterruptedException {
+        when(mercadoPagoService.getPayment(anyString()))
+                .thenThrow(new RuntimeException("Failed to get payment", new RuntimeException("timeout")));
+        double dead = outcome("dead");
+        String event = enqueue(notification("507", "payment.updated"), MAX_ATTEMPTS - 1);
+
+        worker.wake();
+        await(() -> "DEAD".equals(status(event)));
+        assertThat(attempts(event)).isEqualTo(MAX_ATTEMPTS);
+        assertThat(outcome("dead") - dead).isEqualTo(1);
+
+        // DEAD sai da fila: outra rodada não consulta de novo
+        worker.wake();
+        Thread.sleep(300);
+        verify(mercadoPagoService, times(1)).getPayment("507");
+        assertThat(payment().get("status")).isEqualTo("PENDING");
+    }
+
+    @Test
+    void invalidPayloadDeadLettersWithoutCallingTheApi() throws InterruptedException {
+        String event = enqueue("{not json", 0);
+
+        worker.wake();
+        await(() -> "DEAD".equals(status(event)));
+
+        assertThat(attempts(event)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT last_error FROM webhook_events WHERE id = ?", String.class, event))
+                .startsWith("Invalid JSON payload");
+        verify(mercadoPagoService, never()).getPayment(anyString());
+    }
+
+    @Test
+    void otherNotificationsAreProcessedWithoutCallingTheApi() throws InterruptedException {
+        double ignored = outcome("ignored");
+        String merchantOrder = enqueue("{\"id\": \"1\", \"type\": \"merchant_order\", \"data\": {\"id\": \"508\"}}", 0);
+        String mockPayment = enqueue(notification("mock-" + UUID.randomUUID(), "payment.updated"), 0);
+
+        worker.wake();
+        await(() -> statuses(merchantOrder, mockPayment).values().stream().allMatch("PROCESSED"::equals));
+
+        assertThat(outcome("ignored") - ignored).isEqualTo(2);
+        verify(mercadoPagoService, never()).getPayment(anyString());
+    }
+
+    @Test
+    void leasedEventIsSkippedByAnotherReplica() throws InterruptedException {
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mercadoPagoService.getPayment("509")).thenAnswer(invocation -> {
+            inFlight.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return new PaymentResult("509", "approved", PAYMENT, "credit_card");
+        });
+        when(mercadoPagoService.getPayment("510")).thenReturn(new PaymentResult("510", "approved", "elsewhere", "pix"));
+        MercadoPagoWebhookWorker replica = replica(MAX_ATTEMPTS);
+        try {
+            LocalDateTime before = LocalDateTime.now();
+            String leased = enqueue(notification("509", "payment.updated"), 0);
+            worker.wake();
+            assertThat(inFlight.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // Reservado e ainda PENDING: volta para a fila sozinho se esta réplica cair antes do fim
+            assertThat(status(leased)).isEqualTo("PENDING");
+            assertThat(nextAttempt(leased)).isAfterOrEqualTo(before.plus(LEASE));
+
+            String free = enqueue(notification("510", "payment.updated"), 0);
+            replica.wake();
+            await(() -> "PROCESSED".equals(status(free)));
+            assertThat(status(leased)).isEqualTo("PENDING");
+
+            release.countDown();
+            await(() -> "PROCESSED".equals(status(leased)));
+            verify(mercadoPagoService, times(1)).getPayment("509");
+            assertThat(payment().get("status")).isEqualTo("APPROVED");
+        } finally {
+            release.countDown();
+            replica.shutdown();
+        }
+    }
+
+    // Outra instância sobre o mesmo banco, como uma segunda réplica da aplicação
+    private MercadoPagoWebhookWorker replica(int maxAttempts) {
+        return new MercadoPagoWebhookWorker(mercadoPagoService, jdbcTemplate, objectMapper, meterRegistry,
+                2, 100, maxAttempts, RETRY_BACKOFF, MAX_RETRY_BACKOFF, LEASE, Duration.ofDays(7));
+    }
+
+    private String enqueue(String payload, int attempts) {
+        String id = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("""
+                INSERT INTO webhook_events (id, source, payload, attempts, next_attempt_at, received_at)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """, id, MercadoPagoWebhookWorker.SOURCE, payload, attempts,
+                Timestamp.valueOf(now.minusSeconds(1)), Timestamp.valueOf(now));
+        return id;
+    }
+
+    private String notification(String paymentId, String action) {
+        return """
+                {"id": "%s", "type": "payment", "action": "%s", "data": {"id": "%s"}}
+                """.formatted(UUID.randomUUID(), action, paymentId);
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.get("payments.webhooks").tag("outcome", outcome).counter().count();
+    }
+
+    private Map<String, Object> payment() {
+        return jdbcTemplate.queryForMap("SELECT status, external_id, payment_type, updated_at FROM payments WHERE id = ?",
+                PAYMENT);
+    }
+
+    private String status(String event) {
+        return jdbcTemplate.queryForObject("SELECT status FROM webhook_events WHERE id = ?", String.class, event);
+    }
+
+    private Map<String, String> statuses(String... events) {
+        Map<String, String> statuses = new HashMap<>();
+        for (String event : events) {
+            statuses.put(event, status(event));
+        }
+        return statuses;
+    }
+
+    private int attempts(String event) {
+        Integer attempts = jdbcTemplate.queryForObject("SELECT attempts FROM webhook_events WHERE id = ?", Integer.class, event);
+        return attempts != null ? attempts : -1;
+    }
+
+    private LocalDateTime nextAttempt(String event) {
+        return jdbcTemplate.queryForObject("SELECT next_attempt_at FROM webhook_events WHERE id = ?",
+                Timestamp.class, event).toLocalDateTime();
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
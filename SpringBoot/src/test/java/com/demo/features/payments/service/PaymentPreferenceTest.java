@@ -0,0 +1,292 @@
+package com.demo.features.payments.service;
+
+import com.demo.common.persistence.SparseQuery;
+import com.demo.domain.Payment;
+import com.demo.domain.Payment.PaymentStatus;
+import com.demo.domain.Payment.PreferenceStatus;
+import com.demo.features.payments.dto.CreatePreferenceRequest;
+import com.demo.features.payments.dto.PreferenceResponse;
+import com.demo.features.payments.repository.PaymentRepository;
+import com.demo.features.users.repository.UserRepository;
+import com.demo.infrastructure.payments.MercadoPagoService;
+import com.demo.infrastructure.payments.MercadoPagoService.PreferenceResult;
+import com.demo.support.PostgresIntegrationTest;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Criação de preferência em passos curtos contra o banco real: CREATING vira CREATED ou FAILED,
+ * nenhuma conexão do pool fica presa durante a chamada ao MercadoPago, a recuperação reserva cada
+ * pagamento parado uma vez só e para quando a thread é interrompida.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// Os passos commitam em transações próprias, como na requisição
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+        PaymentService.class,
+        PaymentPreferenceRecovery.class,
+        SparseQuery.class
+})
+class PaymentPreferenceTest extends PostgresIntegrationTest {
+
+    private static final String BUYER = "buyer";
+    private static final int MAX_ATTEMPTS = 5;
+
+    @MockitoBean
+    private MercadoPagoService mercadoPagoService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentPreferenceRecovery recovery;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void seedUser() {
+        jdbcTemplate.update("INSERT INTO users (id, name, email, password) VALUES (?, 'Buyer', 'buyer@example.com', 'secret')",
+                BUYER);
+        when(mercadoPagoService.isConfigured()).thenReturn(true);
+    }
+
+    @AfterEach
+    void deletePayments() {
+        // Um teste que falhe no meio não deixa o flag para os seguintes
+        Thread.interrupted();
+        jdbcTemplate.update("DELETE FROM payments WHERE user_id = ?", BUYER);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", BUYER);
+    }
+
+    @Test
+    void createdPreferenceCompletesThePaymentWithoutHoldingAConnection() throws Exception {
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        List<String> duringCall = new ArrayList<>();
+        when(createPreference()).thenAnswer(invocation -> {
+            String paymentId = invocation.getArgument(6);
+            duringCall.add(preferenceStatus(paymentId));
+            duringCall.add("active=" + pool.getHikariPoolMXBean().getActiveConnections());
+            return new PreferenceResult("pref-" + paymentId, "https://mp/init", "https://mp/sandbox");
+        });
+
+        PreferenceResponse response = paymentService.createPreference(BUYER, request());
+
+        String paymentId = response.payment().id();
+        // Gravado antes da chamada, e a chamada roda sem conexão emprestada
+        assertThat(duringCall).containsExactly("CREATING", "active=0");
+        assertThat(response.id()).isEqualTo("pref-" + paymentId);
+        Payment payment = paymentRepository.findById(paymentId).orElseThrow();
+        assertThat(payment.getPreferenceStatus()).isEqualTo(PreferenceStatus.CREATED);
+        assertThat(payment.getPreferenceId()).isEqualTo("pref-" + paymentId);
+        assertThat(payment.getInitPoint()).isEqualTo("https://mp/init");
+        // O id do pagamento é a referência externa e a chave de idempotência
+        verify(mercadoPagoService).createPreference(eq("Pedido"), any(), eq(2), any(), eq(paymentId), any(), eq(paymentId));
+    }
+
+    @Test
+    void failedPreferenceCancelsThePayment() {
+        when(createPreference()).thenThrow(new RuntimeException("Failed to create payment preference"));
+
+        assertThatThrownBy(() -> paymentService.createPreference(BUYER, request()))
+                .hasMessage("Failed to create payment preference");
+
+        Payment payment = onlyPayment();
+        assertThat(payment.getPreferenceStatus()).isEqualTo(PreferenceStatus.FAILED);
+        assertThat(payment.getStatus()).isEqualTo(PaymentStatus.CANCELLED);
+    }
+
+    @Test
+    void interruptedPreferenceKeepsTheInterruptFlag() {
+        when(createPreference()).thenAnswer(invocation -> {
+            // Contrato de MercadoPagoService: interrompido no backoff, restaura o flag e lança
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while creating payment preference");
+        });
+
+        assertThatThrownBy(() -> paymentService.createPreference(BUYER, request()))
+                .hasMessage("Interrupted while creating payment preference");
+
+        assertThat(Thread.interrupted()).isTrue();
+        assertThat(onlyPayment().getPreferenceStatus()).isEqualTo(PreferenceStatus.FAILED);
+    }
+
+    @Test
+    void recoveryResumesOnlyStalePayments() {
+        String stale = payment(0, 10);
+        String fresh = payment(0, 0);
+        when(createPreference()).thenAnswer(invocation ->
+                new PreferenceResult("pref-" + invocation.getArgument(6), "init", "sandbox"));
+
+        recovery.recoverStale();
+
+        assertThat(preferenceStatus(stale)).isEqualTo("CREATED");
+        assertThat(attempts(stale)).isEqualTo(1);
+        assertThat(preferenceStatus(fresh)).isEqualTo("CREATING");
+        assertThat(attempts(fresh)).isZero();
+        verify(mercadoPagoService, times(1)).createPreference(any(), any(), anyInt(), any(), any(), any(), anyString());
+        verify(mercadoPagoService).createPreference(any(), any(), anyInt(), any(), eq(stale), any(), eq(stale));
+    }
+
+    @Test
+    void recoveryFailsThePaymentOnTheLastAttempt() {
+        String lastTry = payment(MAX_ATTEMPTS - 1, 10);
+        String retried = payment(1, 10);
+        when(createPreference()).thenThrow(new RuntimeException("Failed to create payment preference"));
+
+        recovery.recoverStale();
+
+        assertThat(preferenceStatus(lastTry)).isEqualTo("FAILED");
+        // Continua na fila, com updated_at renovado pela reserva: volta só depois de outro stale-after
+        assertThat(preferenceStatus(retried)).isEqualTo("CREATING");
+        assertThat(attempts(retried)).isEqualTo(2);
+        recovery.recoverStale();
+        assertThat(attempts(retried)).isEqualTo(2);
+    }
+
+    @Test
+    void parallelRecoveriesClaimEachPaymentOnce() throws Exception {
+        List<String> stale = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            stale.add(payment(0, 10));
+        }
+        AtomicInteger calls = new AtomicInteger();
+        when(createPreference()).thenAnswer(invocation -> {
+            calls.incrementAndGet();
+            return new PreferenceResult("pref-" + invocation.getArgument(6), "init", "sandbox");
+        });
+
+        // Duas réplicas varrendo ao mesmo tempo leem a mesma lista de parados
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Void>> sweeps = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            sweeps.add(CompletableFuture.runAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                recovery.recoverStale();
+            }));
+        }
+        start.countDown();
+        CompletableFuture.allOf(sweeps.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+
+        assertThat(calls.get()).isEqualTo(stale.size());
+        assertThat(stale).allSatisfy(id -> {
+            assertThat(preferenceStatus(id)).isEqualTo("CREATED");
+            assertThat(attempts(id)).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void interruptedRecoveryLeavesTheRemainingPaymentsUnclaimed() {
+        payment(0, 10);
+        payment(0, 10);
+        when(createPreference()).thenAnswer(invocation -> {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while creating payment preference");
+        });
+
+        recovery.recoverStale();
+
+        assertThat(Thread.interrupted()).isTrue();
+        verify(mercadoPagoService, times(1)).createPreference(any(), any(), anyInt(), any(), any(), any(), anyString());
+        // Só o primeiro foi reservado; o outro fica para a próxima varredura, sem tentativa gasta
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT preference_attempts FROM payments WHERE user_id = ? ORDER BY preference_attempts", Integer.class, BUYER))
+                .containsExactly(0, 1);
+    }
+
+    @Test
+    void unconfiguredServiceRecordsNothing() {
+        when(mercadoPagoService.isConfigured()).thenReturn(false);
+
+        assertThatThrownBy(() -> paymentService.createPreference(BUYER, request()))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(paymentRepository.count()).isZero();
+        verify(mercadoPagoService, never()).createPreference(any(), any(), anyInt(), any(), any(), any(), anyString());
+    }
+
+    private PreferenceResult createPreference() {
+        return mercadoPagoService.createPreference(any(), any(), anyInt(), any(), any(), any(), anyString());
+    }
+
+    // Pagamento em CREATING com a última mudança há minutesAgo minutos
+    private String payment(int attempts, int minutesAgo) {
+        Payment payment = paymentRepository.save(Payment.builder()
+                .title("Pedido")
+                .description("Pedido")
+                .quantity(1)
+                .unitPrice(BigDecimal.TEN)
+                .amount(BigDecimal.TEN)
+                .preferenceStatus(PreferenceStatus.CREATING)
+                .preferenceAttempts(attempts)
+                .user(userRepository.getReferenceById(BUYER))
+                .build());
+        jdbcTemplate.update("UPDATE payments SET updated_at = now() - make_interval(mins => ?) WHERE id = ?",
+                minutesAgo, payment.getId());
+        return payment.getId();
+    }
+
+    private Payment onlyPayment() {
+        List<Payment> payments = paymentRepository.findAll();
+        assertThat(payments).hasSize(1);
+        return payments.get(0);
+    }
+
+    private String preferenceStatus(String paymentId) {
+        return jdbcTemplate.queryForObject("SELECT preference_status FROM payments WHERE id = ?", String.class, paymentId);
+    }
+
+    private int attempts(String paymentId) {
+        Integer attempts = jdbcTemplate.queryForObject(
+                "SELECT preference_attempts FROM payments WHERE id = ?", Integer.class, paymentId);
+        return attempts != null ? attempts : -1;
+    }
+
+    private static CreatePreferenceRequest request() {
+        return new CreatePreferenceRequest("Pedido", "Dois itens", 2, new BigDecimal("25.00"), null, "buyer@example.com");
+    }
+}
@@ -0,0 +1,184 @@
+package com.demo.features.payments.service;
+
+import com.demo.infrastructure.payments.MercadoPagoService;
+import com.demo.infrastructure.payments.MercadoPagoService.PaymentResult;
+import com.demo.support.PostgresIntegrationTest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Deduplicação dos webhooks contra o banco real: a notificação repetida cai na janela em memória,
+ * depois de perder a janela cai no índice único, e em nenhum dos casos gera outra consulta à API.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+// O worker processa em threads próprias e só enxerga o que foi commitado
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+        WebhookEventService.class,
+        MercadoPagoWebhookWorker.class,
+        SimpleMeterRegistry.class
+})
+class WebhookEventServiceTest extends PostgresIntegrationTest {
+
+    @MockitoBean
+    private MercadoPagoService mercadoPagoService;
+
+    @Autowired
+    private WebhookEventService webhookEventService;
+
+    @Autowired
+    private MercadoPagoWebhookWorker worker;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Consultas à API por id de pagamento
+    private final Map<String, AtomicInteger> apiCalls = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void stubApi() {
+        when(mercadoPagoService.isConfigured()).thenReturn(true);
+        when(mercadoPagoService.getPayment(anyString())).thenAnswer(invocation -> {
+            String paymentId = invocation.getArgument(0);
+            apiCalls.computeIfAbsent(paymentId, id -> new AtomicInteger()).incrementAndGet();
+            // Sem pagamento local com essa referência: o evento é processado sem tocar em payments
+            return new PaymentResult(paymentId, "approved", "unknown-" + paymentId, "credit_card");
+        });
+    }
+
+    @AfterEach
+    void deleteEvents() {
+        jdbcTemplate.update("DELETE FROM webhook_events");
+    }
+
+    @Test
+    void repeatedNotificationIsDroppedInMemoryWithoutAnotherApiCall() throws InterruptedException {
+        String payload = notification(UUID.randomUUID().toString(), "1001", "payment.updated");
+        double accepted = received("accepted");
+        double inMemory = received("duplicate_memory");
+
+        assertThat(webhookEventService.receiveMercadoPago(payload)).isTrue();
+        awaitProcessed(1);
+        assertThat(webhookEventService.receiveMercadoPago(payload)).isFalse();
+        worker.wake();
+        awaitIdle();
+
+        assertThat(received("accepted") - accepted).isEqualTo(1);
+        assertThat(received("duplicate_memory") - inMemory).isEqualTo(1);
+        assertThat(events()).isEqualTo(1);
+        assertThat(apiCalls.get("1001")).hasValue(1);
+    }
+
+    @Test
+    void repeatedNotificationAfterTheMemoryWindowIsDroppedByTheUniqueIndex() throws InterruptedException {
+        String payload = notification(UUID.randomUUID().toString(), "1002", "payment.updated");
+        double stored = received("duplicate_stored");
+        assertThat(webhookEventService.receiveMercadoPago(payload)).isTrue();
+        awaitProcessed(1);
+
+        // Outra réplica, ou esta depois de um restart: janela em memória vazia, mesmo banco
+        WebhookEventService restarted = new WebhookEventService(
+                jdbcTemplate, objectMapper, worker, meterRegistry, 100, Duration.ofHours(1));
+        assertThat(restarted.receiveMercadoPago(payload)).isFalse();
+        // O INSERT recusado ocupa a janela: o próximo reenvio nem chega ao banco
+        assertThat(restarted.receiveMercadoPago(payload)).isFalse();
+        worker.wake();
+        awaitIdle();
+
+        assertThat(received("duplicate_stored") - stored).isEqualTo(1);
+        assertThat(events()).isEqualTo(1);
+        assertThat(apiCalls.get("1002")).hasValue(1);
+    }
+
+    @Test
+    void anotherActionOnTheSamePaymentIsANewEvent() throws InterruptedException {
+        String notificationId = UUID.randomUUID().toString();
+
+        assertThat(webhookEventService.receiveMercadoPago(notification(notificationId, "1003", "payment.created"))).isTrue();
+        assertThat(webhookEventService.receiveMercadoPago(notification(notificationId, "1003", "payment.updated"))).isTrue();
+
+        awaitProcessed(2);
+        assertThat(events()).isEqualTo(2);
+    }
+
+    @Test
+    void notificationWithoutIdIsAlwaysRecorded() throws InterruptedException {
+        String payload = "{\"type\": \"payment\", \"data\": {\"id\": \"1004\"}}";
+
+        assertThat(webhookEventService.receiveMercadoPago(payload)).isTrue();
+        assertThat(webhookEventService.receiveMercadoPago(payload)).isTrue();
+
+        awaitProcessed(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM webhook_events WHERE dedup_key IS NULL", Integer.class))
+                .isEqualTo(2);
+    }
+
+    private String notification(String id, String paymentId, String action) {
+        return """
+                {"id": "%s", "type": "payment", "action": "%s", "data": {"id": "%s"}}
+                """.formatted(id, action, paymentId);
+    }
+
+    private double received(String outcome) {
+        return meterRegistry.get("payments.webhooks.received").tag("outcome", outcome).counter().count();
+    }
+
+    private int events() {
+        Integer events = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM webhook_events", Integer.class);
+        return events != null ? events : -1;
+    }
+
+    private void awaitProcessed(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (processed() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(processed()).isEqualTo(expected);
+    }
+
+    // Uma rodada do worker depois do reenvio: se houvesse evento novo, ele seria consultado aqui
+    private void awaitIdle() throws InterruptedException {
+        Thread.sleep(300);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM webhook_events WHERE status <> 'PROCESSED'", Integer.class)).isZero();
+    }
+
+    private int processed() {
+        Integer processed = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM webhook_events WHERE status = 'PROCESSED'", Integer.class);
+        return processed != null ? processed : -1;
+    }
+}
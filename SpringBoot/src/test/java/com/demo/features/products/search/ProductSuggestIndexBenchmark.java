@@ -0,0 +1,139 @@
+package com.demo.features.products.search;
+
+import com.demo.features.products.dto.ProductSuggestionResponse;
+import com.demo.features.products.repository.ProductNameView;
+import com.demo.features.products.repository.ProductRepository;
+import com.demo.features.products.repository.StockReservationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Latência do autocomplete por tecla, em percentis (p0.99 na saída do JMH; a meta é ficar abaixo
+ * de 1ms): prefixos curtos, servidos pelo top-K pré-calculado, e longos, que percorrem o intervalo
+ * do prefixo. Também mede uma venda registrada, o custo que cada commit de reserva passa a pagar.
+ *
+ * <p>Não roda com os testes (o nome não casa com os padrões do surefire). Para rodar, numa JVM
+ * separada para que os forks do JMH herdem o classpath de teste:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main ProductSuggestIndexBenchmark"
+ * </pre>
+ * Outras opções do JMH vão no fim de exec.args, por exemplo "-p products=100000" para um tamanho só.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ProductSuggestIndexBenchmark {
+
+    private static final int VOCABULARY = 2000;
+    private static final int QUERIES = 1 << 14;
+
+    @Param({"10000", "100000"})
+    private int products;
+
+    private ProductSuggestIndex index;
+    private String[] shortPrefixes;
+    private String[] longPrefixes;
+    private String[] productIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void loadIndex() {
+        SplittableRandom random = new SplittableRandom(42);
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = word(random, 3 + random.nextInt(7));
+        }
+
+        List<ProductNameView> views = new ArrayList<>(products);
+        productIds = new String[products];
+        for (int i = 0; i < products; i++) {
+            String id = "product-" + i;
+            StringBuilder name = new StringBuilder(words[random.nextInt(VOCABULARY)]);
+            int extraWords = 1 + random.nextInt(3);
+            for (int w = 0; w < extraWords; w++) {
+                name.append(' ').append(words[random.nextInt(VOCABULARY)]);
+            }
+            productIds[i] = id;
+            views.add(view(id, name.toString()));
+        }
+
+        ProductRepository productRepository = mock(ProductRepository.class);
+        StockReservationRepository stockReservationRepository = mock(StockReservationRepository.class);
+        when(productRepository.findAllByActiveTrue(ProductNameView.class)).thenReturn(views);
+        when(stockReservationRepository.findUnitsSold()).thenReturn(List.of());
+        index = new ProductSuggestIndex(productRepository, stockReservationRepository, new SimpleMeterRegistry(), 10, 3);
+        index.reload();
+        for (int i = 0; i < products; i++) {
+            index.recordSale(productIds[i], random.nextInt(1000));
+        }
+
+        // Teclas digitadas sobre palavras reais: de 1 a 3 letras e de 4 a 8
+        shortPrefixes = new String[QUERIES];
+        longPrefixes = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String word = words[random.nextInt(VOCABULARY)];
+            shortPrefixes[i] = word.substring(0, 1 + random.nextInt(3));
+            longPrefixes[i] = word.substring(0, Math.min(word.length(), 4 + random.nextInt(5)));
+        }
+    }
+
+    @Benchmark
+    public List<ProductSuggestionResponse> shortPrefix() {
+        return index.suggest(shortPrefixes[next++ & (QUERIES - 1)], 10);
+    }
+
+    @Benchmark
+    public List<ProductSuggestionResponse> longPrefix() {
+        return index.suggest(longPrefixes[next++ & (QUERIES - 1)], 10);
+    }
+
+    @Benchmark
+    public void recordSale() {
+        index.recordSale(productIds[next++ % products], 1);
+    }
+
+    private static String word(SplittableRandom random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+
+    private static ProductNameView view(String id, String name) {
+        return new ProductNameView() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+}
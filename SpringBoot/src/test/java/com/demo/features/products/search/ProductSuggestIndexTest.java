@@ -0,0 +1,252 @@
+package com.demo.features.products.search;
+
+import com.demo.features.products.dto.ProductSuggestionResponse;
+import com.demo.features.products.repository.ProductNameView;
+import com.demo.features.products.repository.ProductRepository;
+import com.demo.features.products.repository.ProductSalesView;
+import com.demo.features.products.repository.StockReservationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Índice de autocomplete: ordem por vendas e nome, busca a partir de qualquer palavra, mudanças
+ * por produto aplicadas sem voltar ao banco e, depois de qualquer sequência delas, o mesmo
+ * resultado de uma recarga completa com os dados finais.
+ */
+class ProductSuggestIndexTest {
+
+    private static final int TOP_K = 3;
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final StockReservationRepository stockReservationRepository = mock(StockReservationRepository.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void ranksByUnitsSoldThenName() {
+        ProductSuggestIndex index = loaded(
+                Map.of("1", "Fone Bluetooth", "2", "Fone com fio", "3", "Fogão", "4", "Mouse"),
+                Map.of("3", 5L));
+
+        assertThat(names(index, "fo")).containsExactly("Fogão", "Fone Bluetooth", "Fone com fio");
+        assertThat(names(index, "fone")).containsExactly("Fone Bluetooth", "Fone com fio");
+    }
+
+    @Test
+    void matchesAnyWordIgnoringAccentsAndCase() {
+        ProductSuggestIndex index = loaded(Map.of("1", "Fone Bluetooth", "2", "Cadeira ergonômica"), Map.of());
+
+        assertThat(names(index, "BLU")).containsExactly("Fone Bluetooth");
+        assertThat(names(index, "ergonomi")).containsExactly("Cadeira ergonômica");
+        assertThat(names(index, "  ")).isEmpty();
+        assertThat(names(index, "xyz")).isEmpty();
+    }
+
+    @Test
+    void changesApplyWithoutGoingBackToTheDatabase() {
+        ProductSuggestIndex index = loaded(Map.of("1", "Teclado", "2", "Tela"), Map.of());
+
+        index.put("3", "Tênis");
+        index.put("1", "Mouse");
+        index.remove("2");
+        index.recordSale("3", 2);
+
+        assertThat(names(index, "te")).containsExactly("Tênis");
+        assertThat(names(index, "mou")).containsExactly("Mouse");
+        verify(productRepository, times(1)).findAllByActiveTrue(ProductNameView.class);
+        verify(stockReservationRepository, times(1)).findUnitsSold();
+    }
+
+    @Test
+    void removingFromAFullTopBringsInTheNextProduct() {
+        ProductSuggestIndex index = loaded(
+                Map.of("1", "Abacate", "2", "Abacaxi", "3", "Abóbora", "4", "Acerola"),
+                Map.of("1", 4L, "2", 3L, "3", 2L, "4", 1L));
+        assertThat(names(index, "a")).containsExactly("Abacate", "Abacaxi", "Abóbora");
+
+        index.remove("1");
+        assertThat(names(index, "a")).containsExactly("Abacaxi", "Abóbora", "Acerola");
+
+        // Renomear para fora do prefixo também abre a vaga
+        index.put("2", "Banana");
+        assertThat(names(index, "a")).containsExactly("Abóbora", "Acerola");
+
+        index.recordSale("4", 10);
+        assertThat(names(index, "a")).containsExactly("Acerola", "Abóbora");
+    }
+
+    @Test
+    void changesInsideATransactionWaitForTheCommit() {
+        ProductSuggestIndex index = loaded(Map.of(), Map.of());
+        TransactionSynchronizationManager.initSynchronization();
+
+        index.put("1", "Cadeira");
+        assertThat(names(index, "cad")).isEmpty();
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        assertThat(names(index, "cad")).containsExactly("Cadeira");
+    }
+
+    @Test
+    void changesDuringAReloadAreKept() {
+        ProductSuggestIndex index = loaded(Map.of("1", "Cadeira"), Map.of());
+        // Commit concorrente: a leitura do banco não viu o produto novo
+        when(productRepository.findAllByActiveTrue(ProductNameView.class)).thenAnswer(invocation -> {
+            index.put("2", "Cama");
+            return List.of(view("1", "Cadeira"));
+        });
+
+        index.reload();
+
+        assertThat(names(index, "ca")).containsExactly("Cadeira", "Cama");
+    }
+
+    @Test
+    void anySequenceOfChangesMatchesAFullReload() {
+        SplittableRandom random = new SplittableRandom(7);
+        Map<String, String> names = new LinkedHashMap<>();
+        Map<String, Long> sales = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            names.put("p" + i, randomName(random));
+        }
+        ProductSuggestIndex incremental = loaded(names, sales);
+
+        for (int i = 0; i < 5000; i++) {
+            String id = "p" + random.nextInt(300);
+            int operation = random.nextInt(4);
+            if (operation == 0) {
+                String name = randomName(random);
+                names.put(id, name);
+                incremental.put(id, name);
+            } else if (operation == 1) {
+                names.remove(id);
+                sales.remove(id);
+                incremental.remove(id);
+            } else if (names.containsKey(id)) {
+                long quantity = 1 + random.nextInt(3);
+                sales.merge(id, quantity, Long::sum);
+                incremental.recordSale(id, quantity);
+            }
+        }
+        ProductSuggestIndex reloaded = loaded(names, sales);
+
+        List<String> queries = new ArrayList<>();
+        for (char first = 'a'; first <= 'e'; first++) {
+            queries.add(String.valueOf(first));
+            for (char second = 'a'; second <= 'e'; second++) {
+                queries.add("" + first + second);
+                for (char third = 'a'; third <= 'e'; third++) {
+                    queries.add("" + first + second + third);
+                    queries.add("" + first + second + third + 'a');
+                }
+            }
+        }
+        for (String query : queries) {
+            assertThat(incremental.suggest(query, TOP_K)).as(query).isEqualTo(reloaded.suggest(query, TOP_K));
+        }
+    }
+
+    @Test
+    void keyGaugeFollowsChanges() {
+        ProductSuggestIndex index = loaded(Map.of("1", "Fone Bluetooth"), Map.of());
+        index.registerMetrics();
+        assertThat(keys()).isEqualTo(2);
+
+        index.put("2", "Mouse sem fio");
+        assertThat(keys()).isEqualTo(5);
+
+        index.remove("1");
+        assertThat(keys()).isEqualTo(3);
+    }
+
+    private double keys() {
+        return meterRegistry.get("products.suggest.keys").gauge().value();
+    }
+
+    private ProductSuggestIndex loaded(Map<String, String> names, Map<String, Long> sales) {
+        List<ProductNameView> products = new ArrayList<>();
+        names.forEach((id, name) -> products.add(view(id, name)));
+        List<ProductSalesView> unitsSold = new ArrayList<>();
+        sales.forEach((id, quantity) -> unitsSold.add(sales(id, quantity)));
+        when(productRepository.findAllByActiveTrue(ProductNameView.class)).thenReturn(products);
+        when(stockReservationRepository.findUnitsSold()).thenReturn(unitsSold);
+
+        ProductSuggestIndex index = new ProductSuggestIndex(
+                productRepository, stockReservationRepository, meterRegistry, TOP_K, 3);
+        index.reload();
+        return index;
+    }
+
+    private List<String> names(ProductSuggestIndex index, String query) {
+        return index.suggest(query, TOP_K).stream().map(ProductSuggestionResponse::name).toList();
+    }
+
+    // Poucas letras e palavras curtas: muitos prefixos compartilhados e tops sempre cheios
+    private static String randomName(SplittableRandom random) {
+        StringBuilder name = new StringBuilder();
+        int words = 1 + random.nextInt(3);
+        for (int word = 0; word < words; word++) {
+            if (word > 0) {
+                name.append(' ');
+            }
+            int length = 1 + random.nextInt(5);
+            for (int i = 0; i < length; i++) {
+                name.append((char) ('a' + random.nextInt(5)));
+            }
+        }
+        return random.nextBoolean() ? name.toString().toUpperCase() : name.toString();
+    }
+
+    private static ProductNameView view(String id, String name) {
+        return new ProductNameView() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+
+    private static ProductSalesView sales(String id, long quantity) {
+        return new ProductSalesView() {
+            @Override
+            public String getProductId() {
+                return id;
+            }
+
+            @Override
+            public Long getQuantity() {
+                return quantity;
+            }
+        };
+    }
+}
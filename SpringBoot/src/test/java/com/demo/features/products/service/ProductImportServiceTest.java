@@ -0,0 +1,164 @@
+package com.demo.features.products.service;
+
+import com.demo.common.exception.BusinessException;
+import com.demo.common.web.CsvLine;
+import com.demo.features.products.cache.ProductCache;
+import com.demo.features.products.dto.ProductImportResponse;
+import com.demo.features.products.dto.ProductImportResponse.RowError;
+import com.demo.features.products.search.ProductSuggestIndex;
+import com.demo.support.PostgresIntegrationTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Importação contra o banco real: uma linha que passa na validação mas é recusada pelo banco só
+ * falha ela mesma, sem derrubar as linhas boas do mesmo lote, e o CSV da exportação volta
+ * inteiro pela importação.
+ */
+@DataJpaTest(properties = "app.products.import.batch-size=" + ProductImportServiceTest.BATCH_SIZE)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, ValidationAutoConfiguration.class})
+// Cada lote commita na própria transação; dentro da transação do teste o rollback do lote levaria as retentativas junto
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+        ProductImportService.class,
+        ProductExportService.class,
+        ProductCache.class,
+        ProductSuggestIndex.class,
+        SimpleMeterRegistry.class
+})
+class ProductImportServiceTest extends PostgresIntegrationTest {
+
+    static final int BATCH_SIZE = 10;
+
+    private static final String SELLER = "importer";
+
+    @Autowired
+    private ProductImportService importService;
+
+    @Autowired
+    private ProductExportService exportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seedUser() {
+        jdbcTemplate.update("INSERT INTO users (id, name, email, password) VALUES (?, 'Importer', 'importer@example.com', 'secret')",
+                SELLER);
+    }
+
+    @AfterEach
+    void deleteProducts() {
+        jdbcTemplate.update("DELETE FROM products WHERE created_by_id = ?", SELLER);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", SELLER);
+    }
+
+    @Test
+    void rowsRejectedByTheDatabaseFailAlone() throws IOException {
+        StringBuilder csv = new StringBuilder("name,description,price,stock,imageUrl\n");
+        for (int i = 1; i <= BATCH_SIZE; i++) {
+            if (i == 3) {
+                // Acima do VARCHAR(255) de products.name
+                csv.append("x".repeat(300)).append(",,10.00,1,\n");
+            } else if (i == 7) {
+                // Estoura o DECIMAL(10, 2) de products.price
+                csv.append("Overpriced,,123456789.00,1,\n");
+            } else {
+                csv.append("Product ").append(i).append(",,10.00,1,\n");
+            }
+        }
+
+        ProductImportResponse response = importService.importProducts(SELLER, ProductImportService.TEXT_CSV,
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(response.totalRows()).isEqualTo(BATCH_SIZE);
+        assertThat(response.imported()).isEqualTo(BATCH_SIZE - 2);
+        assertThat(response.failed()).isEqualTo(2);
+        // Linha 1 é o cabeçalho
+        assertThat(response.errors()).extracting(RowError::line).containsExactly(4L, 8L);
+        assertThat(response.errors()).allSatisfy(error -> assertThat(error.message()).startsWith("Falha ao gravar a linha: "));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products WHERE created_by_id = ?", Integer.class, SELLER))
+                .isEqualTo(BATCH_SIZE - 2);
+    }
+
+    @Test
+    void exportedCsvWithMultiLineDescriptionsImportsBack() throws IOException {
+        List<String> descriptions = List.of(
+                "Primeira linha\nSegunda linha",
+                "Com vírgula, \"aspas\"\ne\n\nlinha em branco",
+                "Uma linha só");
+        for (int i = 0; i < descriptions.size(); i++) {
+            jdbcTemplate.update("INSERT INTO products (id, name, description, price, stock, active, created_by_id) " +
+                    "VALUES (?, ?, ?, 10.00, 1, true, ?)", "export-" + i, "Exported " + i, descriptions.get(i), SELLER);
+        }
+
+        ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        assertThat(exportService.export(ProductExportService.ExportFormat.CSV, exported)).isEqualTo(descriptions.size());
+        jdbcTemplate.update("DELETE FROM products WHERE created_by_id = ?", SELLER);
+
+        ProductImportResponse response = importService.importProducts(SELLER, ProductImportService.TEXT_CSV,
+                new ByteArrayInputStream(exported.toByteArray()));
+
+        assertThat(response.errors()).isEmpty();
+        assertThat(response.imported()).isEqualTo(descriptions.size());
+        assertThat(jdbcTemplate.queryForList("SELECT description FROM products WHERE created_by_id = ?", String.class, SELLER))
+                .containsExactlyInAnyOrderElementsOf(descriptions);
+    }
+
+    @Test
+    void errorsAfterMultiLineRecordsPointAtThePhysicalLine() throws IOException {
+        String csv = """
+                name,description,price,stock
+                Multi,"uma
+                duas
+                três",10.00,1
+                Negative,,-1,1
+                Unclosed,"sem fim,10.00,1
+                """;
+
+        ProductImportResponse response = importService.importProducts(SELLER, ProductImportService.TEXT_CSV,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(response.imported()).isEqualTo(1);
+        assertThat(response.errors()).extracting(RowError::line).containsExactly(5L, 6L);
+        assertThat(response.errors().get(1).message()).isEqualTo("Linha CSV com aspas não fechadas");
+    }
+
+    @Test
+    void unclosedQuoteDoesNotBufferTheRestOfTheFile() {
+        StringBuilder csv = new StringBuilder("name,description,price,stock\nUnclosed,\"sem fim,10.00,1\n");
+        String row = "Product,,10.00,1\n";
+        while (csv.length() <= 2 * CsvLine.MAX_RECORD_LENGTH) {
+            csv.append(row);
+        }
+
+        assertThatThrownBy(() -> importService.importProducts(SELLER, ProductImportService.TEXT_CSV,
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageStartingWith("Registro CSV da linha 2 passa de ");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products WHERE created_by_id = ?", Integer.class, SELLER))
+                .isZero();
+    }
+}
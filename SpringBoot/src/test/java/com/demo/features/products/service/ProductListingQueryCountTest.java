@@ -0,0 +1,146 @@
+package com.demo.features.products.service;
+
+import com.demo.common.exception.BusinessException;
+import com.demo.common.persistence.SparseQuery;
+import com.demo.common.web.FieldSelection;
+import com.demo.domain.Product;
+import com.demo.domain.User;
+import com.demo.features.products.cache.ProductCache;
+import com.demo.features.products.dto.ProductListResponse;
+import com.demo.features.products.repository.ProductFilter;
+import com.demo.features.products.repository.ProductRepository;
+import com.demo.features.products.repository.ProductView;
+import com.demo.features.products.search.PostgresProductSearchEngine;
+import com.demo.features.products.search.ProductSuggestIndex;
+import com.demo.features.users.repository.UserRepository;
+import com.demo.support.PostgresIntegrationTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Trava a correção do N+1 em Product.createdBy: listar 100 produtos, cada um de um criador
+ * diferente, custa um único statement SQL. Página e limite fora do intervalo nem chegam ao banco.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({
+        ProductService.class,
+        ProductCache.class,
+        ProductFacetService.class,
+        HotStockAllocator.class,
+        PostgresProductSearchEngine.class,
+        ProductSuggestIndex.class,
+        SparseQuery.class,
+        SimpleMeterRegistry.class
+})
+class ProductListingQueryCountTest extends PostgresIntegrationTest {
+
+    private static final int PRODUCTS = 100;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SparseQuery sparseQuery;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void seedProducts() {
+        // Um criador por produto: com createdBy EAGER cada linha puxaria o seu usuário
+        for (int i = 0; i < PRODUCTS; i++) {
+            User user = userRepository.save(User.builder()
+                    .name("Seller " + i)
+                    .email("seller" + i + "@example.com")
+                    .password("secret")
+                    .build());
+            productRepository.save(Product.builder()
+                    .name("Product " + i)
+                    .price(BigDecimal.TEN)
+                    .stock(10)
+                    .createdBy(user)
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void listingOneHundredProductsRunsOneStatement() {
+        ProductListResponse response = productService.list(
+                1, PRODUCTS, null, null, false, ProductFilter.NONE, false, FieldSelection.all());
+
+        assertThat(response.products()).hasSize(PRODUCTS);
+        assertThat(response.products()).allSatisfy(product -> assertThat(product.createdById()).isNotNull());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1, -1", "1, 0", "1, 101", "0, 10", "-3, 10", "2147483647, 100"})
+    void outOfRangePagesAreRejectedBeforeAnyQuery(int page, int limit) {
+        assertThatThrownBy(() -> productService.list(
+                page, limit, null, null, true, ProductFilter.NONE, false, FieldSelection.all()))
+                .isInstanceOf(BusinessException.class);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void sparseQueryRejectsANonPositiveLimit() {
+        assertThatThrownBy(() -> sparseQuery.find(Product.class, Map.of("id", "id"), FieldSelection.all(),
+                null, Sort.unsorted(), 0, 0, row -> row.get("id")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void viewQueryReadsCreatorFromForeignKey() {
+        Slice<ProductView> slice = productRepository.findSliceWithSearch("product", PageRequest.of(0, PRODUCTS));
+
+        assertThat(slice.getContent()).hasSize(PRODUCTS);
+        assertThat(slice.getContent()).allSatisfy(product -> assertThat(product.getCreatedById()).isNotNull());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void loadingEntitiesDoesNotFetchCreators() {
+        List<Product> products = productRepository.findAllByActiveTrue();
+
+        // O id do proxy lazy vem da própria FK, sem inicializar o usuário
+        assertThat(products).hasSize(PRODUCTS);
+        assertThat(products).allSatisfy(product -> assertThat(product.getCreatedBy().getId()).isNotNull());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(PRODUCTS);
+    }
+}
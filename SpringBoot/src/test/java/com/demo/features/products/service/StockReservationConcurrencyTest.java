@@ -0,0 +1,213 @@
+package com.demo.features.products.service;
+
+import com.demo.common.exception.BusinessException;
+import com.demo.common.persistence.SparseQuery;
+import com.demo.features.products.cache.ProductCache;
+import com.demo.features.products.dto.ProductSuggestionResponse;
+import com.demo.features.products.dto.UpdateProductRequest;
+import com.demo.features.products.search.PostgresProductSearchEngine;
+import com.demo.features.products.search.ProductSuggestIndex;
+import com.demo.support.PostgresIntegrationTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reservas concorrentes contra o banco real: centenas de threads disputando o mesmo SKU nunca
+ * vendem além do estoque, nem pelo decremento condicional nem pelos leases do HotStockAllocator.
+ */
+@Slf4j
+@DataJpaTest(properties = {
+        "app.products.stock.hot-skus=" + StockReservationConcurrencyTest.HOT_SKU,
+        "app.products.stock.lease-size=" + StockReservationConcurrencyTest.LEASE_SIZE,
+        "app.products.stock.stripes=8"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+        StockReservationService.class,
+        HotStockAllocator.class,
+        ProductService.class,
+        ProductCache.class,
+        ProductFacetService.class,
+        PostgresProductSearchEngine.class,
+        ProductSuggestIndex.class,
+        SparseQuery.class,
+        SimpleMeterRegistry.class
+})
+class StockReservationConcurrencyTest extends PostgresIntegrationTest {
+
+    static final String HOT_SKU = "hot-sku";
+    static final String REGULAR_SKU = "regular-sku";
+    static final int LEASE_SIZE = 20;
+
+    private static final String BUYER = "buyer";
+    private static final int STOCK = 500;
+    private static final int THREADS = 200;
+    // Pedidos de 1 a 3 unidades, somando bem mais que o estoque
+    private static final int ATTEMPTS = 1000;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private HotStockAllocator hotStockAllocator;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seedProducts() {
+        jdbcTemplate.update("INSERT INTO users (id, name, email, password) VALUES (?, 'Buyer', 'buyer@example.com', 'secret')",
+                BUYER);
+        for (String id : List.of(HOT_SKU, REGULAR_SKU)) {
+            jdbcTemplate.update("INSERT INTO products (id, name, price, stock, active, created_by_id) " +
+                    "VALUES (?, ?, 10.00, ?, true, ?)", id, "Product " + id, STOCK, BUYER);
+        }
+    }
+
+    // Sem rollback automático (NOT_SUPPORTED): o que foi commitado sai aqui, depois das sobras dos leases
+    @AfterEach
+    void deleteProducts() {
+        hotStockAllocator.shutdown();
+        jdbcTemplate.update("DELETE FROM stock_reservations WHERE user_id = ?", BUYER);
+        jdbcTemplate.update("DELETE FROM product_sales WHERE product_id IN (SELECT id FROM products WHERE created_by_id = ?)",
+                BUYER);
+        jdbcTemplate.update("DELETE FROM products WHERE created_by_id = ?", BUYER);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", BUYER);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {REGULAR_SKU, HOT_SKU})
+    void concurrentReservationsNeverOversell(String productId) throws Exception {
+        AtomicInteger reservedUnits = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ConcurrentLinkedQueue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int i = 0; i < ATTEMPTS; i++) {
+                int quantity = 1 + i % 3;
+                executor.submit(() -> {
+                    start.await();
+                    try {
+                        reservationService.reserve(BUYER, productId, quantity);
+                        reservedUnits.addAndGet(quantity);
+                    } catch (BusinessException e) {
+                        rejected.incrementAndGet();
+                    } catch (Throwable e) {
+                        unexpected.add(e);
+                    }
+                    return null;
+                });
+            }
+            long startedAt = System.nanoTime();
+            start.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+            double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+            log.info("{}: {} reservations ({} rejected) by {} threads in {} ms, {} reservations/s",
+                    productId, ATTEMPTS, rejected.get(), THREADS, Math.round(seconds * 1000),
+                    Math.round(ATTEMPTS / seconds));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Devolve as sobras dos leases, como no shutdown da aplicação
+        hotStockAllocator.shutdown();
+
+        int stock = stockOf(productId);
+        Integer persisted = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantity), 0) FROM stock_reservations WHERE product_id = ?", Integer.class, productId);
+
+        assertThat(unexpected).isEmpty();
+        assertThat(reservedUnits.get()).isLessThanOrEqualTo(STOCK).isEqualTo(persisted);
+        assertThat(stock).isGreaterThanOrEqualTo(0);
+        assertThat(stock + reservedUnits.get()).isEqualTo(STOCK);
+        if (productId.equals(REGULAR_SKU)) {
+            // Sem leases o estoque inteiro é vendido; no SKU quente um pedido pode perder a corrida pelas sobras
+            assertThat(stock).isLessThan(3);
+        }
+    }
+
+    @Test
+    void idleSweepKeepsLeasesOfActiveSkus() {
+        reservationService.reserve(BUYER, HOT_SKU, 1);
+        assertThat(stockOf(HOT_SKU)).isEqualTo(STOCK - LEASE_SIZE);
+
+        hotStockAllocator.flushIdle();
+        assertThat(stockOf(HOT_SKU)).isEqualTo(STOCK - LEASE_SIZE);
+
+        hotStockAllocator.shutdown();
+        assertThat(stockOf(HOT_SKU)).isEqualTo(STOCK - 1);
+    }
+
+    @Test
+    void adminStockWriteDrainsLeases() {
+        reservationService.reserve(BUYER, HOT_SKU, 1);
+
+        productService.update(HOT_SKU, new UpdateProductRequest(null, null, null, 100, null));
+        assertThat(stockOf(HOT_SKU)).isEqualTo(100);
+
+        // As 19 unidades que sobraram do lease não podem voltar por cima do valor do admin
+        hotStockAllocator.shutdown();
+        assertThat(stockOf(HOT_SKU)).isEqualTo(100);
+
+        reservationService.reserve(BUYER, HOT_SKU, 1);
+        hotStockAllocator.shutdown();
+        assertThat(stockOf(HOT_SKU)).isEqualTo(99);
+    }
+
+    @Test
+    void committedReservationsRankSuggestions() {
+        productSuggestIndex.put(HOT_SKU, "Product " + HOT_SKU);
+        productSuggestIndex.put(REGULAR_SKU, "Product " + REGULAR_SKU);
+        assertThat(productService.suggest("product", 2)).extracting(ProductSuggestionResponse::id)
+                .containsExactly(HOT_SKU, REGULAR_SKU);
+
+        reservationService.commit(BUYER, reservationService.reserve(BUYER, REGULAR_SKU, 2).id());
+        reservationService.commit(BUYER, reservationService.reserve(BUYER, REGULAR_SKU, 1).id());
+        // Liberada não é venda
+        reservationService.release(BUYER, reservationService.reserve(BUYER, HOT_SKU, 5).id());
+
+        assertThat(jdbcTemplate.queryForList("SELECT product_id, units_sold FROM product_sales WHERE product_id IN (?, ?)",
+                HOT_SKU, REGULAR_SKU)).containsExactly(Map.of("product_id", REGULAR_SKU, "units_sold", 3L));
+        assertThat(productService.suggest("product", 2)).extracting(ProductSuggestionResponse::id)
+                .containsExactly(REGULAR_SKU, HOT_SKU);
+    }
+
+    private int stockOf(String productId) {
+        Integer stock = jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, productId);
+        return stock != null ? stock : -1;
+    }
+}
@@ -0,0 +1,108 @@
+package com.demo.infrastructure.geolocation;
+
+import com.demo.infrastructure.geolocation.CircuitBreaker.State;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Transições do circuit breaker: abre no threshold, recusa enquanto aberto e a chamada de teste do
+ * meio-aberto decide entre fechar e reabrir.
+ */
+class CircuitBreakerTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, Duration.ofMinutes(1), 1, meterRegistry);
+
+        for (int i = 0; i < 2; i++) {
+            assertThat(breaker.tryAcquire()).isTrue();
+            breaker.onFailure();
+        }
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.onFailure();
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(meterRegistry.get("test.circuit-breaker.state").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("test.circuit-breaker.transitions").tag("to", "open").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 2, Duration.ofMinutes(1), 1, meterRegistry);
+
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void halfOpenProbeClosesTheCircuitOnSuccess() {
+        // Tempo aberto zero: a próxima chamada já é a de teste
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, Duration.ZERO, 1, meterRegistry);
+        breaker.onFailure();
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+        // Só halfOpenCalls chamadas de teste por vez
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        breaker.onSuccess();
+
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void halfOpenProbeReopensTheCircuitOnFailure() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 5, Duration.ofMillis(50), 1, meterRegistry);
+        for (int i = 0; i < 5; i++) {
+            breaker.onFailure();
+        }
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        sleep(Duration.ofMillis(60));
+        assertThat(breaker.tryAcquire()).isTrue();
+        // Uma única falha no meio-aberto basta, sem esperar o threshold
+        breaker.onFailure();
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void lateFailuresDoNotExtendTheOpenPeriod() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, Duration.ofMillis(50), 1, meterRegistry);
+        breaker.onFailure();
+
+        sleep(Duration.ofMillis(30));
+        // Chamada lenta que começou antes da abertura
+        breaker.onFailure();
+        sleep(Duration.ofMillis(30));
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.demo.infrastructure.geolocation;
+
+import com.demo.infrastructure.geolocation.GoogleMapsService.Coordinates;
+import com.demo.infrastructure.geolocation.GoogleMapsService.DistanceResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * GoogleMapsService contra um servidor HTTP local no lugar da API: com a API fora ou saturada, a
+ * Distance Matrix cai na distância em linha reta, e com o circuito aberto nem chega à rede.
+ */
+class GoogleMapsServiceTest {
+
+    private static final String DISTANCE_MATRIX_OK = """
+            {"status": "OK", "origin_addresses": ["A"], "destination_addresses": ["B"],
+             "rows": [{"elements": [{"status": "OK",
+                                     "distance": {"text": "12.3 km", "value": 12300},
+                                     "duration": {"text": "15 mins", "value": 900}}]}]}
+            """;
+
+    private static final Coordinates ORIGIN = new Coordinates(-23.5505, -46.6333);
+    private static final Coordinates DESTINATION = new Coordinates(-23.5614, -46.6559);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final ExecutorService serverExecutor = Executors.newCachedThreadPool();
+    private HttpServer server;
+    private volatile int status = 500;
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::respond);
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        gate.countDown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void openCircuitFallsBackToStraightLineWithoutCallingTheApi() {
+        GoogleMapsService service = service(2, Duration.ofMinutes(1), 20);
+
+        for (int i = 0; i < 2; i++) {
+            assertThat(distance(service).straightLine()).isTrue();
+        }
+        assertThat(requests.get()).isEqualTo(2);
+
+        DistanceResult result = distance(service);
+
+        assertThat(result.straightLine()).isTrue();
+        assertThat(result.distanceKm()).isEqualTo(Haversine.distanceKm(
+                ORIGIN.latitude(), ORIGIN.longitude(), DESTINATION.latitude(), DESTINATION.longitude()));
+        assertThat(requests.get()).isEqualTo(2);
+        assertThat(calls("short_circuited")).isEqualTo(1);
+    }
+
+    @Test
+    void halfOpenProbeRestoresRoutesWhenTheApiRecovers() {
+        GoogleMapsService service = service(1, Duration.ZERO, 20);
+        assertThat(distance(service).straightLine()).isTrue();
+
+        status = 200;
+        DistanceResult result = distance(service);
+
+        assertThat(result.straightLine()).isFalse();
+        assertThat(result.distanceKm()).isEqualTo(12.3);
+        assertThat(result.durationSeconds()).isEqualTo(900);
+        assertThat(calls("success")).isEqualTo(1);
+    }
+
+    @Test
+    void fullBulkheadFallsBackToStraightLine() throws Exception {
+        GoogleMapsService service = service(5, Duration.ofMinutes(1), 1);
+        status = 200;
+        gate = new CountDownLatch(1);
+
+        // A primeira chamada ocupa a única vaga do bulkhead até o servidor responder
+        CompletableFuture<DistanceResult> slow = CompletableFuture.supplyAsync(() -> distance(service));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (requests.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(requests.get()).isEqualTo(1);
+
+        DistanceResult rejected = distance(service);
+        gate.countDown();
+
+        assertThat(rejected.straightLine()).isTrue();
+        assertThat(calls("bulkhead_full")).isEqualTo(1);
+        assertThat(slow.get(10, TimeUnit.SECONDS).straightLine()).isFalse();
+        assertThat(requests.get()).isEqualTo(1);
+    }
+
+    private GoogleMapsService service(int failureThreshold, Duration openDuration, int maxConcurrent) {
+        return new GoogleMapsService(
+                // O cliente só aceita chaves com o prefixo das chaves reais
+                "AIza-test-key",
+                "http://localhost:" + server.getAddress().getPort(),
+                Duration.ofSeconds(2),
+                Duration.ofSeconds(5),
+                0,
+                50,
+                maxConcurrent,
+                Duration.ZERO,
+                failureThreshold,
+                openDuration,
+                1,
+                meterRegistry
+        );
+    }
+
+    private DistanceResult distance(GoogleMapsService service) {
+        return service.calculateDistanceMatrix(List.of(ORIGIN), List.of(DESTINATION))[0][0];
+    }
+
+    private double calls(String outcome) {
+        return meterRegistry.get("google-maps.calls").tag("outcome", outcome).counter().count();
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            gate.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        byte[] body = (status == 200 ? DISTANCE_MATRIX_OK : "{}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+}
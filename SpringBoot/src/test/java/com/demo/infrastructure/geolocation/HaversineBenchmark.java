@@ -0,0 +1,94 @@
+package com.demo.infrastructure.geolocation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distâncias de uma origem para N pontos aleatórios no estado de São Paulo: a fórmula escalar
+ * antiga (atan2, conversões por par), a escalar atual e a versão em lote de Haversine.
+ *
+ * <p>Não roda com os testes (o nome não casa com os padrões do surefire). Para rodar, numa JVM
+ * separada para que os forks do JMH herdem o classpath de teste:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main HaversineBenchmark"
+ * </pre>
+ * Outras opções do JMH vão no fim de exec.args, por exemplo "-p points=10000" para um tamanho só.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class HaversineBenchmark {
+
+    private static final double ORIGIN_LAT = -23.5505;
+    private static final double ORIGIN_LNG = -46.6333;
+
+    @Param({"10000", "1000000", "10000000"})
+    private int points;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] distances;
+
+    @Setup(Level.Trial)
+    public void generatePoints() {
+        SplittableRandom random = new SplittableRandom(42);
+        latitudes = new double[points];
+        longitudes = new double[points];
+        distances = new double[points];
+        for (int i = 0; i < points; i++) {
+            latitudes[i] = random.nextDouble(-25.3, -19.8);
+            longitudes[i] = random.nextDouble(-53.1, -44.2);
+        }
+    }
+
+    @Benchmark
+    public double[] legacyScalar() {
+        for (int i = 0; i < points; i++) {
+            distances[i] = legacyDistanceKm(ORIGIN_LAT, ORIGIN_LNG, latitudes[i], longitudes[i]);
+        }
+        return distances;
+    }
+
+    @Benchmark
+    public double[] scalar() {
+        for (int i = 0; i < points; i++) {
+            distances[i] = Haversine.distanceKm(ORIGIN_LAT, ORIGIN_LNG, latitudes[i], longitudes[i]);
+        }
+        return distances;
+    }
+
+    @Benchmark
+    public double[] batch() {
+        Haversine.distancesKm(ORIGIN_LAT, ORIGIN_LNG, latitudes, longitudes, points, distances);
+        return distances;
+    }
+
+    // Fórmula que GoogleMapsService.calculateStraightLineDistance usava antes de Haversine
+    private static double legacyDistanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
+
+        return Haversine.EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
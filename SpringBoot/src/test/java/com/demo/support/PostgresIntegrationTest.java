@@ -0,0 +1,28 @@
+package com.demo.support;
+
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Base dos testes de integração: um PostgreSQL real (mesma imagem do docker-compose) com as
+ * migrações do Flyway aplicadas. O container é único por JVM, iniciado na primeira classe que
+ * o usa, para que o cache de contextos do Spring continue apontando para o mesmo banco.
+ */
+@ActiveProfiles("test")
+public abstract class PostgresIntegrationTest {
+
+    protected static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    static {
+        POSTGRES.start();
+    }
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+}